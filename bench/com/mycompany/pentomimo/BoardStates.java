@@ -0,0 +1,104 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Stany planszy zapisane podczas prawdziwego wyszukiwania, wspólne dla wszystkich mikrobenchmarków.
+ * Obserwowane jest wyszukiwanie PentominoSolver na planszy 10x6 (wiersze >= kolumny, więc silnik nie transponuje planszy
+ * i numery kwadratów z Listener są bitami masek). Po każdym położeniu klocka stan jest zapisywany z prawdopodobieństwem
+ * 1/SKIP, a losowanie używa Random o stałym ziarnie, więc każde uruchomienie benchmarków widzi dokładnie te same stany.
+ */
+final class BoardStates {
+
+   static final int ROWS = 10, COLS = 6;
+   static final long SEED = 20240117L;
+   static final int SKIP = 997;  // Średnio co który położony klocek zapisywany jest stan.
+
+   final int[][] pieces;    // Pentomina, w formacie PentominosPanel.piece_data.
+   final long[] filled;     // Zajęte kwadraty po położeniu klocka; bity powyżej ROWS*COLS są zawsze ustawione, jak w PentominoSolver.
+   final long[] placed;     // Kwadraty ostatnio położonego klocka.
+   final int[] usedMask;    // Użyte klocki (bit 1 << numer klocka) po położeniu.
+   final int[] forced;      // Liczba wymuszonych pustych kwadratów przed położeniem klocka (dla RegionTracker.update).
+   final int[][] board;     // Numer klocka w każdym kwadracie (0 dla pustego), w numeracji row*COLS+col.
+   final int[][] solutions; // Pełne rozwiązania znalezione w trakcie zapisywania, w tym samym formacie co board.
+
+   private BoardStates(int[][] pieces, int count, ArrayList<long[]> masks, ArrayList<int[]> boards, ArrayList<int[]> solutions) {
+      this.pieces = pieces;
+      filled = new long[count];
+      placed = new long[count];
+      usedMask = new int[count];
+      forced = new int[count];
+      board = new int[count][];
+      RegionTracker regions = new RegionTracker(ROWS, COLS);
+      regions.setPlacements(PlacementTable.get(ROWS, COLS, pieces));
+      for (int i = 0; i < count; i++) {
+         long[] m = masks.get(i);
+         filled[i] = m[0];
+         placed[i] = m[1];
+         usedMask[i] = (int)m[2];
+         board[i] = boards.get(i);
+         int before = usedMask[i] & ~(1 << board[i][Long.numberOfTrailingZeros(placed[i])]);
+         forced[i] = regions.forcedEmpty(filled[i] & ~placed[i], before, Integer.MAX_VALUE);
+      }
+      this.solutions = solutions.toArray(new int[solutions.size()][]);
+   }
+
+   /**
+    * Uruchamia wyszukiwanie i zapisuje count stanów oraz co najwyżej count rozwiązań.
+    */
+   static BoardStates record(int count) {
+      final int[][] pieces = PolyominoSet.pentominoes().getPieceData();
+      final int total = count;
+      final Random random = new Random(SEED);
+      final ArrayList<long[]> masks = new ArrayList<long[]>();
+      final ArrayList<int[]> boards = new ArrayList<int[]>();
+      final ArrayList<int[]> solutions = new ArrayList<int[]>();
+      final int[] current = new int[ROWS*COLS];
+      PentominoSolver solver = new PentominoSolver(ROWS, COLS, pieces);
+      solver.setCheckForBlocks(true);  // Stany takie jak w zwykłym wyszukiwaniu: bez oczywiście zablokowanych plansz.
+      solver.setEstimate(false);
+      solver.setListener(new PentominoSolver.Listener() {
+         long filled = -1L << (ROWS*COLS);
+         int used;
+         public boolean piecePlaced(int piece, int[] cells) {
+            long mask = 0;
+            for (int cell : cells) {
+               mask |= 1L << cell;
+               current[cell] = piece;
+            }
+            filled |= mask;
+            used |= 1 << piece;
+            if (masks.size() < total && random.nextInt(SKIP) == 0) {
+               masks.add(new long[] { filled, mask, used });
+               boards.add(current.clone());
+            }
+            return masks.size() < total || solutions.size() < total;
+         }
+         public void pieceRemoved(int piece, int[] cells) {
+            for (int cell : cells) {
+               filled &= ~(1L << cell);
+               current[cell] = 0;
+            }
+            used &= ~(1 << piece);
+         }
+         public boolean solutionFound(long solutionCount) {
+            if (solutions.size() < total)
+               solutions.add(current.clone());
+            return masks.size() < total || solutions.size() < total;
+         }
+      });
+      solver.solve();
+      return new BoardStates(pieces, masks.size(), masks, boards, solutions);
+   }
+
+}
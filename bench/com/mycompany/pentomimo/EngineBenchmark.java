@@ -0,0 +1,115 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Mikrobenchmarki podstawowych operacji silnika bitowego, na stanach planszy z prawdziwego wyszukiwania (BoardStates).
+ * Dawne procedury PentominosPanel zostały zastąpione przez silnik, więc mierzone są ich obecne odpowiedniki:
+ * putPiece/removePiece to położenie i zdjęcie wszystkich pasujących pozycji w pierwszym pustym kwadracie,
+ * obviousBlockExists/countEmptyBlock to pełne przeliczenie RegionTracker.forcedEmpty i przyrostowe RegionTracker.update,
+ * a szukanie następnego pustego kwadratu jest mierzone na masce bitowej i, dla porównania, na tablicy kwadratów.
+ * Każde wywołanie bierze następny zapisany stan, więc wynik jest średnią po wszystkich stanach.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+   private static final int STATES = 256;  // Potęga dwójki, aby indeks można było zawijać maską.
+
+   private BoardStates states;
+   private RegionTracker regions;
+   private int[] start;
+   private long[] masks;
+   private int[] piece;
+   private int index;
+
+   @Setup
+   public void setup() {
+      states = BoardStates.record(STATES);
+      if (states.filled.length < STATES)
+         throw new IllegalStateException("Search ended after " + states.filled.length + " states.");
+      PlacementTable table = PlacementTable.get(BoardStates.ROWS, BoardStates.COLS, states.pieces);
+      regions = new RegionTracker(BoardStates.ROWS, BoardStates.COLS);
+      regions.setPlacements(table);
+      start = table.start;
+      masks = table.mask;
+      piece = table.piece;
+   }
+
+   private int next() {
+      index = (index + 1) & (STATES - 1);
+      return index;
+   }
+
+   @Benchmark
+   public void putAndRemovePieces(Blackhole bh) {
+      int s = next();
+      long filled = states.filled[s];
+      int used = states.usedMask[s];
+      if (filled == -1L)
+         return;
+      int cell = Long.numberOfTrailingZeros(~filled);
+      for (int i = start[cell]; i < start[cell+1]; i++) {
+         long mask = masks[i];
+         int bit = 1 << piece[i];
+         if ((mask & filled) != 0 || (used & bit) != 0)
+            continue;
+         filled |= mask;
+         used |= bit;
+         bh.consume(filled);
+         filled ^= mask;
+         used ^= bit;
+      }
+   }
+
+   @Benchmark
+   public int blockCheckFull() {
+      int s = next();
+      return regions.forcedEmpty(states.filled[s], states.usedMask[s], 0);
+   }
+
+   @Benchmark
+   public int blockCheckIncremental() {
+      int s = next();
+      return regions.update(states.filled[s], states.placed[s], states.forced[s], states.usedMask[s], 0);
+   }
+
+   @Benchmark
+   public int nextEmptyBitboard() {
+      return Long.numberOfTrailingZeros(~states.filled[next()]);
+   }
+
+   @Benchmark
+   public int nextEmptyArray() {
+      int[] board = states.board[next()];
+      for (int cell = 0; cell < board.length; cell++)
+         if (board[cell] == 0)
+            return cell;
+      return -1;
+   }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Mikrobenchmark MosaicPanel z włączonym i wyłączonym autopaint. setColor koloruje jeden kwadrat
+ * według zapisanego stanu planszy (BoardStates), tak jak robi to BoardRenderer; mierzone jest tylko oznaczenie zmiany,
+ * bo rysowanie odbywa się raz na klatkę. frame przenosi na planszę cały następny stan i rysuje jedną klatkę
+ * (paintComponent) do obrazu wielkości ekranu. Panel nie jest pokazywany na ekranie (java.awt.headless).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MosaicBenchmark {
+
+   private static final int STATES = 16;
+   private static final int SQUARE = 30;  // Rozmiar kwadratu w pikselach, jak w PentominosPanel.
+
+   @Param({"true", "false"})
+   public boolean autopaint;
+
+   private MosaicPanel board;
+   private BufferedImage screen;
+   private Graphics screenGraphics;
+   private int[][] states;
+   private Color[] colors;
+   private int state, cell;
+
+   @Setup
+   public void setup() {
+      states = BoardStates.record(STATES).board;
+      int rows = BoardStates.ROWS, cols = BoardStates.COLS;
+      board = new MosaicPanel(rows, cols, SQUARE, SQUARE);
+      board.setSize(cols*SQUARE, rows*SQUARE);
+      screen = new BufferedImage(cols*SQUARE, rows*SQUARE, BufferedImage.TYPE_INT_RGB);
+      screenGraphics = screen.getGraphics();
+      board.paintComponent(screenGraphics);  // Tworzy obraz poza ekranem, w którym rysowane są zmiany.
+      board.setAutopaint(autopaint);
+      colors = new Color[13];
+      for (int i = 1; i < colors.length; i++)
+         colors[i] = Color.getHSBColor(i / 12.0f, 0.6f, 0.9f);
+   }
+
+   @Benchmark
+   public void setColor() {
+      int[] b = states[state];
+      board.setColor(cell / BoardStates.COLS, cell % BoardStates.COLS, colors[b[cell]]);
+      if (++cell == b.length) {
+         cell = 0;
+         state = (state + 1) % states.length;
+      }
+   }
+
+   @Benchmark
+   public void frame() {
+      state = (state + 1) % states.length;
+      int[] b = states[state];
+      for (int i = 0; i < b.length; i++)
+         board.setColor(i / BoardStates.COLS, i % BoardStates.COLS, colors[b[i]]);
+      board.paintComponent(screenGraphics);
+   }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Mikrobenchmarki sprawdzania symetrii (dawne checkSymmetries) na rozwiązaniach z prawdziwego wyszukiwania.
+ * isCanonical jest wywoływane dla każdego znalezionego rozwiązania i nie powinno niczego alokować;
+ * canonical tworzy nową tablicę, więc jego alokacja jest widoczna w profilu gc.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymmetryBenchmark {
+
+   private static final int SOLUTIONS = 64;  // Potęga dwójki, aby indeks można było zawijać maską.
+
+   private int[][] solutions;
+   private SymmetryGroup symmetry;
+   private int index;
+
+   @Setup
+   public void setup() {
+      solutions = BoardStates.record(SOLUTIONS).solutions;
+      if (solutions.length < SOLUTIONS)
+         throw new IllegalStateException("Search ended after " + solutions.length + " solutions.");
+      symmetry = new SymmetryGroup(BoardStates.ROWS, BoardStates.COLS, 0L, true);
+   }
+
+   private int[] next() {
+      index = (index + 1) & (SOLUTIONS - 1);
+      return solutions[index];
+   }
+
+   @Benchmark
+   public boolean isCanonical() {
+      return symmetry.isCanonical(next());
+   }
+
+   @Benchmark
+   public int[] canonical() {
+      return symmetry.canonical(next());
+   }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.reflect.InvocationTargetException;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Rysuje planszę w trakcie rozwiązywania w stałym tempie klatek. Wątek gry (obserwator silnika) zmienia tylko własną
+ * tablicę stanu i publikuje jej kopię w FrameBuffer wtedy, gdy EDT pobrał już poprzednią klatkę. Timer na EDT co
+ * FRAME_MILLIS pobiera najnowszą klatkę i ustawia kolory tylko tych kwadratów, które się zmieniły.
+ * Dzięki temu rysowanie nigdy nie spowalnia silnika, a MosaicPanel jest w tym czasie używany tylko z EDT.
+ */
+final class BoardRenderer implements ActionListener {
+
+   static final int FRAME_MILLIS = 16;  // Około 60 klatek na sekundę.
+
+   private final MosaicPanel board;
+   private final Color[] colors;        // Kolor klocka o numerze n to colors[n].
+   private final Timer timer;
+   private int cols;
+   private int[] state;                 // Bieżący stan planszy; tylko wątek gry.
+   private int[] shown;                 // Stan pokazany na ekranie; tylko EDT.
+   private volatile FrameBuffer frames; // null, gdy nic nie jest rozwiązywane.
+
+   BoardRenderer(MosaicPanel board, Color[] colors) {
+      this.board = board;
+      this.colors = colors;
+      timer = new Timer(FRAME_MILLIS, this);
+      timer.setCoalesce(true);
+   }
+
+   /**
+    * Zaczyna pokazywanie ruchów silnika (wątek gry). Element initial opisuje kwadrat row*cols+col: numer klocka,
+    * 0 dla pustego albo -1 dla kwadratu, którego renderer nie zmienia (czarne kwadraty wybrane przez użytkownika).
+    */
+   void begin(int[] initial, int cols) {
+      this.cols = cols;
+      state = initial.clone();
+      shown = initial.clone();
+      frames = new FrameBuffer(initial.length);
+      timer.start();
+   }
+
+   /**
+    * Klocek piece został położony na kwadratach cells (wątek gry).
+    */
+   void place(int piece, int[] cells) {
+      for (int i = 0; i < cells.length; i++)
+         state[cells[i]] = piece;
+      if (frames.isWanted())
+         frames.publish(state);
+   }
+
+   /**
+    * Klocek został zdjęty z kwadratów cells (wątek gry).
+    */
+   void remove(int[] cells) {
+      for (int i = 0; i < cells.length; i++)
+         state[cells[i]] = 0;
+      if (frames.isWanted())
+         frames.publish(state);
+   }
+
+   /**
+    * Publikuje bieżący stan, nawet jeśli EDT nie pobrał jeszcze poprzedniej klatki; np. przed pauzą albo przy rozwiązaniu,
+    * aby na ekranie był dokładnie ten stan (wątek gry).
+    */
+   void flush() {
+      if (frames != null)
+         frames.publish(state);
+   }
+
+   /**
+    * Kończy pokazywanie ruchów (wątek gry): ostatni stan jest rysowany na EDT, zanim ta metoda wróci,
+    * więc potem wątek gry może znowu bezpiecznie czytać i zmieniać planszę.
+    */
+   void end() {
+      if (frames == null)
+         return;
+      flush();
+      timer.stop();
+      try {
+         SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+               showFrame();
+               frames = null;
+            }
+         });
+      }
+      catch (InterruptedException | InvocationTargetException e) {
+         frames = null;
+      }
+   }
+
+   public void actionPerformed(ActionEvent evt) { // Timer na EDT: pokazuje najnowszą klatkę.
+      showFrame();
+   }
+
+   private void showFrame() { // Ustawia kolory kwadratów, które zmieniły się od poprzedniej klatki (EDT).
+      FrameBuffer f = frames;
+      if (f == null)
+         return;
+      int[] frame = f.acquire();
+      if (frame == null)
+         return;
+      for (int i = 0; i < frame.length; i++) {
+         int v = frame[i];
+         if (v != shown[i]) {
+            shown[i] = v;
+            board.setColor(i / cols, i % cols, (v == 0)? null : colors[v]);
+         }
+      }
+   }
+
+}
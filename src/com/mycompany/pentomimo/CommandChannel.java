@@ -0,0 +1,69 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Kanał poleceń od dowolnych wątków (np. wątku interfejsu) do jednego wątku odbiorcy (wątku gry), bez blokad.
+ * Polecenia trafiają do nieblokującej kolejki, więc żadne nie zostaje nadpisane przez następne, a nadawca nigdy nie czeka.
+ * Odbiorca, który czeka w await(), jest budzony przez LockSupport.unpark natychmiast po wysłaniu polecenia,
+ * więc czas reakcji nie zależy od długości opóźnień ani od monitorów obiektów.
+ */
+final class CommandChannel<T> {
+
+   private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<T>();
+   private volatile Thread receiver;  // Wątek, który ostatnio czekał w await().
+
+   /**
+    * Wysyła polecenie i budzi odbiorcę. Może być wywoływane z dowolnego wątku.
+    */
+   void send(T command) {
+      queue.offer(command);
+      wake();
+   }
+
+   /**
+    * Budzi odbiorcę bez wysyłania polecenia, np. gdy skończył się wątek, na który odbiorca czeka.
+    */
+   void wake() {
+      Thread t = receiver;
+      if (t != null)
+         LockSupport.unpark(t);
+   }
+
+   /**
+    * Zwraca następne polecenie albo null, jeśli kolejka jest pusta. Tylko dla odbiorcy.
+    */
+   T poll() {
+      return queue.poll();
+   }
+
+   boolean isEmpty() {
+      return queue.isEmpty();
+   }
+
+   /**
+    * Czeka co najwyżej podaną liczbę nanosekund (ujemną: bez limitu), aż w kolejce pojawi się polecenie albo zostanie
+    * wywołane wake(). Może też wrócić wcześniej bez powodu, więc wywołujący powinien sprawdzić warunek i w razie potrzeby
+    * wywołać await() ponownie. Tylko dla odbiorcy.
+    */
+   void await(long nanos) {
+      receiver = Thread.currentThread();
+      if (!queue.isEmpty())
+         return;
+      if (nanos < 0)
+         LockSupport.park(this);
+      else if (nanos > 0)
+         LockSupport.parkNanos(this, nanos);
+   }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.Arrays;
+
+/**
+ * Alternatywny silnik rozwiązujący łamigłówki pentomino za pomocą algorytmu X Knutha i techniki "Dancing Links".
+ * Łamigłówka jest zapisana jako problem dokładnego pokrycia: jest jedna kolumna dla każdego klocka (12 dla pentomin)
+ * i jedna kolumna dla każdego kwadratu planszy, a każdy wiersz macierzy to jedna pozycja klocka na planszy.
+ * W każdym kroku wybierana jest kolumna z najmniejszą liczbą możliwości, zamiast zawsze pierwszego pustego kwadratu.
+ * Kwadraty, które mogą pozostać puste (emptySpaces), są kolumnami opcjonalnymi: kwadrat wybranej kolumny może być
+ * zostawiony pusty, dopóki nie przekroczy to limitu. Jeśli nie wszystkie klocki są potrzebne, kolumny klocków są
+ * kolumnami drugorzędnymi (każdy klocek może być użyty co najwyżej raz). Silnik nie ma ograniczenia rozmiaru planszy
+ * i używa tego samego interfejsu PentominoSolver.Listener do obserwacji przez panel.
+ */
+public class DancingLinksSolver {
+
+   private final int rows, cols;      // Rozmiar planszy.
+   private final int piecesNeeded;    // Liczba klocków w kompletnym rozwiązaniu.
+   private final int emptySpaces;     // Ile kwadratów (poza dziurami) może pozostać pustych w rozwiązaniu.
+
+   // Węzły macierzy są przechowywane w tablicach typu int. Węzeł 0 to korzeń, węzły 1 do pieceCount to nagłówki kolumn klocków,
+   // następne rows*cols węzłów to nagłówki kolumn kwadratów, a dalej są węzły wierszy, po pieceSize+1 na każdy wiersz.
+   private int[] L, R, U, D;  // Sąsiedzi węzła: lewy, prawy, górny, dolny.
+   private int[] C;           // Nagłówek kolumny, do której należy węzeł.
+   private int[] S;           // Liczba węzłów w kolumnie (tylko dla nagłówków).
+   private int[] rowOf;       // Numer wiersza macierzy, do którego należy węzeł.
+   private int[] rowPiece;    // Numer klocka (od 1) dla każdego wiersza macierzy.
+   private int[][] rowCells;  // Kwadraty (row*cols+col) zajęte przez każdy wiersz macierzy.
+
+   private PentominoSolver.Listener listener;  // Obserwator, może być null.
+   private SymmetryGroup symmetry;  // Jeśli nie null, liczone są tylko rozwiązania w postaci kanonicznej.
+   private int[] chosen;      // chosen[d] to wiersz macierzy wybrany na głębokości d.
+   private int[] solution;    // Bufor na bieżące rozwiązanie, sprawdzane przez symmetry.
+
+   private volatile boolean abortRequested;  // Ustawiane przez abort(), z dowolnego wątku.
+   private boolean aborted;      // Prawda, jeśli ostatnie wyszukiwanie zostało przerwane.
+   private long nodeCount;       // Liczba położonych klocków.
+   private long solutionCount;   // Liczba znalezionych rozwiązań.
+
+   private final int firstCellColumn;  // Nagłówek kolumny kwadratu numer 0, zaraz po nagłówkach klocków.
+
+   /**
+    * Tworzy macierz dokładnego pokrycia dla planszy o podanym rozmiarze.
+    * @param pieces pozycje klocków, w formacie PentominosPanel.piece_data.
+    * @param holes holes[row*cols+col] jest true, jeśli kwadrat musi pozostać pusty (czarny kwadrat). Może być null.
+    * @param piecesNeeded liczba klocków w kompletnym rozwiązaniu.
+    * @param emptySpaces ile dodatkowych kwadratów, poza dziurami, pozostanie pustych w rozwiązaniu.
+    */
+   public DancingLinksSolver(int rows, int cols, int[][] pieces, boolean[] holes, int piecesNeeded, int emptySpaces) {
+      this.rows = rows;
+      this.cols = cols;
+      this.piecesNeeded = piecesNeeded;
+      this.emptySpaces = emptySpaces;
+      int cellCount = rows*cols;
+      PlacementTable table = PlacementTable.get(rows, cols, pieces).withHoles(holes);  // Wiersze macierzy to pozycje, które nie zajmują dziur.
+      int rowCt = table.size();
+      rowCells = table.cellList;
+      rowPiece = table.piece;
+      chosen = new int[Math.max(1,piecesNeeded)];
+      solution = new int[cellCount];
+      firstCellColumn = table.pieceCount + 1;
+      int headerCt = firstCellColumn + cellCount;
+      int nodeCt = headerCt + (table.pieceSize+1)*rowCt;
+      L = new int[nodeCt];
+      R = new int[nodeCt];
+      U = new int[nodeCt];
+      D = new int[nodeCt];
+      C = new int[nodeCt];
+      S = new int[headerCt];
+      rowOf = new int[nodeCt];
+      for (int h = 0; h < headerCt; h++) {
+         U[h] = D[h] = C[h] = h;
+         L[h] = R[h] = h;  // Kolumny drugorzędne i kolumny dziur nie są na liście kolumn korzenia.
+      }
+      int last = 0;  // Ostatni nagłówek na liście korzenia.
+      if (piecesNeeded == table.pieceCount)
+         for (int h = 1; h <= table.pieceCount; h++)
+            last = linkHeader(last, h);
+      for (int cell = 0; cell < cellCount; cell++)
+         if (holes == null || !holes[cell])
+            last = linkHeader(last, firstCellColumn + cell);
+      R[last] = 0;
+      L[0] = last;
+      int node = headerCt;
+      for (int r = 0; r < rowCt; r++) {
+         int first = node;
+         appendNode(node++, first, rowPiece[r], r);  // Kolumna klocka.
+         for (int i = 0; i < table.pieceSize; i++)
+            appendNode(node++, first, firstCellColumn + rowCells[r][i], r);
+      }
+   }
+
+   private int linkHeader(int last, int h) { // Dodaje nagłówek h na koniec listy kolumn korzenia.
+      R[last] = h;
+      L[h] = last;
+      return h;
+   }
+
+   private void appendNode(int node, int first, int column, int row) { // Dodaje węzeł na dół kolumny i na koniec cyklicznej listy wiersza.
+      C[node] = column;
+      rowOf[node] = row;
+      U[node] = U[column];
+      D[node] = column;
+      D[U[column]] = node;
+      U[column] = node;
+      S[column]++;
+      if (node == first)
+         L[node] = R[node] = node;
+      else {
+         L[node] = L[first];
+         R[node] = first;
+         R[L[first]] = node;
+         L[first] = node;
+      }
+   }
+
+   public void setListener(PentominoSolver.Listener listener) {
+      this.listener = listener;
+   }
+
+   /**
+    * Jeśli symmetry nie jest null, rozwiązania, które są obrotem lub odbiciem innego rozwiązania, nie są liczone
+    * ani zgłaszane obserwatorowi; patrz PentominoSolver.setSymmetry().
+    */
+   public void setSymmetry(SymmetryGroup symmetry) {
+      this.symmetry = symmetry;
+   }
+
+   /**
+    * Prosi o przerwanie trwającego wyszukiwania. Może być wywoływane z dowolnego wątku.
+    */
+   public void abort() {
+      abortRequested = true;
+   }
+
+   /**
+    * Przeszukuje wszystkie rozwiązania i zwraca ich liczbę. Po zakończeniu (także po przerwaniu)
+    * macierz jest przywrócona do stanu początkowego, więc solve() można wywołać ponownie.
+    */
+   public long solve() {
+      nodeCount = 0;
+      solutionCount = 0;
+      aborted = false;
+      abortRequested = false;
+      search(0, 0);
+      return solutionCount;
+   }
+
+   public long getNodeCount() {
+      return nodeCount;
+   }
+
+   public long getSolutionCount() {
+      return solutionCount;
+   }
+
+   public boolean wasAborted() {
+      return aborted;
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   private void search(int depth, int squaresLeftEmpty) {
+      if (depth == piecesNeeded) {  // Znaleziono rozwiązanie
+         if (symmetry != null && !isCanonical())
+            return;  // Obraz innego rozwiązania.
+         solutionCount++;
+         if (listener != null && !listener.solutionFound(solutionCount))
+            aborted = true;
+         return;
+      }
+      boolean canLeaveEmpty = squaresLeftEmpty < emptySpaces;
+      int best = -1;
+      int bestOptions = Integer.MAX_VALUE;
+      for (int c = R[0]; c != 0; c = R[c]) {  // Wybierz kolumnę z najmniejszą liczbą możliwości.
+         int options = S[c];
+         if (canLeaveEmpty && c >= firstCellColumn)
+            options++;  // Kwadrat można też zostawić pustym.
+         if (options < bestOptions) {
+            best = c;
+            bestOptions = options;
+            if (options <= 1)
+               break;
+         }
+      }
+      if (best < 0 || bestOptions == 0)
+         return;  // Ślepy zaułek.
+      cover(best);
+      for (int r = D[best]; r != best; r = D[r]) {
+         for (int j = R[r]; j != r; j = R[j])
+            cover(C[j]);
+         nodeCount++;
+         int row = rowOf[r];
+         chosen[depth] = row;
+         if (listener != null && !listener.piecePlaced(rowPiece[row], rowCells[row]))
+            aborted = true;
+         else {
+            search(depth + 1, squaresLeftEmpty);
+            if (!aborted && listener != null)
+               listener.pieceRemoved(rowPiece[row], rowCells[row]);
+            if (abortRequested)
+               aborted = true;
+         }
+         for (int j = L[r]; j != r; j = L[j])
+            uncover(C[j]);
+         if (aborted)
+            break;
+      }
+      if (!aborted && canLeaveEmpty && best >= firstCellColumn)
+         search(depth, squaresLeftEmpty + 1);  // Kolumna jest już zakryta, więc jej kwadrat zostaje pusty.
+      uncover(best);
+   }
+
+   /**
+    * Zwraca kopię rozwiązania, które właśnie zostało znalezione, w formacie PentominoSolver.getCurrentSolution().
+    * Może być wywoływane tylko wewnątrz Listener.solutionFound().
+    */
+   public int[] getCurrentSolution() {
+      fillSolution();
+      return solution.clone();
+   }
+
+   private void fillSolution() { // Wypełnia bufor solution wybranymi wierszami.
+      Arrays.fill(solution, 0);
+      for (int d = 0; d < piecesNeeded; d++) {
+         int[] cells = rowCells[chosen[d]];
+         for (int i = 0; i < cells.length; i++)
+            solution[cells[i]] = rowPiece[chosen[d]];
+      }
+   }
+
+   private boolean isCanonical() { // Sprawdza bieżące rozwiązanie w grupie symetrii.
+      fillSolution();
+      return symmetry.isCanonical(solution);
+   }
+
+   private void cover(int c) {
+      R[L[c]] = R[c];
+      L[R[c]] = L[c];
+      for (int i = D[c]; i != c; i = D[i])
+         for (int j = R[i]; j != i; j = R[j]) {
+            D[U[j]] = D[j];
+            U[D[j]] = U[j];
+            S[C[j]]--;
+         }
+   }
+
+   private void uncover(int c) {
+      for (int i = U[c]; i != c; i = U[i])
+         for (int j = L[i]; j != i; j = L[j]) {
+            S[C[j]]++;
+            D[U[j]] = j;
+            U[D[j]] = j;
+         }
+      R[L[c]] = c;
+      L[R[c]] = c;
+   }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Potrójny bufor klatek (stanów planszy jako tablic int) między jednym wątkiem piszącym a jednym czytającym, bez blokad.
+ * Piszący kopiuje swój bieżący stan do bufora "tylnego" i wymienia go z buforem "środkowym"; czytający wymienia
+ * swój bufor "przedni" ze środkowym, jeśli jest w nim nowa klatka. Żaden wątek nigdy nie czeka na drugi,
+ * a czytający zawsze dostaje najnowszą opublikowaną klatkę (pośrednie klatki są pomijane).
+ */
+final class FrameBuffer {
+
+   private static final int FRESH = 4;  // Bit w middle: środkowy bufor zawiera klatkę, której czytający jeszcze nie widział.
+
+   private final int[][] buffers;
+   private final AtomicInteger middle = new AtomicInteger(2);  // Indeks bufora środkowego, z bitem FRESH.
+   private int back = 0;    // Indeks bufora piszącego; używany tylko przez piszącego.
+   private int front = 1;   // Indeks bufora czytającego; używany tylko przez czytającego.
+   private volatile boolean wanted = true;  // Czytający pobrał ostatnią klatkę i czeka na następną.
+
+   FrameBuffer(int size) {
+      buffers = new int[3][size];
+   }
+
+   /**
+    * Prawda, jeśli czytający pobrał już poprzednią klatkę; piszący może wtedy publikować tylko, gdy to potrzebne.
+    */
+   boolean isWanted() {
+      return wanted;
+   }
+
+   /**
+    * Publikuje kopię stanu state (tylko piszący).
+    */
+   void publish(int[] state) {
+      System.arraycopy(state, 0, buffers[back], 0, state.length);
+      wanted = false;
+      back = middle.getAndSet(back | FRESH) & ~FRESH;
+   }
+
+   /**
+    * Zwraca najnowszą klatkę albo null, jeśli od ostatniego wywołania nic nie zostało opublikowane (tylko czytający).
+    * Zwrócona tablica należy do czytającego aż do następnego wywołania.
+    */
+   int[] acquire() {
+      if ((middle.get() & FRESH) == 0)
+         return null;
+      front = middle.getAndSet(front) & ~FRESH;
+      wanted = true;
+      return buffers[front];
+   }
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Przegląd wszystkich rozmieszczeń dziur na planszy: dla każdego zbioru holeCount kwadratów, z dokładnością do symetrii planszy,
+ * liczy rozwiązania (różne z dokładnością do symetrii, jak opcja "Symmetry Check").
+ * <p>
+ * Zbiory dziur są numerowane w kolejności "obrotowych drzwi" (revolving door): kolejne zbiory różnią się przesunięciem
+ * jednej dziury. Każdy zbiór jest jednak rozwiązywany od zera: tablica pozycji (PlacementTable.withHoles) i grupa symetrii
+ * zależą od wszystkich dziur, a przesunięcie jednej dziury zmienia całe drzewo przeszukiwania, więc ponowne użycie pracy
+ * z poprzedniego zbioru się nie opłaca. Z każdej klasy symetrii rozwiązywany jest tylko zbiór kanoniczny (najmniejszy
+ * spośród swoich obrazów).
+ * Numery są dzielone na porcje, które wątki pobierają po kolei; wyniki porcji są dopisywane do pliku wyników razem ze
+ * znacznikiem ukończenia, więc przerwany przegląd uruchomiony ponownie z tym samym plikiem pomija ukończone porcje.
+ * Wyniki są też zapisywane w pamięci podręcznej wyników (ResultCache), jeśli została podana; nieudane zapisy do niej
+ * nie przerywają przeglądu, ale są liczone (getCacheWriteFailures).
+ * <p>
+ * Format pliku wyników: wiersz nagłówka "# sweep RxC holes=K chunk=N total=T", potem wiersze "kwadraty liczba_rozwiązań",
+ * na przykład "27,28,35,36 65", i po wynikach każdej porcji wiersz "#done numer_porcji".
+ */
+public class HoleSweep {
+
+   private final int rows, cols;     // Rozmiar planszy.
+   private final int cellCount;
+   private final int holeCount;      // Liczba dziur w każdym zbiorze.
+   private final int[][] pieces;     // Pozycje klocków (dwustronne).
+   private final int pieceSize;
+   private final int[][] images;     // images[g][cell]: obraz kwadratu w symetrii g planszy (bez identyczności).
+   private final long total;         // Liczba wszystkich zbiorów dziur, C(cellCount, holeCount).
+   private final long[][] binomial;  // binomial[n][k] = C(n,k), obcięte do Long.MAX_VALUE.
+   private int threads = Runtime.getRuntime().availableProcessors();
+   private int chunkSize = 1024;
+   private ResultCache cache;
+   private volatile boolean aborted;
+   private final AtomicLong cacheWriteFailures = new AtomicLong();  // Nieudane zapisy do cache w ostatnim wywołaniu run().
+
+   /**
+    * Przygotowuje przegląd dla planszy rows x cols i klocków pieces (w formacie PentominosPanel.piece_data).
+    * Jeśli holeCount jest ujemne, używana jest liczba kwadratów, które zostają po położeniu jak największej liczby klocków.
+    */
+   public HoleSweep(int rows, int cols, int[][] pieces, int holeCount) {
+      this.rows = rows;
+      this.cols = cols;
+      this.pieces = pieces;
+      cellCount = rows*cols;
+      pieceSize = PlacementTable.get(rows, cols, pieces).pieceSize;
+      int pieceCount = PlacementTable.get(rows, cols, pieces).pieceCount;
+      if (holeCount < 0)
+         holeCount = cellCount - pieceSize*Math.min(pieceCount, cellCount/pieceSize);
+      if (holeCount > cellCount)
+         throw new IllegalArgumentException("More holes than squares.");
+      this.holeCount = holeCount;
+      binomial = new long[cellCount + 1][holeCount + 1];
+      for (int n = 0; n <= cellCount; n++) {
+         binomial[n][0] = 1;
+         for (int k = 1; k <= holeCount && k <= n; k++) {
+            long sum = binomial[n-1][k-1] + binomial[n-1][k];
+            binomial[n][k] = (sum < 0)? Long.MAX_VALUE : sum;
+         }
+      }
+      total = binomial[cellCount][holeCount];
+      if (total == Long.MAX_VALUE)
+         throw new IllegalArgumentException("Too many hole sets to enumerate.");
+      ArrayList<int[]> list = new ArrayList<int[]>();
+      for (int g = 1; g < 8; g++) {
+         boolean swapsAxes = g == 1 || g == 3 || g == 6 || g == 7;
+         if (swapsAxes && rows != cols)
+            continue;
+         int[] image = new int[cellCount];
+         for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++) {
+               int r, c;
+               switch (g) {  // Jak w SymmetryGroup.
+                  case 1:  r = col;          c = rows-1-row;  break;
+                  case 2:  r = rows-1-row;   c = cols-1-col;  break;
+                  case 3:  r = cols-1-col;   c = row;         break;
+                  case 4:  r = row;          c = cols-1-col;  break;
+                  case 5:  r = rows-1-row;   c = col;         break;
+                  case 6:  r = col;          c = row;         break;
+                  default: r = cols-1-col;   c = rows-1-row;
+               }
+               image[row*cols + col] = r*cols + c;
+            }
+         list.add(image);
+      }
+      images = list.toArray(new int[list.size()][]);
+   }
+
+   public void setThreads(int threads) {
+      this.threads = Math.max(1, threads);
+   }
+
+   /**
+    * Liczba kolejnych zbiorów dziur w jednej porcji (jednostka pracy wątku i punktu kontrolnego).
+    */
+   public void setChunkSize(int chunkSize) {
+      this.chunkSize = Math.max(1, chunkSize);
+   }
+
+   /**
+    * Pamięć podręczna wyników, sprawdzana przed każdym wyszukiwaniem i uzupełniana po nim. Może być null.
+    */
+   public void setCache(ResultCache cache) {
+      this.cache = cache;
+   }
+
+   /**
+    * Przerywa przegląd; run() kończy się po ukończeniu bieżących porcji.
+    */
+   public void abort() {
+      aborted = true;
+   }
+
+   /**
+    * Liczba wyników, których nie udało się zapisać w pamięci podręcznej podczas ostatniego wywołania run().
+    */
+   public long getCacheWriteFailures() {
+      return cacheWriteFailures.get();
+   }
+
+   /**
+    * Liczba wszystkich zbiorów dziur (przed usunięciem symetrycznych).
+    */
+   public long getTotal() {
+      return total;
+   }
+
+   /**
+    * Zwraca zbiór dziur o numerze rank w kolejności "obrotowych drzwi" (rosnące numery kwadratów).
+    * Zbiory o numerach rank i rank+1 różnią się jednym kwadratem.
+    */
+   public int[] unrank(long rank) {
+      int[] holes = new int[holeCount];
+      int n = cellCount, k = holeCount;
+      while (k > 0) {  // R(n,k) to R(n-1,k), a po nim odwrócone R(n-1,k-1) z dodanym kwadratem n-1.
+         if (k <= n-1 && rank < binomial[n-1][k])
+            n--;
+         else {
+            rank = binomial[n][k] - 1 - rank;
+            n--;
+            k--;
+            holes[k] = n;
+         }
+      }
+      return holes;
+   }
+
+   private boolean isCanonical(int[] holes, int[] image) { // Czy żaden obraz zbioru holes nie jest od niego mniejszy?
+      for (int[] g : images) {
+         for (int i = 0; i < holes.length; i++)
+            image[i] = g[holes[i]];
+         java.util.Arrays.sort(image);
+         for (int i = 0; i < holes.length; i++)
+            if (image[i] != holes[i]) {
+               if (image[i] < holes[i])
+                  return false;
+               break;
+            }
+      }
+      return true;
+   }
+
+   private long count(int[] holes, int piecesNeeded, int emptySpaces) { // Liczba rozwiązań (z dokładnością do symetrii) dla zbioru dziur.
+      boolean[] holeArray = new boolean[cellCount];
+      for (int cell : holes)
+         holeArray[cell] = true;
+      ResultCache.Key key = null;
+      if (cache != null) {
+         key = ResultCache.Key.of(rows, cols, holeArray, pieces, true, 1, piecesNeeded, emptySpaces, true);
+         ResultCache.Entry cached = cache.get(key);
+         if (cached != null && cached.complete)
+            return cached.solutionCount;
+      }
+      SymmetryGroup symmetry = new SymmetryGroup(rows, cols, holeArray, true);
+      long count;
+      boolean complete;
+      if (cellCount <= PentominoSolver.MAX_CELLS) {
+         PentominoSolver solver = new PentominoSolver(rows, cols, pieces);
+         long holeMask = 0;
+         for (int cell : holes)
+            holeMask |= 1L << cell;
+         solver.setHoles(holeMask);
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setSymmetry(symmetry);
+         count = solver.solve();
+         complete = !solver.wasAborted();
+      }
+      else {
+         LargeBoardSolver solver = new LargeBoardSolver(rows, cols, pieces);
+         solver.setHoles(holeArray);
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setSymmetry(symmetry);
+         count = solver.solve();
+         complete = !solver.wasAborted();
+      }
+      if (cache != null && complete) {
+         try {
+            cache.put(key, count, true, null);
+         }
+         catch (IOException e) {
+            cacheWriteFailures.incrementAndGet();  // Wynik i tak trafia do pliku wyników; brak go tylko w pamięci podręcznej.
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Przeprowadza przegląd, dopisując wyniki do pliku output. Jeśli plik zawiera już wyniki tego samego przeglądu,
+    * ukończone porcje są pomijane, a niedokończony zapis po ostatnim znaczniku "#done" jest usuwany.
+    * Zwraca liczbę klas symetrii rozwiązanych w tym wywołaniu.
+    */
+   public long run(File output) throws IOException, InterruptedException {
+      final long chunkCount = (total + chunkSize - 1) / chunkSize;
+      cacheWriteFailures.set(0);
+      String header = "# sweep " + rows + "x" + cols + " holes=" + holeCount + " chunk=" + chunkSize + " total=" + total;
+      final BitSet done = new BitSet();
+      long keep = 0;  // Długość poprawnej części pliku.
+      if (output.exists() && output.length() > 0) {
+         try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(output), StandardCharsets.UTF_8))) {
+            String line = in.readLine();
+            if (!header.equals(line))
+               throw new IOException(output + " contains a different sweep: " + line);
+            long position = line.getBytes(StandardCharsets.UTF_8).length + 1;
+            keep = position;
+            while ((line = in.readLine()) != null) {
+               position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+               if (line.startsWith("#done ")) {
+                  done.set(Integer.parseInt(line.substring(6).trim()));
+                  keep = position;
+               }
+            }
+         }
+         try (RandomAccessFile raf = new RandomAccessFile(output, "rw")) {
+            raf.setLength(keep);  // Usuwa wyniki porcji, która nie została ukończona.
+         }
+      }
+      final Writer out = new OutputStreamWriter(new FileOutputStream(output, true), StandardCharsets.UTF_8);
+      if (keep == 0) {
+         out.write(header + "\n");
+         out.flush();
+      }
+      final int piecesNeeded = (cellCount - holeCount) / pieceSize;
+      final int emptySpaces = (cellCount - holeCount) % pieceSize;
+      final AtomicLong nextChunk = new AtomicLong();
+      final AtomicLong solved = new AtomicLong();
+      final IOException[] failure = new IOException[1];
+      Thread[] workers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+         workers[t] = new Thread("HoleSweep-" + t) {
+            public void run() {
+               int[] image = new int[holeCount];
+               StringBuilder results = new StringBuilder();
+               long chunk;
+               while (!aborted && (chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                  if (done.get((int)chunk))
+                     continue;
+                  results.setLength(0);
+                  long end = Math.min(total, (chunk + 1) * chunkSize);
+                  for (long rank = chunk * chunkSize; rank < end; rank++) {
+                     int[] holes = unrank(rank);
+                     if (!isCanonical(holes, image))
+                        continue;
+                     long count = count(holes, piecesNeeded, emptySpaces);
+                     for (int i = 0; i < holes.length; i++)
+                        results.append(i == 0? "" : ",").append(holes[i]);
+                     results.append(' ').append(count).append('\n');
+                     solved.incrementAndGet();
+                  }
+                  results.append("#done ").append(chunk).append('\n');
+                  synchronized (out) {
+                     try {
+                        out.write(results.toString());
+                        out.flush();
+                     }
+                     catch (IOException e) {
+                        failure[0] = e;
+                        aborted = true;
+                     }
+                  }
+               }
+            }
+         };
+         workers[t].start();
+      }
+      for (Thread worker : workers)
+         worker.join();
+      out.close();
+      if (failure[0] != null)
+         throw failure[0];
+      return solved.get();
+   }
+
+   /**
+    * Użycie: java com.mycompany.pentomimo.HoleSweep wiersze kolumny [-k dziury] [-t wątki] [-chunk N] [-nocache] plik_wyników
+    */
+   public static void main(String[] args) throws IOException, InterruptedException {
+      if (args.length < 3) {
+         System.err.println("Usage: HoleSweep rows cols [-k holes] [-t threads] [-chunk N] [-nocache] output");
+         System.exit(1);
+      }
+      int rows = Integer.parseInt(args[0]);
+      int cols = Integer.parseInt(args[1]);
+      int holeCount = -1, threads = Runtime.getRuntime().availableProcessors(), chunkSize = 1024;
+      boolean useCache = true;
+      String outputName = null;
+      for (int i = 2; i < args.length; i++) {
+         if (args[i].equals("-k") && i + 1 < args.length)
+            holeCount = Integer.parseInt(args[++i]);
+         else if (args[i].equals("-t") && i + 1 < args.length)
+            threads = Integer.parseInt(args[++i]);
+         else if (args[i].equals("-chunk") && i + 1 < args.length)
+            chunkSize = Integer.parseInt(args[++i]);
+         else if (args[i].equals("-nocache"))
+            useCache = false;
+         else
+            outputName = args[i];
+      }
+      HoleSweep sweep = new HoleSweep(rows, cols, PolyominoSet.pentominoes().getPieceData(), holeCount);
+      sweep.setThreads(threads);
+      sweep.setChunkSize(chunkSize);
+      ResultCache cache = useCache? ResultCache.getDefault() : null;
+      sweep.setCache(cache);
+      long startTime = System.nanoTime();
+      long solved = sweep.run(new File(outputName));
+      System.err.println(solved + " hole sets solved in " + (System.nanoTime() - startTime) / 1000000 + " ms.");
+      if (sweep.getCacheWriteFailures() > 0)
+         System.err.println("Warning: " + sweep.getCacheWriteFailures() + " results could not be written to the result cache.");
+      if (cache != null)
+         cache.close();
+   }
+
+}
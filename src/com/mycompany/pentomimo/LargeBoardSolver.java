@@ -0,0 +1,533 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.Arrays;
+
+/**
+ * Silnik dla plansz dowolnego rozmiaru i zestawów z wieloma egzemplarzami każdego klocka (na przykład dwa albo trzy
+ * pełne zestawy pentomino na planszy 120 albo 180 kwadratów). Przeszukiwanie jest takie samo jak w PentominoSolver
+ * (pierwszy pusty kwadrat, pozycje z PlacementTable zaczepione w nim), ale plansza jest tablicą słów long,
+ * a każda pozycja ma wcześniej obliczone maski słów, które zajmuje; ponieważ przeszukiwanie idzie wzdłuż krótszego boku,
+ * pozycja zajmuje zwykle jedno albo dwa słowa, więc sprawdzenie, czy pasuje, kosztuje tyle samo co w PentominoSolver.
+ * Zamiast tablicy użytych klocków silnik przechowuje liczbę pozostałych egzemplarzy każdego klocka.
+ * Sprawdzanie oczywistego blokowania szuka tylko małych zamkniętych obszarów wokół ostatnio położonego klocka;
+ * na planszach o wąskim boku wyszukiwania obszary są zalewane przesunięciami bitowymi w oknie 128 bitów.
+ * Klocki mogą mieć dowolną liczbę kwadratów i dowolne numery (patrz PolyominoSet).
+ */
+public class LargeBoardSolver {
+
+   private final int rows, cols;      // Rozmiar planszy.
+   private final int cellCount;       // rows*cols
+   private final boolean transposed;  // Prawda, jeśli cols > rows; wtedy table i words opisują planszę transponowaną.
+   private final int boardCols;       // Liczba kolumn planszy, na której odbywa się wyszukiwanie.
+   private final int pieceSize;       // Liczba kwadratów klocka.
+   private final int smallRegion;     // Obszary do tej wielkości (2*pieceSize-1) są sprawdzane przez checkForBlocks.
+   private final PlacementTable table;  // Wszystkie pozycje klocków, które mieszczą się na pustej (być może transponowanej) planszy.
+   private final int[] neighbors;     // neighbors[4*cell .. 4*cell+3] to sąsiedzi kwadratu na planszy wyszukiwania, -1 poza planszą.
+   private final boolean narrow;      // Prawda, jeśli okno pieceSize+smallRegion+1 wierszy mieści się w 128 bitach (patrz closesSmallRegionNarrow).
+   private final long firstColLo, firstColHi;  // Kwadraty w pierwszej i ostatniej kolumnie okna 128 bitów,
+   private final long lastColLo, lastColHi;    // które zaczyna się na początku wiersza.
+
+   private int[] start;          // Tablice pozycji dla bieżących dziur, pobrane z PlacementTable na początku solve().
+   private int[] piece;
+   private int[] cells;          // Kwadraty pozycji na planszy wyszukiwania.
+   private int[] lastCell;       // Największy numer kwadratu pozycji i.
+   private int[] firstWord;      // Numer pierwszego słowa, które zajmuje pozycja i,
+   private int[] maskStart;      // a jej maski słów to wordMasks[maskStart[i]] .. wordMasks[maskStart[i+1]-1].
+   private long[] wordMasks;
+   private int[][] cellList;     // Kwadraty pozycji w numeracji oryginalnej planszy, dla obserwatora i rozwiązań.
+
+   private long[] words;         // Zajęte kwadraty; bity za końcem planszy są ustawione, a ostatnie słowo jest zawsze puste (wartownik).
+   private boolean[] holes;      // Kwadraty, które muszą pozostać puste, na planszy wyszukiwania; może być null.
+   private int[] copies;         // copies[p] to liczba egzemplarzy klocka numer p.
+   private int[] remaining;      // Liczba egzemplarzy każdego klocka, które nie są jeszcze na planszy.
+   private int piecesNeeded;     // Liczba klocków w kompletnym rozwiązaniu.
+   private int emptySpaces;      // Ile kwadratów (poza holes) może pozostać pustych w rozwiązaniu.
+   private boolean piecesNeededSet;  // Prawda po setPiecesNeeded(); wtedy setHoles() i setCopies() nie zmieniają piecesNeeded i emptySpaces.
+   private boolean checkForBlocks;  // Jeśli true, odrzucane są pozycje, które zamykają zbyt mały obszar.
+   private SymmetryGroup symmetry;  // Jeśli nie null, liczone są tylko rozwiązania w postaci kanonicznej.
+   private int[] stack;          // stack[d] to numer pozycji położonej na głębokości d.
+   private int[] solution;       // Bufor na bieżące rozwiązanie.
+   private int[] instance;       // Numer egzemplarza (głębokość+1) w każdym kwadracie; tylko gdy któryś klocek ma kilka egzemplarzy.
+   private int[] instanceWork;   // Robocza tablica dla SymmetryGroup.isCanonical(solution, instance, work).
+
+   private int[] mark;           // Znaczniki odwiedzonych kwadratów dla sprawdzania blokowania.
+   private int markCt;           // Znacznik kwadratów małych obszarów; markCt+1 oznacza kwadraty dużego obszaru.
+   private int[] queue;          // Kolejka zalewania obszaru.
+   private int horizon;          // Największy zajęty kwadrat (klocek, dziura albo kwadrat zostawiony pusty); wszystkie dalsze są wolne.
+   private int openFrom;         // Kwadraty od tego numeru należą na pewno do dużego obszaru; cellCount, jeśli nie wiadomo.
+
+   private PentominoSolver.Listener listener;  // Obserwator, może być null.
+
+   private volatile boolean abortRequested;  // Ustawiane przez abort(), z dowolnego wątku.
+   private boolean aborted;      // Prawda, jeśli ostatnie wyszukiwanie zostało przerwane.
+   private long nodeCount;       // Liczba położonych klocków.
+   private long solutionCount;   // Liczba znalezionych rozwiązań.
+
+   /**
+    * Tworzy silnik dla planszy o podanym rozmiarze, który używa podanych pozycji klocków
+    * (w formacie PentominosPanel.piece_data). Domyślnie każdy klocek ma jeden egzemplarz.
+    */
+   public LargeBoardSolver(int rows, int cols, int[][] pieces) {
+      if (rows <= 0 || cols <= 0)
+         throw new IllegalArgumentException("Board must have at least one square.");
+      this.rows = rows;
+      this.cols = cols;
+      this.cellCount = rows*cols;
+      transposed = cols > rows;
+      if (transposed)
+         table = PlacementTable.get(cols, rows, PlacementTable.transpose(pieces));
+      else
+         table = PlacementTable.get(rows, cols, pieces);
+      boardCols = table.cols;
+      neighbors = new int[4*cellCount];
+      for (int cell = 0; cell < cellCount; cell++) {
+         int row = cell / boardCols;
+         int col = cell % boardCols;
+         neighbors[4*cell] = (col > 0)? cell - 1 : -1;
+         neighbors[4*cell+1] = (col < boardCols - 1)? cell + 1 : -1;
+         neighbors[4*cell+2] = (row > 0)? cell - boardCols : -1;
+         neighbors[4*cell+3] = (cell + boardCols < cellCount)? cell + boardCols : -1;
+      }
+      pieceSize = table.pieceSize;
+      smallRegion = 2*pieceSize - 1;
+      narrow = (pieceSize + smallRegion + 1)*boardCols <= 128;
+      long[] first = new long[2], last = new long[2];
+      for (int b = 0; b < 128; b++) {
+         if (b % boardCols == 0)
+            first[b >>> 6] |= 1L << b;
+         if (b % boardCols == boardCols - 1)
+            last[b >>> 6] |= 1L << b;
+      }
+      firstColLo = first[0];
+      firstColHi = first[1];
+      lastColLo = last[0];
+      lastColHi = last[1];
+      copies = new int[table.pieceCount + 1];
+      for (int p = 1; p <= table.pieceCount; p++)
+         copies[p] = 1;
+      defaultPiecesNeeded();
+   }
+
+   private void defaultPiecesNeeded() { // Domyślnie: tyle klocków, ile zmieści się na kwadratach poza holes; reszta zostaje pusta.
+      int freeCells = cellCount;
+      if (holes != null)
+         for (int cell = 0; cell < cellCount; cell++)
+            if (holes[cell])
+               freeCells--;
+      int available = 0;
+      for (int p = 1; p < copies.length; p++)
+         available += copies[p];
+      piecesNeeded = Math.min(available, freeCells/pieceSize);
+      emptySpaces = freeCells - pieceSize*piecesNeeded;
+   }
+
+   /**
+    * Ustawia kwadraty, które muszą pozostać puste. holes[row*cols+col] odpowiada kwadratowi (row,col); może być null.
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa dla pozostałych kwadratów.
+    */
+   public void setHoles(boolean[] holes) {
+      if (holes == null)
+         this.holes = null;
+      else {
+         this.holes = new boolean[cellCount];
+         for (int cell = 0; cell < cellCount; cell++)
+            this.holes[cell] = holes[toBoard(cell)];
+      }
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   private int toBoard(int cell) { // Numer kwadratu oryginalnej planszy dla kwadratu cell planszy, na której odbywa się wyszukiwanie.
+      return transposed? (cell % rows)*cols + cell / rows : cell;
+   }
+
+   /**
+    * Ustawia liczbę klocków w kompletnym rozwiązaniu oraz liczbę dodatkowych kwadratów (poza holes), które mogą pozostać puste.
+    */
+   public void setPiecesNeeded(int piecesNeeded, int emptySpaces) {
+      this.piecesNeeded = piecesNeeded;
+      this.emptySpaces = emptySpaces;
+      piecesNeededSet = true;
+   }
+
+   /**
+    * Ustawia liczbę egzemplarzy każdego klocka (na przykład 2 dla dwóch pełnych zestawów).
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa.
+    */
+   public void setCopies(int copiesOfEachPiece) {
+      if (copiesOfEachPiece < 0)
+         throw new IllegalArgumentException("Number of copies cannot be negative.");
+      for (int p = 1; p < copies.length; p++)
+         copies[p] = copiesOfEachPiece;
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   /**
+    * Ustawia liczbę egzemplarzy każdego klocka osobno; copies[p] dotyczy klocka numer p (od 1), copies[0] jest pomijane.
+    */
+   public void setCopies(int[] copies) {
+      for (int p = 1; p < this.copies.length; p++) {
+         int ct = (p < copies.length)? copies[p] : 0;
+         if (ct < 0)
+            throw new IllegalArgumentException("Number of copies cannot be negative.");
+         this.copies[p] = ct;
+      }
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   public void setCheckForBlocks(boolean checkForBlocks) {
+      this.checkForBlocks = checkForBlocks;
+   }
+
+   /**
+    * Jeśli symmetry nie jest null, rozwiązania, które są obrotem lub odbiciem innego rozwiązania, nie są liczone
+    * ani zgłaszane obserwatorowi; patrz PentominoSolver.setSymmetry().
+    */
+   public void setSymmetry(SymmetryGroup symmetry) {
+      this.symmetry = symmetry;
+   }
+
+   public void setListener(PentominoSolver.Listener listener) {
+      this.listener = listener;
+   }
+
+   /**
+    * Prosi o przerwanie trwającego wyszukiwania. Może być wywoływane z dowolnego wątku.
+    */
+   public void abort() {
+      abortRequested = true;
+   }
+
+   /**
+    * Przeszukuje wszystkie rozwiązania i zwraca ich liczbę. Jeśli wyszukiwanie zostało przerwane,
+    * zwracana jest liczba rozwiązań znalezionych do tej pory.
+    */
+   public long solve() {
+      nodeCount = 0;
+      solutionCount = 0;
+      aborted = false;
+      abortRequested = false;
+      PlacementTable t = table.withHoles(holes);  // Tylko pozycje, które nie zajmują dziur.
+      start = t.start;
+      piece = t.piece;
+      cells = t.cells;
+      makeWordMasks(t.size());
+      cellList = t.cellList;
+      if (transposed) {
+         cellList = new int[t.size()][];
+         for (int i = 0; i < cellList.length; i++) {
+            cellList[i] = new int[pieceSize];
+            for (int j = 0; j < pieceSize; j++)
+               cellList[i][j] = toBoard(cells[pieceSize*i+j]);
+         }
+      }
+      int wordCt = (cellCount + 63) / 64;
+      words = new long[wordCt + 1];
+      if (cellCount % 64 != 0)
+         words[wordCt-1] = -1L << (cellCount % 64);  // Kwadraty za końcem planszy.
+      horizon = -1;
+      for (int cell = 0; cell < cellCount; cell++)
+         if (holes != null && holes[cell]) {
+            words[cell >>> 6] |= 1L << cell;
+            horizon = cell;
+         }
+      remaining = copies.clone();
+      stack = new int[Math.max(1,piecesNeeded)];
+      solution = new int[cellCount];
+      instance = null;
+      for (int p = 1; p < copies.length; p++)
+         if (copies[p] > 1 && symmetry != null) {  // Numery klocków nie wyznaczają wtedy ułożenia.
+            instance = new int[cellCount];
+            instanceWork = new int[2*(piecesNeeded + 1)];
+            break;
+         }
+      mark = new int[cellCount];
+      markCt = 0;
+      queue = new int[smallRegion + 1];
+      play(0, 0, 0);
+      return solutionCount;
+   }
+
+   private void makeWordMasks(int ct) { // Oblicza maski słów dla każdej pozycji.
+      lastCell = new int[ct];
+      firstWord = new int[ct];
+      maskStart = new int[ct+1];
+      long[] found = new long[2*ct];
+      int n = pieceSize;
+      int k = 0;
+      for (int i = 0; i < ct; i++) {
+         int first = cells[n*i] >>> 6;
+         int last = first;
+         for (int j = n*i; j < n*i+n; j++) {
+            last = Math.max(last, cells[j] >>> 6);
+            lastCell[i] = Math.max(lastCell[i], cells[j]);
+         }
+         if (k + last - first + 1 > found.length)
+            found = Arrays.copyOf(found, 2*found.length + 8);
+         firstWord[i] = first;
+         maskStart[i] = k;
+         for (int j = n*i; j < n*i+n; j++)
+            found[k + (cells[j] >>> 6) - first] |= 1L << cells[j];
+         k += last - first + 1;
+      }
+      maskStart[ct] = k;
+      wordMasks = Arrays.copyOf(found, k);
+   }
+
+   public long getNodeCount() {
+      return nodeCount;
+   }
+
+   public long getSolutionCount() {
+      return solutionCount;
+   }
+
+   public boolean wasAborted() {
+      return aborted;
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   /**
+    * Zwraca kopię rozwiązania, które właśnie zostało znalezione, w formacie PentominoSolver.getCurrentSolution().
+    * Może być wywoływane tylko wewnątrz Listener.solutionFound().
+    */
+   public int[] getCurrentSolution() {
+      fillSolution();
+      return solution.clone();
+   }
+
+   private void fillSolution() { // Wypełnia bufor solution pozycjami ze stosu.
+      Arrays.fill(solution, 0);
+      for (int d = 0; d < piecesNeeded; d++) {
+         int[] c = cellList[stack[d]];
+         for (int j = 0; j < c.length; j++)
+            solution[c[j]] = piece[stack[d]];
+      }
+   }
+
+   private int nextEmpty(int cell) { // Pierwszy pusty kwadrat, zaczynając od cell; cellCount, jeśli takiego nie ma.
+      int w = cell >>> 6;
+      long free = ~words[w] & (-1L << cell);
+      while (free == 0)
+         free = ~words[++w];  // Ostatnie słowo jest puste, więc pętla zawsze się kończy.
+      return Math.min(cellCount, (w << 6) + Long.numberOfTrailingZeros(free));
+   }
+
+   private void play(int cell, int numused, int squaresLeftEmpty) { // Rekurencyjna procedura wyszukiwania, odpowiednik PentominoSolver.play().
+      cell = nextEmpty(cell);
+      if (cell == cellCount)
+         return;  // Przekroczyliśmy koniec planszy.
+      int end = start[cell+1];
+      for (int i = start[cell]; i < end; i++) {  // Tylko pozycje zaczepione w tym kwadracie.
+         int p = piece[i];
+         if (remaining[p] == 0)
+            continue;
+         int w = firstWord[i];
+         int m = maskStart[i];
+         int mEnd = maskStart[i+1];
+         boolean fits = true;
+         for (int k = m; k < mEnd; k++)
+            if ((words[w + k - m] & wordMasks[k]) != 0) {
+               fits = false;
+               break;
+            }
+         if (!fits)
+            continue;
+         for (int k = m; k < mEnd; k++)
+            words[w + k - m] |= wordMasks[k];
+         int oldHorizon = horizon;
+         horizon = Math.max(horizon, lastCell[i]);
+         if (!checkForBlocks || !(narrow? closesSmallRegionNarrow(i, emptySpaces - squaresLeftEmpty) : closesSmallRegion(i, emptySpaces - squaresLeftEmpty))) {
+            remaining[p]--;
+            stack[numused] = i;
+            nodeCount++;
+            if (listener != null && !listener.piecePlaced(p, cellList[i]))
+               aborted = true;
+            else if (numused + 1 == piecesNeeded) {  // Znaleziono rozwiązanie
+               if (symmetry == null || isCanonical()) {
+                  solutionCount++;
+                  if (listener != null && !listener.solutionFound(solutionCount))
+                     aborted = true;
+               }
+            }
+            else
+               play(cell + 1, numused + 1, squaresLeftEmpty);
+            if (!aborted && listener != null)
+               listener.pieceRemoved(p, cellList[i]);
+            remaining[p]++;
+         }
+         horizon = oldHorizon;
+         for (int k = m; k < mEnd; k++)
+            words[w + k - m] &= ~wordMasks[k];
+         if (abortRequested)
+            aborted = true;
+         if (aborted)
+            return;
+      }
+      // Nie można położyć klocka na tym kwadracie, ale być może można go zostawić pustym.
+      if (squaresLeftEmpty < emptySpaces) {
+         int oldHorizon = horizon;
+         horizon = Math.max(horizon, cell);
+         words[cell >>> 6] |= 1L << cell;
+         play(cell + 1, numused, squaresLeftEmpty + 1);
+         words[cell >>> 6] &= ~(1L << cell);
+         horizon = oldHorizon;
+      }
+   }
+
+   private boolean isCanonical() {
+      fillSolution();
+      if (instance != null) {
+         Arrays.fill(instance, 0);
+         for (int d = 0; d < piecesNeeded; d++)
+            for (int c : cellList[stack[d]])
+               instance[c] = d + 1;
+         return symmetry.isCanonical(solution, instance, instanceWork);
+      }
+      return symmetry.isCanonical(solution);
+   }
+
+   private boolean isEmpty(int cell) {
+      return (words[cell >>> 6] & (1L << cell)) == 0;
+   }
+
+   /**
+    * Sprawdza puste kwadraty sąsiadujące z pozycją i (już położoną): jeśli któryś z nich należy do zamkniętego obszaru
+    * o co najwyżej smallRegion kwadratach, reszta z dzielenia rozmiaru obszaru przez rozmiar klocka musi pozostać pusta.
+    * Zwraca true, jeśli takich kwadratów jest więcej niż emptyAllowed.
+    * Kwadraty za horizon tworzą spójny pas wolnych kwadratów (wiersze planszy są wypełniane po kolei), więc jeśli ten pas
+    * ma więcej niż smallRegion kwadratów, zalewanie kończy się, gdy tylko do niego dotrze.
+    */
+   private boolean closesSmallRegion(int i, int emptyAllowed) {
+      int forced = 0;
+      openFrom = (cellCount - 1 - horizon > smallRegion)? horizon + 1 : cellCount;
+      if (markCt > Integer.MAX_VALUE - 4) {
+         Arrays.fill(mark, 0);
+         markCt = 0;
+      }
+      markCt += 2;
+      for (int j = pieceSize*i; j < pieceSize*i+pieceSize; j++) {
+         int base = 4*cells[j];
+         for (int k = base; k < base + 4; k++) {
+            int n = neighbors[k];
+            if (n >= 0)
+               forced += smallRegionRemainder(n);
+         }
+         if (forced > emptyAllowed)
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * To samo co closesSmallRegion, ale obszary są zalewane przesunięciami bitowymi w oknie 128 bitów, które zaczyna się
+    * na początku wiersza kwadratu zaczepienia pozycji i. Wszystkie wcześniejsze kwadraty są zajęte, mały obszar leży
+    * najwyżej smallRegion-1 kroków od sąsiada klocka, a obszar, który dochodzi do ostatniego wiersza okna, ma już więcej
+    * niż smallRegion kwadratów; dlatego przycięcie planszy do okna nie zmienia wyniku.
+    */
+   private boolean closesSmallRegionNarrow(int i, int emptyAllowed) {
+      int n = pieceSize;
+      int c = boardCols;
+      int base = cells[n*i] / c * c;
+      long emptyLo = ~boardBits(base), emptyHi = ~boardBits(base + 64);
+      long lo = 0, hi = 0;
+      for (int j = n*i; j < n*i+n; j++) {
+         int b = cells[j] - base;
+         if (b < 64)
+            lo |= 1L << b;
+         else
+            hi |= 1L << b;
+      }
+      long seedsLo = (((lo & ~lastColLo) << 1) | ((lo & ~firstColLo) >>> 1) | ((hi & ~firstColHi) << 63)
+            | (lo << c) | (lo >>> c) | (hi << (64 - c))) & emptyLo;
+      long seedsHi = (((hi & ~lastColHi) << 1) | ((lo & ~lastColLo) >>> 63) | ((hi & ~firstColHi) >>> 1)
+            | (hi << c) | (lo >>> (64 - c)) | (hi >>> c)) & emptyHi;
+      int forced = 0;
+      while ((seedsLo | seedsHi) != 0) {
+         lo = seedsLo & -seedsLo;
+         hi = (lo == 0)? seedsHi & -seedsHi : 0;
+         int size = 1;
+         while (size <= smallRegion) {
+            long grownLo = (lo | ((lo & ~lastColLo) << 1) | ((lo & ~firstColLo) >>> 1) | ((hi & ~firstColHi) << 63)
+                  | (lo << c) | (lo >>> c) | (hi << (64 - c))) & emptyLo;
+            long grownHi = (hi | ((hi & ~lastColHi) << 1) | ((lo & ~lastColLo) >>> 63) | ((hi & ~firstColHi) >>> 1)
+                  | (hi << c) | (lo >>> (64 - c)) | (hi >>> c)) & emptyHi;
+            int grownSize = Long.bitCount(grownLo) + Long.bitCount(grownHi);
+            if (grownSize == size)
+               break;
+            lo = grownLo;
+            hi = grownHi;
+            size = grownSize;
+         }
+         seedsLo &= ~lo;
+         seedsHi &= ~hi;
+         if (size <= smallRegion) {
+            forced += size % n;
+            if (forced > emptyAllowed)
+               return true;
+         }
+      }
+      return false;
+   }
+
+   private long boardBits(int b) { // Kwadraty b .. b+63 planszy wyszukiwania; kwadraty za końcem planszy są zajęte.
+      int w = b >>> 6;
+      int s = b & 63;
+      long bits = wordAt(w) >>> s;
+      if (s != 0)
+         bits |= wordAt(w + 1) << (64 - s);
+      return bits;
+   }
+
+   private long wordAt(int w) {
+      return (w < words.length - 1)? words[w] : -1L;  // Wartownik i dalsze słowa leżą za końcem planszy.
+   }
+
+   private int smallRegionRemainder(int seed) { // Zalewa obszar od seed; zwraca resztę z dzielenia rozmiaru przez rozmiar klocka, jeśli obszar jest mały i jeszcze nie był liczony.
+      if (seed >= openFrom || !isEmpty(seed) || mark[seed] == markCt || mark[seed] == markCt + 1)
+         return 0;
+      int size = 0;
+      int head = 0;
+      mark[seed] = markCt;
+      queue[size++] = seed;
+      boolean small = true;
+      while (small && head < size) {
+         int base = 4*queue[head++];
+         for (int k = base; k < base + 4; k++) {
+            int n = neighbors[k];
+            if (n < 0 || !isEmpty(n) || mark[n] == markCt)
+               continue;
+            if (size == smallRegion || n >= openFrom || mark[n] == markCt + 1) {
+               small = false;  // Obszar jest duży (albo styka się z już zalanym dużym obszarem); nie zalewaj dalej.
+               break;
+            }
+            mark[n] = markCt;
+            queue[size++] = n;
+         }
+      }
+      if (small)
+         return size % pieceSize;
+      for (int k = 0; k < size; k++)
+         mark[queue[k]] = markCt + 1;  // Przerwane zalewanie: zapamiętaj, że te kwadraty należą do dużego obszaru.
+      return 0;
+   }
+
+}
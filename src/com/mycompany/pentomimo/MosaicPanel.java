@@ -12,6 +12,8 @@ package com.mycompany.pentomimo;
 import java.awt.*;
 import javax.swing.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 /**
 
@@ -20,6 +22,11 @@ i kolumny kolorowych prostokątów. Pomiędzy prostokątami może być "spoina".
 (Spoina jest rysowana jako jednopikselowy kontur wokół każdego prostokąta.)
 Prostokąty są rysowane jako wypukłe prostokąty w stylu 3D. Udostępnione są
 metody do pobierania i ustawiania kolorów prostokątów.
+
+Kolory są przechowywane jako indeksy w palecie (jedna płaska tablica int dla całej siatki),
+więc ustawianie kolorów nie tworzy obiektów Color. Zmienione prostokąty są oznaczane w mapie bitowej
+i rysowane razem w paintComponent; wszystkie zmiany z jednej klatki zdarzeń EDT dają jedno
+wywołanie repaint z jednym prostokątem obcinania.
 */
 public class MosaicPanel extends JPanel {
    private int rows;       // Liczba wierszy prostokątów w siatce.
@@ -29,12 +36,49 @@ public class MosaicPanel extends JPanel {
    private Color groutingColor;  // Kolor dla konturu między prostokątami. Jeśli jest to null, to nie jest rysowany.
    private boolean alwaysDrawGrouting;  // Kontur jest rysowana wokół prostokątów domyślnie kolorowanych, jeśli ta wartość jest prawdziwa.
    private boolean autopaint = true;  // Jeśli prawda, to gdy kolor kwadratu zostanie ustawiony, repaint jest wywoływane automatycznie.
-   private Color[][] grid; // Tablica zawierająca kolory prostokątów.
-// Jeśli wystąpi null w tej tablicy, prostokąt jest rysowany w domyślnym kolorze,
+   private int[] cells;    // Kolor prostokąta w wierszu row i kolumnie col to palette[cells[row*columns + col]].
+// Indeks 0 oznacza null: prostokąt jest rysowany w domyślnym kolorze,
 // kontur będzie rysowana tylko wokół tego prostokąta, jeśli alwaysDrawGrouting jest prawdziwe.
 // Ponadto, prostokąt jest rysowany jako płaski prostokąt, a nie jako prostokąt 3D.
+   private Color[] palette;   // Kolory używane w siatce; palette[0] to zawsze null. Każdy kolor (ARGB) występuje tylko raz.
+   private int paletteSize;   // Liczba zajętych elementów palette.
+   private int[] hashKeys;    // Tablica mieszająca z adresowaniem otwartym: kolor ARGB -> indeks w palecie
+   private int[] hashSlots;   //    (hashSlots[i] == 0 oznacza wolne miejsce).
+   private int hashShift;     // 32 minus log2 rozmiaru tablicy mieszającej.
+   private long[] dirty;      // Bit row*columns+col: prostokąt zmienił się i nie został jeszcze narysowany w OSI.
+   private int dirtyTop, dirtyLeft, dirtyBottom, dirtyRight;  // Wiersze i kolumny zmian, dla których nie wywołano
+// jeszcze repaint; dirtyTop > dirtyBottom, jeśli nie ma takich zmian.
+   private boolean repaintPending;  // repaintDirty czeka w kolejce zdarzeń.
+   private final transient Object lock = new Object();  // Chroni siatkę, paletę i mapę bitową zmian, bo kolory mogą być ustawiane spoza EDT.
+   private final transient Runnable repaintDirty = new Runnable() { // Raz na klatkę zdarzeń: jedno repaint dla wszystkich zmian.
+      public void run() {
+         int x, y, w, h;
+         synchronized (lock) {
+            repaintPending = false;
+            if (dirtyTop > dirtyBottom)
+               return;
+            layoutGrid();
+            x = colX[dirtyLeft];
+            y = rowY[dirtyTop];
+            w = Math.max(1, colX[dirtyRight+1] - x);
+            h = Math.max(1, rowY[dirtyBottom+1] - y);
+            dirtyTop = Integer.MAX_VALUE;
+            dirtyBottom = -1;
+         }
+         repaint(x,y,w,h);
+      }
+   };
    private BufferedImage OSI;  // Mozaika jest właściwie rysowana tutaj, a następnie obraz jest kopiowany na ekran.
-   private boolean needsRedraw;   // Mozaika jest właściwie rysowana tutaj, a następnie obraz jest kopiowany na ekran.
+   private int[] pixels;       // Piksele OSI (jego DataBufferInt), wiersz po wierszu; prostokąty są do nich kopiowane bezpośrednio.
+   private boolean needsRedraw;   // Jeśli prawda, to cały OSI musi zostać narysowany od nowa.
+   private final Insets insets = new Insets(0,0,0,0);  // Ponownie używane przez layoutGrid(), aby nie tworzyć obiektów.
+   private final Insets layoutInsets = new Insets(-1,-1,-1,-1);  // Rozmiar panelu, obramowania i siatki, dla których
+   private int layoutWidth, layoutHeight, layoutRows, layoutColumns; //   obliczono colX i rowY.
+   private int[] colX, rowY;   // Lewa krawędź kolumny c to colX[c], górna krawędź wiersza r to rowY[r]; colX[columns] i rowY[rows]
+// to prawa i dolna krawędź siatki. Obliczane przez layoutGrid() tylko po zmianie rozmiaru.
+   private int tileWidth, tileHeight;  // Najmniejsza szerokość i wysokość prostokąta; pozostałe są większe o najwyżej 1 piksel.
+   private int[][] sprites;    // sprites[4*index + 2*(h-tileHeight) + (w-tileWidth)]: piksele prostokąta w kolorze palette[index]
+// o wymiarach w na h, narysowane raz przez renderTile; null, jeśli jeszcze nie był potrzebny.
    /**
 Konstruktor klasy MosaicPanel tworzy obiekt z 42 wierszami i 42 kolumnami prostokątów,
 oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
@@ -78,7 +122,11 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    public MosaicPanel(int rows, int columns, int preferredBlockWidth, int preferredBlockHeight, Color borderColor, int borderWidth) {
       this.rows = rows;
       this.columns = columns;
-      grid = new Color[rows][columns];
+      cells = new int[rows*columns];
+      dirty = new long[(rows*columns + 63) >>> 6];
+      dirtyTop = Integer.MAX_VALUE;
+      dirtyBottom = -1;
+      resetPalette();
       defaultColor = Color.black;
       groutingColor = Color.gray;
       alwaysDrawGrouting = false;
@@ -107,6 +155,7 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
       if (! c.equals(defaultColor)) {
          defaultColor = c;
          setBackground(c);
+         clearSprites();
          forceRedraw();
       }
    }
@@ -128,6 +177,7 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    public void setGroutingColor(Color c) {
       if (c == null || ! c.equals(groutingColor)) {
          groutingColor = c;
+         clearSprites();
          forceRedraw();
       }
    }
@@ -149,6 +199,7 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    public void setAlwaysDrawGrouting(boolean always) {
       if (alwaysDrawGrouting != always) {
          alwaysDrawGrouting = always;
+         clearSprites();
          forceRedraw();
       }
    }
@@ -170,17 +221,21 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    public void setGridSize(int rows, 
          int columns, boolean preserveData) {
       if (rows > 0 && columns > 0) {
-         Color[][] newGrid = new Color[rows][columns];
-         if (preserveData) {
-            int rowMax = Math.min(rows,this.rows);
-            int colMax = Math.min(columns,this.columns);
-            for (int r = 0; r < rowMax; r++)
-               for (int c = 0; c < colMax; c++)
-                  newGrid[r][c] = grid[r][c];
+         synchronized (lock) {
+            int[] newCells = new int[rows*columns];
+            if (preserveData) {
+               int rowMax = Math.min(rows,this.rows);
+               int colMax = Math.min(columns,this.columns);
+               for (int r = 0; r < rowMax; r++)
+                  System.arraycopy(cells, r*this.columns, newCells, r*columns, colMax);
+            }
+            else
+               resetPalette();
+            cells = newCells;
+            dirty = new long[(rows*columns + 63) >>> 6];
+            this.rows = rows;
+            this.columns = columns;
          }
-         grid = newGrid;
-         this.rows = rows;
-         this.columns = columns;
          forceRedraw();
       }
    }
@@ -206,12 +261,15 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * Ta wartość może być null, jeśli nie został ustawiony żaden kolor dla tego prostokąta. 
     * (Takie prostokąty są faktycznie wyświetlane przy użyciu defaultColor.) 
     * Jeśli określony prostokąt znajduje się poza siatką, to zwracana jest wartość null.
+    * Zwracany kolor jest równy (equals) ustawionemu, ale nie musi to być ten sam obiekt.
     */
    public Color getColor(int row, int col) {
-      if (row >=0 && row < rows && col >= 0 && col < columns)
-         return grid[row][col];
-      else
-         return null;
+      synchronized (lock) {
+         if (row >=0 && row < rows && col >= 0 && col < columns)
+            return palette[cells[row*columns + col]];
+         else
+            return null;
+      }
    }
    
    
@@ -221,8 +279,9 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * to zostanie zwrócony składnik czerwony defaultColor.
     */
    public int getRed(int row, int col) {
-      if (row >=0 && row < rows && col >= 0 && col < columns && grid[row][col] != null)
-         return grid[row][col].getRed();
+      Color c = getColor(row,col);
+      if (c != null)
+         return c.getRed();
       else
          return defaultColor.getRed();
    }
@@ -234,8 +293,9 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * to zostanie zwrócony składnik zielony defaultColor.
     */
    public int getGreen(int row, int col) {
-      if (row >=0 && row < rows && col >= 0 && col < columns && grid[row][col] != null)
-         return grid[row][col].getGreen();
+      Color c = getColor(row,col);
+      if (c != null)
+         return c.getGreen();
       else
          return defaultColor.getGreen();
    }
@@ -247,8 +307,9 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * to zostanie zwrócony składnik niebieski defaultColor.
     */
    public int getBlue(int row, int col) {
-      if (row >=0 && row < rows && col >= 0 && col < columns && grid[row][col] != null)
-         return grid[row][col].getBlue();
+      Color c = getColor(row,col);
+      if (c != null)
+         return c.getBlue();
       else
          return defaultColor.getBlue();
    }
@@ -262,8 +323,9 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     */
    public void setColor(int row, int col, Color c) {
       if (row >=0 && row < rows && col >= 0 && col < columns) {
-         grid[row][col] = c;
-         drawSquare(row,col);
+         synchronized (lock) {
+            setCell(row, col, (c == null)? 0 : colorIndex(c.getRGB(), c));
+         }
       }
    }
    
@@ -279,8 +341,9 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
          red = (red < 0)? 0 : ( (red > 255)? 255 : red);
          green = (green < 0)? 0 : ( (green > 255)? 255 : green);
          blue = (blue < 0)? 0 : ( (blue > 255)? 255 : blue);
-         grid[row][col] = new Color(red,green,blue);
-         drawSquare(row,col);
+         synchronized (lock) {
+            setCell(row, col, colorIndex(0xff000000 | (red << 16) | (green << 8) | blue, null));
+         }
       }
    }
    
@@ -294,8 +357,15 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    public void setHSBColor(int row, int col, 
          double hue, double saturation, double brightness) {
       if (row >=0 && row < rows && col >= 0 && col < columns) {
-         grid[row][col] = makeHSBColor(hue,saturation,brightness);
-         drawSquare(row,col);
+         float h = (float)hue;
+         float s = (float)saturation;
+         float b = (float)brightness;
+         h = (h < 0)? 0 : ( (h > 1)? 1 : h );
+         s = (s < 0)? 0 : ( (s > 1)? 1 : s );
+         b = (b < 0)? 0 : ( (b > 1)? 1 : b );
+         synchronized (lock) {
+            setCell(row, col, colorIndex(Color.HSBtoRGB(h,s,b), null));
+         }
       }
    }
    
@@ -323,9 +393,10 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * a nie w formie trójwymiarowych prostokątów, w kolorze domyślnym (defaultColor).
     */
    public void fill(Color c) {
-      for (int i = 0; i < rows; i++)
-         for (int j = 0; j < columns; j++)
-            grid[i][j] = c;
+      synchronized (lock) {
+         resetPalette();
+         Arrays.fill(cells, (c == null)? 0 : colorIndex(c.getRGB(), c));
+      }
       forceRedraw();      
    }
    
@@ -346,13 +417,15 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     *  Wypełnia wszystkie prostokąty losowo wybranymi kolorami.
     */
    public void fillRandomly() {
-      for (int i = 0; i < rows; i++)
-         for (int j = 0; j < columns; j++) {
+      synchronized (lock) {
+         resetPalette();
+         for (int i = 0; i < cells.length; i++) {
             int r = (int)(256*Math.random());
             int g = (int)(256*Math.random());
             int b = (int)(256*Math.random());
-            grid[i][j] = new Color(r,g,b);
+            cells[i] = colorIndex(0xff000000 | (r << 16) | (g << 8) | b, null);
          }
+      }
       forceRedraw();
    }
    
@@ -382,9 +455,11 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * Domyślną wartością tej właściwości jest true.
     */
    public void setAutopaint(boolean autopaint) {
-      if (this.autopaint == autopaint)
-         return;
-      this.autopaint = autopaint;
+      synchronized (lock) {
+         if (this.autopaint == autopaint)
+            return;
+         this.autopaint = autopaint;
+      }
       if (autopaint) 
          forceRedraw();
    }
@@ -396,7 +471,11 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * które zostały dokonane w mozaice, bez resetowania właściwości autopaint na true.
     */
    final public void forceRedraw() {
-      needsRedraw = true;
+      synchronized (lock) {
+         needsRedraw = true;
+         dirtyTop = Integer.MAX_VALUE;  // Cała mozaika i tak zostanie skopiowana na ekran.
+         dirtyBottom = -1;
+      }
       repaint();
    }
 
@@ -406,17 +485,10 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * kolor każdego prostokąta oraz wartość alwaysDrawGrouting.
     */
    public Object copyColorData() {
-      Color[][] copy = new Color[rows][columns];
-      if (alwaysDrawGrouting)
-         copy[rows-1] = new Color[columns+3];
-      else
-         copy[rows-1] = new Color[columns+2];
-      for (int r = 0; r < rows; r++)
-         for (int c = 0; c < columns; c++)
-            copy[r][c] = grid[r][c];
-      copy[rows-1][columns] = defaultColor;
-      copy[rows-1][columns+1] = groutingColor;
-      return copy;
+      synchronized (lock) {
+         return new ColorData(rows, columns, cells.clone(), Arrays.copyOf(palette, paletteSize),
+                              defaultColor, groutingColor, alwaysDrawGrouting);
+      }
    }
    
    
@@ -428,35 +500,49 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
     * W przeciwnym razie zwracana jest wartość false, a żadne zmiany nie są wprowadzane do bieżących danych.
     */
    public boolean restoreColorData(Object data) {
-      if (data == null || !(data instanceof Color[][]))
+      if (data == null || !(data instanceof ColorData))
          return false;
-      Color[][] newGrid = (Color[][])data;
-      int newRows = newGrid.length;
-      if (newRows == 0 || newGrid[0].length == 0)
-         return false;
-      int newColumns = newGrid[0].length;
-      for (int r = 1; r < newRows-1; r++)
-         if (newGrid[r].length != newColumns)
-            return false;
-      if (newGrid[newRows-1].length != newColumns+2
-            && newGrid[newRows-1].length != newColumns+3)
-         return false;
-      if (newGrid[newRows-1][newColumns] == null)
-         return false;
-      rows = newRows;
-      columns = newColumns;
-      grid = new Color[rows][columns];
-      for (int i = 0; i < rows; i++)
-         for (int j = 0; j < columns; j++)
-            grid[i][j] = newGrid[i][j];
-      defaultColor = newGrid[newRows-1][newColumns];
+      ColorData d = (ColorData)data;
+      synchronized (lock) {
+         rows = d.rows;
+         columns = d.columns;
+         cells = d.cells.clone();
+         dirty = new long[(rows*columns + 63) >>> 6];
+         palette = Arrays.copyOf(d.palette, Math.max(16, Integer.highestOneBit(d.palette.length) * 2));
+         paletteSize = d.palette.length;
+         rebuildIndex();
+         defaultColor = d.defaultColor;
+         groutingColor = d.groutingColor;
+         alwaysDrawGrouting = d.alwaysDrawGrouting;
+         clearSprites();
+      }
       setBackground(defaultColor);
-      groutingColor = newGrid[newRows-1][newColumns+1];
-      alwaysDrawGrouting = newGrid[newRows-1].length == 3;
       forceRedraw();
       return true;
    }
    
+   /**
+    * Dane zwracane przez copyColorData(): płaska kopia siatki indeksów i używana część palety.
+    */
+   private static final class ColorData {
+      final int rows, columns;
+      final int[] cells;
+      final Color[] palette;
+      final Color defaultColor, groutingColor;
+      final boolean alwaysDrawGrouting;
+
+      ColorData(int rows, int columns, int[] cells, Color[] palette,
+                Color defaultColor, Color groutingColor, boolean alwaysDrawGrouting) {
+         this.rows = rows;
+         this.columns = columns;
+         this.cells = cells;
+         this.palette = palette;
+         this.defaultColor = defaultColor;
+         this.groutingColor = groutingColor;
+         this.alwaysDrawGrouting = alwaysDrawGrouting;
+      }
+   }
+   
    /**
     * Podana współrzędna x piksela w panelu mozaikowym jest używana do określenia numeru wiersza prostokąta mozaiki zawierającego ten piksel. 
     * Jeśli współrzędna x znajduje się poza granicami mozaiki, wartość zwracana to -1 lub jest równa liczbie kolumn, 
@@ -494,69 +580,239 @@ oraz z preferowaną wysokością i szerokością prostokąta ustawioną na 16.
    /**
     * Ta metoda zwraca obiekt BufferedImage, który zawiera rzeczywisty obraz mozaiki. 
     * Jeśli zostanie wywołana przed narysowaniem mozaiki na ekranie, zwracana wartość będzie równa null.
+    * Zmiany, które nie zostały jeszcze pokazane na ekranie, są najpierw rysowane w obrazie.
     */
    public BufferedImage getImage() {
+      synchronized (lock) {
+         if (OSI != null)
+            drawChanges();
+      }
       return OSI;
    }
 
+   /**
+    * Rysuje mozaikę w obrazie poza ekranem o bieżącym rozmiarze panelu i zwraca ten obraz, bez udziału ekranu i EDT.
+    * Pozwala używać panelu, który nigdy nie jest pokazywany (np. przy java.awt.headless=true), do tworzenia obrazów:
+    * należy ustawić rozmiar przez setSize() i autopaint na false. Zwracany obraz jest ponownie używany przez panel,
+    * więc zmienia się przy następnym rysowaniu.
+    */
+   public BufferedImage renderImage() {
+      synchronized (lock) {
+         prepareImage();
+         drawChanges();
+         return OSI;
+      }
+   }
+
    public void paintComponent(Graphics g) {
       super.paintComponent(g);
+      synchronized (lock) {
+         prepareImage();
+         drawChanges();
+      }
+      g.drawImage(OSI,0,0,null);
+   }
+
+   private void prepareImage() {
+      // Tworzy OSI, jeśli go nie ma albo jeśli zmienił się rozmiar panelu.
       if ( (OSI == null) || OSI.getWidth() != getWidth() || OSI.getHeight() != getHeight() ) {
          OSI = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+         pixels = ((DataBufferInt)OSI.getRaster().getDataBuffer()).getData();
          needsRedraw = true;
       }
+   }
+
+   private void drawChanges() {
+      // Rysuje w OSI wszystkie prostokąty (needsRedraw) albo tylko te, które zmieniły się od ostatniego rysowania.
+      layoutGrid();
       if (needsRedraw) {
-         Graphics OSG = OSI.getGraphics();
          for (int r = 0; r < rows; r++)
             for (int c = 0; c < columns; c++)
-               drawSquare(OSG,r,c,false);
-         OSG.dispose();
+               drawSquare(r,c);
+         Arrays.fill(dirty, 0);
          needsRedraw = false;
+         return;
+      }
+      for (int w = 0; w < dirty.length; w++) {
+         long bits = dirty[w];
+         if (bits == 0)
+            continue;
+         dirty[w] = 0;
+         do {
+            int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+            drawSquare(i / columns, i % columns);
+            bits &= bits - 1;
+         } while (bits != 0);
       }
-      g.drawImage(OSI,0,0,null);
    }
    
-   private void drawSquare(Graphics g, int row, int col, boolean callRepaint) {
-      if (callRepaint && !autopaint)
-         return;
-      Insets insets = getInsets();
-      double rowHeight = (double)(getHeight()-insets.left-insets.right) / rows;
-      double colWidth = (double)(getWidth()-insets.top-insets.bottom) / columns;
-      int xOffset = insets.left;
-      int yOffset = insets.top; 
-      int y = yOffset + (int)Math.round(rowHeight*row);
-      int h = Math.max(1, (int)Math.round(rowHeight*(row+1))+yOffset - y);
-      int x = xOffset + (int)Math.round(colWidth*col);
-      int w = Math.max(1, (int)Math.round(colWidth*(col+1))+xOffset - x);
-      Color c = grid[row][col];
+   private void drawSquare(int row, int col) {
+      //Kopiuje sprite prostokąta do pikseli OSI; sprite jest rysowany przy pierwszym użyciu danego koloru i rozmiaru.
+      int x = colX[col];
+      int y = rowY[row];
+      int w = Math.max(1, colX[col+1] - x);
+      int h = Math.max(1, rowY[row+1] - y);
+      int index = cells[row*columns + col];
+      int k = 4*index + 2*(h - tileHeight) + (w - tileWidth);
+      int[] sprite = sprites[k];
+      if (sprite == null)
+         sprite = sprites[k] = renderTile(palette[index], w, h);
+      int width = OSI.getWidth();
+      int copy = Math.max(0, Math.min(w, width - x));
+      int lines = Math.min(h, OSI.getHeight() - y);
+      for (int i = 0, p = y*width + x; i < lines; i++, p += width)
+         System.arraycopy(sprite, i*w, pixels, p, copy);
+   }
+
+   private int[] renderTile(Color c, int w, int h) {
+      //Rysuje jeden prostokąt o wymiarach w na h w kolorze c (null: defaultColor) za pomocą Java2D i zwraca jego piksele.
+      BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      Graphics g = tile.getGraphics();
       g.setColor( (c == null)? defaultColor : c );
       if (groutingColor == null || (c == null && !alwaysDrawGrouting)) {
          if (c == null)
-            g.fillRect(x,y,w,h);
+            g.fillRect(0,0,w,h);
          else
-            g.fill3DRect(x,y,w,h,true);
+            g.fill3DRect(0,0,w,h,true);
       }
       else {
          if (c == null)
-            g.fillRect(x+1,y+1,w-2,h-2);
+            g.fillRect(1,1,w-2,h-2);
          else
-            g.fill3DRect(x+1,y+1,w-2,h-2,true);
+            g.fill3DRect(1,1,w-2,h-2,true);
          g.setColor(groutingColor);
-         g.drawRect(x,y,w-1,h-1);
+         g.drawRect(0,0,w-1,h-1);
+      }
+      g.dispose();
+      return ((DataBufferInt)tile.getRaster().getDataBuffer()).getData();
+   }
+
+   private void layoutGrid() {
+      // Oblicza krawędzie prostokątów, jeśli zmienił się rozmiar panelu, obramowanie albo liczba wierszy i kolumn.
+      getInsets(insets);
+      int width = getWidth(), height = getHeight();
+      if (width == layoutWidth && height == layoutHeight && rows == layoutRows && columns == layoutColumns
+            && insets.equals(layoutInsets))
+         return;
+      layoutWidth = width;
+      layoutHeight = height;
+      layoutRows = rows;
+      layoutColumns = columns;
+      layoutInsets.set(insets.top, insets.left, insets.bottom, insets.right);
+      double rowHeight = (double)(height-insets.top-insets.bottom) / rows;
+      double colWidth = (double)(width-insets.left-insets.right) / columns;
+      colX = new int[columns+1];
+      rowY = new int[rows+1];
+      int minWidth = Integer.MAX_VALUE, minHeight = Integer.MAX_VALUE;
+      for (int c = 0; c <= columns; c++) {
+         colX[c] = insets.left + (int)Math.round(colWidth*c);
+         if (c > 0)
+            minWidth = Math.min(minWidth, Math.max(1, colX[c] - colX[c-1]));
+      }
+      for (int r = 0; r <= rows; r++) {
+         rowY[r] = insets.top + (int)Math.round(rowHeight*r);
+         if (r > 0)
+            minHeight = Math.min(minHeight, Math.max(1, rowY[r] - rowY[r-1]));
+      }
+      if (minWidth != tileWidth || minHeight != tileHeight) {
+         tileWidth = minWidth;
+         tileHeight = minHeight;
+         clearSprites();
+      }
+   }
+
+   private void clearSprites() {
+      synchronized (lock) {
+         Arrays.fill(sprites, null);
       }
-      if (callRepaint)
-         repaint(x,y,w,h);
    }
    
-   private void drawSquare(int row, int col) {
-      //Ta metoda rysuje określony prostokąt bezpośrednio na aplecie w obrazie poza ekranem i wywołuje repaint, 
-      //aby skopiować ten kwadrat na ekran. (wiersz, kolumna) muszą znajdować się w obrębie siatki.
-      if (OSI == null)
-         repaint();
+   private void setCell(int row, int col, int index) {
+      //Ustawia indeks koloru prostokąta i oznacza go jako zmieniony. Pierwsza zmiana w klatce zdarzeń
+      //umieszcza repaintDirty w kolejce EDT; kolejne tylko powiększają prostokąt zmian. Wymaga blokady lock.
+      int i = row*columns + col;
+      if (cells[i] == index)
+         return;
+      cells[i] = index;
+      dirty[i >>> 6] |= 1L << i;
+      if (dirtyTop > dirtyBottom) {
+         dirtyTop = dirtyBottom = row;
+         dirtyLeft = dirtyRight = col;
+      }
       else {
-         Graphics g = OSI.getGraphics();
-         drawSquare(g,row,col,true);
-         g.dispose();
+         dirtyTop = Math.min(dirtyTop, row);
+         dirtyBottom = Math.max(dirtyBottom, row);
+         dirtyLeft = Math.min(dirtyLeft, col);
+         dirtyRight = Math.max(dirtyRight, col);
+      }
+      if (autopaint && !repaintPending) {
+         repaintPending = true;
+         SwingUtilities.invokeLater(repaintDirty);
+      }
+   }
+
+   private int colorIndex(int argb, Color c) {
+      //Zwraca indeks koloru argb w palecie, dodając go, jeśli go tam nie ma. Nowy obiekt Color jest tworzony
+      //tylko dla koloru, którego jeszcze nie było (c może być null). Wymaga blokady lock.
+      int mask = hashKeys.length - 1;
+      int h = (argb * 0x9E3779B9) >>> hashShift;
+      while (hashSlots[h] != 0) {
+         if (hashKeys[h] == argb)
+            return hashSlots[h];
+         h = (h + 1) & mask;
+      }
+      if (paletteSize == palette.length) {
+         if (paletteSize > cells.length)
+            compactPalette();  // Usuń kolory, których nie używa już żaden prostokąt.
+         if (paletteSize > palette.length / 2)
+            palette = Arrays.copyOf(palette, 2*palette.length);
+         rebuildIndex();
+         return colorIndex(argb, c);
+      }
+      int index = paletteSize++;
+      palette[index] = (c != null)? c : new Color(argb, true);
+      hashKeys[h] = argb;
+      hashSlots[h] = index;
+      return index;
+   }
+
+   private void compactPalette() {
+      int[] remap = new int[paletteSize];
+      for (int i = 0; i < cells.length; i++)
+         remap[cells[i]] = 1;
+      remap[0] = 0;  // Indeks 0 (null) zostaje na miejscu.
+      int size = 1;
+      for (int i = 1; i < paletteSize; i++)
+         if (remap[i] != 0) {
+            palette[size] = palette[i];
+            remap[i] = size++;
+         }
+      Arrays.fill(palette, size, paletteSize, null);
+      paletteSize = size;
+      for (int i = 0; i < cells.length; i++)
+         cells[i] = remap[cells[i]];
+   }
+
+   private void resetPalette() {
+      palette = new Color[16];
+      paletteSize = 1;
+      rebuildIndex();
+   }
+
+   private void rebuildIndex() {
+      //Po zmianie palety: odbudowuje tablicę mieszającą i zwalnia sprite'y, bo indeksy kolorów mogły się zmienić.
+      sprites = new int[4*palette.length][];
+      int size = Integer.highestOneBit(palette.length) * 4;  // Co najwyżej w połowie zapełniona.
+      hashKeys = new int[size];
+      hashSlots = new int[size];
+      hashShift = 32 - Integer.numberOfTrailingZeros(size);
+      for (int i = 1; i < paletteSize; i++) {
+         int argb = palette[i].getRGB();
+         int h = (argb * 0x9E3779B9) >>> hashShift;
+         while (hashSlots[h] != 0)
+            h = (h + 1) & (size - 1);
+         hashKeys[h] = argb;
+         hashSlots[h] = i;
       }
    }
    
@@ -0,0 +1,296 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Równoległa wersja PentominoSolver, oparta na ForkJoinPool. Drzewo przeszukiwania jest dzielone na zadania
+ * na pierwszych poziomach (splitDepth), a głębiej zadanie dzieli swoje poddrzewo tylko wtedy, gdy w puli brakuje pracy
+ * do kradzenia (getSurplusQueuedTaskCount), więc duże poddrzewa są dzielone dalej, a małe są przeszukiwane sekwencyjnie.
+ * Każde zadanie ma własny stan planszy (maska bitowa przekazywana w parametrach), a liczniki są sumowane
+ * bez blokad w obiektach LongAdder. Przeszukiwana przestrzeń jest dokładnie ta sama co w PentominoSolver,
+ * więc liczba rozwiązań jest identyczna; różni się tylko kolejność, w jakiej rozwiązania są znajdowane.
+ * Tak jak w PentominoSolver, plansza szersza niż wysoka jest wewnętrznie transponowana.
+ */
+public class ParallelSolver {
+
+   private static final int MAX_SPLIT_DEPTH = 5;  // Poniżej tej głębokości zadania nigdy nie są dzielone.
+   private static final int SURPLUS_LIMIT = 2;    // Dziel poddrzewo, jeśli w kolejce tego wątku jest mniej zadań niż ta liczba.
+
+   private final int rows, cols;      // Rozmiar planszy.
+   private final int cellCount;       // rows*cols
+   private final boolean transposed;  // Prawda, jeśli cols > rows; wtedy table, maski i regions opisują planszę transponowaną.
+   private final PlacementTable table;  // Wszystkie pozycje klocków, które mieszczą się na pustej (być może transponowanej) planszy.
+   private final long outsideMask;    // Bity powyżej cellCount, traktowane jako zawsze zajęte.
+   private final RegionTracker regions;  // Przyrostowe sprawdzanie oczywistego blokowania; po solve() tylko do odczytu, więc wspólne dla wątków.
+
+   private int[] start;          // Tablice pozycji dla bieżących dziur; tylko do odczytu podczas wyszukiwania.
+   private long[] masks;
+   private int[] piece;
+   private int[] cells;
+
+   private long holes;           // Kwadraty, które muszą pozostać puste.
+   private int piecesNeeded;     // Liczba klocków w kompletnym rozwiązaniu.
+   private int emptySpaces;      // Ile kwadratów (poza holes) może pozostać pustych w rozwiązaniu.
+   private boolean piecesNeededSet;  // Prawda po setPiecesNeeded(); wtedy setHoles() nie zmienia piecesNeeded i emptySpaces.
+   private boolean checkForBlocks;  // Jeśli true, odrzucane są pozycje, po których pusty obszar nie może zostać wypełniony.
+   private boolean collectSolutions;  // Jeśli true, rozwiązania są zapamiętywane w solutions.
+   private SymmetryGroup symmetry;    // Jeśli nie null, liczone są tylko rozwiązania w postaci kanonicznej.
+   private int splitDepth = 2;   // Na tej liczbie pierwszych poziomów każde poddrzewo jest osobnym zadaniem.
+   private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+   private volatile boolean abortRequested;  // Ustawiane przez abort(), z dowolnego wątku.
+   private final LongAdder nodeCount = new LongAdder();      // Liczba położonych klocków, ze wszystkich wątków.
+   private final LongAdder solutionCount = new LongAdder();  // Liczba znalezionych rozwiązań, ze wszystkich wątków.
+   private final ConcurrentLinkedQueue<int[]> solutions = new ConcurrentLinkedQueue<int[]>();
+
+   /**
+    * Tworzy silnik dla planszy o podanej liczbie wierszy i kolumn (rows*cols <= 64), który używa podanych pozycji klocków.
+    */
+   public ParallelSolver(int rows, int cols, int[][] pieces) {
+      if (rows <= 0 || cols <= 0 || rows*cols > PentominoSolver.MAX_CELLS)
+         throw new IllegalArgumentException("Board must have between 1 and " + PentominoSolver.MAX_CELLS + " squares.");
+      this.rows = rows;
+      this.cols = cols;
+      this.cellCount = rows*cols;
+      transposed = cols > rows;
+      if (transposed)
+         table = PlacementTable.get(cols, rows, PlacementTable.transpose(pieces));
+      else
+         table = PlacementTable.get(rows, cols, pieces);
+      if (table.pieceCount > 31)
+         throw new IllegalArgumentException("This engine supports piece numbers up to 31; use LargeBoardSolver for larger sets.");
+      outsideMask = (cellCount == 64)? 0 : -1L << cellCount;
+      regions = new RegionTracker(table.rows, table.cols);
+      defaultPiecesNeeded();
+   }
+
+   private void defaultPiecesNeeded() { // Domyślnie: tyle klocków, ile zmieści się na kwadratach poza holes; reszta zostaje pusta.
+      int freeCells = cellCount - Long.bitCount(holes);
+      piecesNeeded = Math.min(table.pieceCount, freeCells/table.pieceSize);
+      emptySpaces = freeCells - table.pieceSize*piecesNeeded;
+   }
+
+   /**
+    * Ustawia kwadraty, które muszą pozostać puste. Bit row*cols+col odpowiada kwadratowi (row,col).
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa dla pozostałych kwadratów.
+    */
+   public void setHoles(long holes) {
+      holes &= ~outsideMask;
+      if (transposed) {
+         long h = 0;
+         for (int cell = 0; cell < cellCount; cell++)
+            if ((holes & (1L << toBoard(cell))) != 0)
+               h |= 1L << cell;
+         holes = h;
+      }
+      this.holes = holes;
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   private int toBoard(int cell) { // Numer kwadratu oryginalnej planszy dla kwadratu cell planszy, na której odbywa się wyszukiwanie.
+      return transposed? (cell % rows)*cols + cell / rows : cell;
+   }
+
+   public void setPiecesNeeded(int piecesNeeded, int emptySpaces) {
+      this.piecesNeeded = piecesNeeded;
+      this.emptySpaces = emptySpaces;
+      piecesNeededSet = true;
+   }
+
+   public void setCheckForBlocks(boolean checkForBlocks) {
+      this.checkForBlocks = checkForBlocks;
+   }
+
+   /**
+    * Jeśli collect jest true, każde rozwiązanie jest zapamiętywane; patrz getSolutions().
+    */
+   public void setCollectSolutions(boolean collect) {
+      this.collectSolutions = collect;
+   }
+
+   /**
+    * Jeśli symmetry nie jest null, rozwiązania, które są obrotem lub odbiciem innego rozwiązania, nie są liczone
+    * ani zapamiętywane; patrz PentominoSolver.setSymmetry().
+    */
+   public void setSymmetry(SymmetryGroup symmetry) {
+      this.symmetry = symmetry;
+   }
+
+   /**
+    * Ustawia liczbę pierwszych poziomów drzewa, na których każde poddrzewo staje się osobnym zadaniem (domyślnie 2).
+    */
+   public void setSplitDepth(int splitDepth) {
+      this.splitDepth = Math.max(0, splitDepth);
+   }
+
+   /**
+    * Ustawia pulę wątków używaną przez solve(). Domyślnie jest to ForkJoinPool.commonPool().
+    */
+   public void setPool(ForkJoinPool pool) {
+      this.pool = pool;
+   }
+
+   public void abort() {
+      abortRequested = true;
+   }
+
+   /**
+    * Przeszukuje wszystkie rozwiązania równolegle i zwraca ich liczbę. Metoda czeka, aż wszystkie zadania się zakończą.
+    */
+   public long solve() {
+      nodeCount.reset();
+      solutionCount.reset();
+      solutions.clear();
+      abortRequested = false;
+      PlacementTable t = table.withHoles(holes);
+      start = t.start;
+      masks = t.mask;
+      piece = t.piece;
+      cells = t.cells;
+      regions.setPlacements(t);
+      long filled = holes | outsideMask;
+      int forced = 0;
+      if (checkForBlocks) {
+         forced = regions.forcedEmpty(filled, 0, emptySpaces);
+         if (forced < 0)
+            return 0;
+      }
+      pool.invoke(new SearchTask(filled, 0, 0, 0, forced, new int[Math.max(1,piecesNeeded)]));
+      return solutionCount.sum();
+   }
+
+   public long getNodeCount() {
+      return nodeCount.sum();
+   }
+
+   public long getSolutionCount() {
+      return solutionCount.sum();
+   }
+
+   public boolean wasAborted() {
+      return abortRequested;
+   }
+
+   /**
+    * Zwraca znalezione rozwiązania (jeśli setCollectSolutions(true)), w kolejności, w jakiej zostały znalezione.
+    * Każde rozwiązanie to tablica o długości rows*cols, w której element row*cols+col jest numerem klocka
+    * zajmującego kwadrat (row,col), albo 0 dla pustego kwadratu.
+    */
+   public List<int[]> getSolutions() {
+      return new ArrayList<int[]>(solutions);
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   private final class SearchTask extends RecursiveAction {
+
+      private static final long serialVersionUID = 1L;  // RecursiveAction jest Serializable; zadania nigdy nie są serializowane.
+
+      private final long filled;
+      private final int usedMask, numused, squaresLeftEmpty, forced;
+      private final int[] stack;   // stack[d] to numer pozycji położonej na głębokości d; własna kopia zadania.
+      private long nodes;          // Liczniki tego zadania, dodawane do wspólnych liczników na końcu compute().
+      private long found;
+
+      SearchTask(long filled, int usedMask, int numused, int squaresLeftEmpty, int forced, int[] stack) {
+         this.filled = filled;
+         this.usedMask = usedMask;
+         this.numused = numused;
+         this.squaresLeftEmpty = squaresLeftEmpty;
+         this.forced = forced;
+         this.stack = stack;
+      }
+
+      protected void compute() {
+         search(filled, usedMask, numused, squaresLeftEmpty, forced);
+         nodeCount.add(nodes);
+         solutionCount.add(found);
+      }
+
+      private void search(long filled, int usedMask, int numused, int squaresLeftEmpty, int forced) {
+         long free = ~filled;
+         if (free == 0 || abortRequested)
+            return;
+         int cell = Long.numberOfTrailingZeros(free);
+         boolean split = numused < splitDepth
+               || (numused < MAX_SPLIT_DEPTH && getSurplusQueuedTaskCount() < SURPLUS_LIMIT);
+         ArrayList<SearchTask> children = split? new ArrayList<SearchTask>() : null;
+         int end = start[cell+1];
+         for (int i = start[cell]; i < end; i++) {
+            long mask = masks[i];
+            int bit = 1 << piece[i];
+            if ((mask & filled) != 0 || (usedMask & bit) != 0)
+               continue;
+            long next = filled | mask;
+            int nextForced = forced;
+            if (checkForBlocks) {
+               nextForced = regions.update(next, mask, forced, usedMask | bit, emptySpaces - squaresLeftEmpty);
+               if (nextForced < 0)
+                  continue;
+            }
+            nodes++;
+            stack[numused] = i;
+            if (numused + 1 == piecesNeeded) {  // Znaleziono rozwiązanie
+               int[] solution = (collectSolutions || symmetry != null)? makeSolution(stack, numused + 1) : null;
+               if (symmetry != null && !symmetry.isCanonical(solution))
+                  continue;  // Obraz innego rozwiązania.
+               found++;
+               if (collectSolutions)
+                  solutions.add(solution);
+            }
+            else if (split)
+               children.add(new SearchTask(next, usedMask | bit, numused + 1, squaresLeftEmpty, nextForced, stack.clone()));
+            else
+               search(next, usedMask | bit, numused + 1, squaresLeftEmpty, nextForced);
+         }
+         if (squaresLeftEmpty < emptySpaces) {  // Zostaw ten kwadrat pusty.
+            long bit = 1L << cell;
+            int nextForced = forced;
+            if (checkForBlocks)
+               nextForced = regions.update(filled | bit, bit, forced, usedMask, emptySpaces - squaresLeftEmpty - 1);
+            if (nextForced >= 0) {  // W przeciwnym razie plansza byłaby zablokowana.
+               if (split)
+                  children.add(new SearchTask(filled | bit, usedMask, numused, squaresLeftEmpty + 1, nextForced, stack.clone()));
+               else
+                  search(filled | bit, usedMask, numused, squaresLeftEmpty + 1, nextForced);
+            }
+         }
+         if (split && !children.isEmpty())
+            invokeAll(children);
+      }
+
+   }
+
+   private int[] makeSolution(int[] stack, int depth) { // Zamienia listę położonych pozycji na tablicę numerów klocków dla każdego kwadratu.
+      int[] solution = new int[cellCount];
+      int n = table.pieceSize;
+      for (int d = 0; d < depth; d++) {
+         int p = stack[d];
+         for (int j = n*p; j < n*p+n; j++)
+            solution[toBoard(cells[j])] = piece[p];
+      }
+      return solution;
+   }
+
+}
@@ -0,0 +1,1007 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Bezgłowy silnik rozwiązujący łamigłówki pentomino, niezależny od MosaicPanel i Swinga.
+ * Plansza jest przechowywana jako maska bitowa typu long: kwadrat (row,col) odpowiada bitowi numer row*cols+col,
+ * więc plansza może mieć co najwyżej 64 kwadraty. Następny pusty kwadrat jest znajdowany za pomocą
+ * Long.numberOfTrailingZeros, a sprawdzenie, czy klocek pasuje, to pojedyncza operacja AND na wcześniej
+ * obliczonej masce klocka; przeglądane są tylko pozycje z PlacementTable zaczepione w tym kwadracie.
+ * Plansza szersza niż wysoka jest wewnętrznie transponowana, więc przeszukiwanie idzie wzdłuż krótszego boku;
+ * obserwator i rozwiązania zawsze dostają numery kwadratów oryginalnej planszy.
+ * Opcjonalnie (setMostConstrained) silnik zamiast pierwszego pustego kwadratu wybiera kwadrat z najmniejszą
+ * liczbą pasujących pozycji; to zmniejsza liczbę ruchów, ale na prostokątach wydłuża czas, bo pierwszy pusty kwadrat
+ * ma krótką listę zaczepionych pozycji, a każdy inny trzeba sprawdzać po wszystkich pozycjach, które go zajmują. Zbiór rozwiązań jest zawsze taki sam jak w rekurencyjnej procedurze play() w PentominosPanel;
+ * zmienia się tylko kolejność ich znajdowania i liczba ruchów.
+ * Panel graficzny może obserwować silnik za pomocą interfejsu Listener; bez obserwatora silnik działa z pełną prędkością.
+ * Wyszukiwanie działa na jawnym stosie małych ramek (kwadrat, pozycja, użyte klocki, puste kwadraty) zamiast na rekurencji,
+ * więc jego stan można co jakiś czas zapisać w punkcie kontrolnym (setCheckpoint) i później wznowić.
+ */
+public class PentominoSolver {
+
+   /**
+    * Obserwator przebiegu wyszukiwania. Wszystkie metody są wywoływane w wątku, który uruchomił solve().
+    * Tablica cells zawiera numery kwadratów (row*cols+col) zajętych przez klocek i nie może być modyfikowana.
+    */
+   public interface Listener {
+      boolean piecePlaced(int piece, int[] cells);  // Klocek o numerze piece (od 1) został położony. Zwraca false, aby przerwać wyszukiwanie.
+      void pieceRemoved(int piece, int[] cells);    // Klocek został zdjęty z planszy (powrót w przeszukiwaniu).
+      boolean solutionFound(long solutionCount);    // Znaleziono rozwiązanie. Zwraca false, aby przerwać wyszukiwanie.
+   }
+
+   public static final int MAX_CELLS = 64;  // Największa plansza, jaką może obsłużyć ten silnik.
+
+   private final int rows, cols;      // Rozmiar planszy.
+   private final int cellCount;       // rows*cols
+   private final boolean transposed;  // Prawda, jeśli cols > rows; wtedy table, maski i regions opisują planszę transponowaną.
+   private final PlacementTable table;  // Wszystkie pozycje klocków, które mieszczą się na pustej (być może transponowanej) planszy.
+   private final long outsideMask;    // Bity powyżej cellCount, traktowane jako zawsze zajęte.
+   private final RegionTracker regions;  // Przyrostowe sprawdzanie oczywistego blokowania.
+
+   private int[] start;          // Tablice pozycji dla bieżących dziur, pobrane z PlacementTable na początku solve().
+   private long[] masks;
+   private int[] piece;
+   private int[][] cellList;     // Kwadraty pozycji w numeracji oryginalnej planszy.
+   private int[] cells;
+   private int[] coverStart;     // Pozycje zajmujące dany kwadrat, dla mostConstrained.
+   private int[] cover;
+
+   private long holes;           // Kwadraty, które muszą pozostać puste (czarne kwadraty wybrane przez użytkownika).
+   private int piecesNeeded;     // Liczba klocków w kompletnym rozwiązaniu.
+   private int emptySpaces;      // Ile kwadratów (poza holes) może pozostać pustych w rozwiązaniu.
+   private PlacementTable preparedTable; // Tablica pozycji dla dziur preparedHoles, przygotowana przez prepare(); null przed pierwszym użyciem.
+   private long preparedHoles;
+   private boolean piecesNeededSet;  // Prawda po setPiecesNeeded(); wtedy setHoles() nie zmienia piecesNeeded i emptySpaces.
+   private boolean checkForBlocks;  // Jeśli true, odrzucane są pozycje, po których pusty obszar nie może zostać wypełniony.
+   private boolean mostConstrained;  // Jeśli true, rozgałęzienie następuje na kwadracie z najmniejszą liczbą pasujących pozycji.
+   private SymmetryGroup symmetry;  // Jeśli nie null, liczone są tylko rozwiązania w postaci kanonicznej.
+   private int[] stack;          // stack[d] to numer pozycji położonej na głębokości d.
+   private int[] frames;         // Ramki jawnego stosu wyszukiwania (patrz play()); pola ramki level to frames[level*FRAME + F_...].
+   private static final int F_K = 0, F_END = 1, F_CELL = 2, F_ANCHORED = 3, F_FORCED = 4;
+   private static final int FRAME = 5;
+   private long curFilled;       // Stan ramki na szczycie stosu, od którego zaczyna play(): zajęte kwadraty, użyte klocki,
+   private int curUsed;          // liczba położonych klocków i kwadratów zostawionych pustych (po wznowieniu z punktu kontrolnego).
+   private int curNumused;
+   private int curEmpty;
+
+   private File checkpointFile;  // Plik punktu kontrolnego albo null.
+   private long checkpointInterval;  // Odstęp między punktami kontrolnymi w nanosekundach.
+   private long lastCheckpoint;  // Czas (System.nanoTime()) ostatniego zapisu.
+   private long nextProgressTest;  // nodeCount, przy którym następnym razem sprawdzany jest czas (punkty kontrolne i oszacowanie).
+   private boolean resumed;      // Prawda, jeśli ostatnie wyszukiwanie zostało wznowione z punktu kontrolnego.
+   private boolean checkpointFailed;  // Prawda, jeśli zapis punktu kontrolnego się nie udał.
+   private static final int CHECKPOINT_MAGIC = 0x50534331;  // "PSC1"
+   private static final long PROGRESS_TEST_NODES = 1 << 16;
+
+   private boolean estimate = true;  // Jeśli true, w trakcie wyszukiwania szacowany jest rozmiar drzewa (patrz getEstimatedTotalNodes()).
+   private volatile double estimatedTotal = -1;  // Szacowana liczba węzłów całego drzewa, -1 jeśli nieznana.
+   private final double[] samples = new double[SAMPLE_WINDOW];  // Ostatnie oszacowania, uśredniane w estimatedTotal.
+   private int sampleCount;
+   private long nextSample;      // Czas (System.nanoTime()), po którym można pobrać następną próbkę.
+   private Random random;        // Generator losowych ścieżek.
+   private int[] probePlacement; // Bufor na pasujące pozycje i odpowiadające im liczby wymuszonych pustych kwadratów.
+   private int[] probeForced;
+   private long rootFilled;      // Stan korzenia drzewa: zajęte kwadraty i liczba wymuszonych pustych kwadratów.
+   private int rootForced;
+   private static final int SAMPLE_WINDOW = 32;
+   private static final int ROOT_PROBES = 64;   // Liczba losowych ścieżek od korzenia na początku wyszukiwania.
+   private static final int SAMPLE_PROBES = 8;  // Liczba losowych ścieżek w nieodwiedzone gałęzie każdej ramki w jednej próbce.
+   private static final int SAMPLE_COST = 100;  // Odstęp między próbkami to co najmniej SAMPLE_COST razy czas pobrania próbki (koszt około 1%).
+   private int depth;            // Liczba klocków na stosie w chwili zgłoszenia rozwiązania.
+   private int[] solution;       // Bufor na bieżące rozwiązanie, sprawdzane przez symmetry.
+
+   private Listener listener;    // Obserwator, może być null.
+
+   private volatile boolean abortRequested;  // Ustawiane przez abort(), z dowolnego wątku.
+   private boolean aborted;      // Prawda, jeśli ostatnie wyszukiwanie zostało przerwane.
+   private boolean blocked;      // Prawda, jeśli plansza była od początku oczywiście zablokowana.
+   private volatile long nodeCount;  // Liczba położonych klocków (odpowiednik moveCount); w trakcie wyszukiwania aktualizowana co PROGRESS_TEST_NODES.
+   private volatile long solutionCount;  // Liczba znalezionych rozwiązań; aktualizowana jak nodeCount i przed wywołaniem obserwatora.
+   private volatile long prunedCount;    // Liczba pozycji odrzuconych przez sprawdzanie blokowania; aktualizowana jak nodeCount.
+   private volatile int currentDepth;    // Liczba położonych klocków w ostatnim punkcie próbkowania.
+   private volatile boolean paused;      // Ustawiane przez pause(); wyszukiwanie czeka w najbliższym punkcie próbkowania.
+   private boolean timing;               // Jeśli true, mierzony jest czas sprawdzeń (tylko gdy nagrywane jest zdarzenie SolverEvents.Progress).
+   private long symmetryNanos;           // Czas w isCanonical od ostatniego punktu próbkowania, gdy timing jest true.
+   private long progressNodes, progressTime;  // Liczba węzłów i czas ostatniego zdarzenia Progress, do obliczenia tempa.
+   private static final int TIMING_MASK = 15;  // Mierzone jest co 16. sprawdzenie blokowania; System.nanoTime() kosztuje tyle co samo sprawdzenie.
+
+   /**
+    * Tworzy silnik dla planszy o podanej liczbie wierszy i kolumn (rows*cols <= 64), który używa podanych pozycji klocków.
+    * Tablica pieces ma ten sam format co PentominosPanel.piece_data; kolejność jej wierszy określa kolejność prób.
+    * Klocki mogą mieć dowolną liczbę kwadratów (patrz PolyominoSet), a numery klocków nie mogą przekraczać 31.
+    */
+   public PentominoSolver(int rows, int cols, int[][] pieces) {
+      if (rows <= 0 || cols <= 0 || rows*cols > MAX_CELLS)
+         throw new IllegalArgumentException("Board must have between 1 and " + MAX_CELLS + " squares.");
+      this.rows = rows;
+      this.cols = cols;
+      this.cellCount = rows*cols;
+      transposed = cols > rows;
+      if (transposed)
+         table = PlacementTable.get(cols, rows, PlacementTable.transpose(pieces));
+      else
+         table = PlacementTable.get(rows, cols, pieces);
+      if (table.pieceCount > 31)
+         throw new IllegalArgumentException("This engine supports piece numbers up to 31; use LargeBoardSolver for larger sets.");
+      outsideMask = (cellCount == 64)? 0 : -1L << cellCount;
+      regions = new RegionTracker(table.rows, table.cols);
+      defaultPiecesNeeded();
+   }
+
+   private void defaultPiecesNeeded() { // Domyślnie: tyle klocków, ile zmieści się na kwadratach poza holes; reszta zostaje pusta.
+      int freeCells = cellCount - Long.bitCount(holes);
+      piecesNeeded = Math.min(table.pieceCount, freeCells/table.pieceSize);
+      emptySpaces = freeCells - table.pieceSize*piecesNeeded;
+   }
+
+   /**
+    * Ustawia kwadraty, które muszą pozostać puste. Bit row*cols+col odpowiada kwadratowi (row,col).
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa dla pozostałych kwadratów.
+    */
+   public void setHoles(long holes) {
+      holes &= ~outsideMask;
+      if (transposed) {
+         long h = 0;
+         for (int cell = 0; cell < cellCount; cell++)
+            if ((holes & (1L << toBoard(cell))) != 0)
+               h |= 1L << cell;
+         holes = h;
+      }
+      this.holes = holes;
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   private int toBoard(int cell) { // Numer kwadratu oryginalnej planszy dla kwadratu cell planszy, na której odbywa się wyszukiwanie.
+      return transposed? (cell % rows)*cols + cell / rows : cell;
+   }
+
+   /**
+    * Ustawia liczbę klocków w kompletnym rozwiązaniu oraz liczbę dodatkowych kwadratów (poza holes), które mogą pozostać puste.
+    */
+   public void setPiecesNeeded(int piecesNeeded, int emptySpaces) {
+      this.piecesNeeded = piecesNeeded;
+      this.emptySpaces = emptySpaces;
+      piecesNeededSet = true;
+   }
+
+   public void setCheckForBlocks(boolean checkForBlocks) {
+      this.checkForBlocks = checkForBlocks;
+   }
+
+   /**
+    * Jeśli mostConstrained jest true, w każdym kroku wybierany jest pusty kwadrat z najmniejszą liczbą pasujących pozycji
+    * (szukany wśród kwadratów z co najmniej trzema zajętymi sąsiadami), zamiast zawsze pierwszego pustego kwadratu.
+    * Przeszukiwanie ma wtedy mniej węzłów, ale każdy węzeł jest droższy, więc na planszach prostokątnych całość trwa
+    * dłużej (6x10: około 1.5 raza); opcja służy do porównywania kolejności przeszukiwania, nie do przyspieszania.
+    */
+   public void setMostConstrained(boolean mostConstrained) {
+      this.mostConstrained = mostConstrained;
+   }
+
+   /**
+    * Jeśli symmetry nie jest null, rozwiązania, które są obrotem lub odbiciem innego rozwiązania, nie są liczone
+    * ani zgłaszane obserwatorowi. Grupa musi być obliczona dla tej samej planszy i tych samych dziur.
+    */
+   public void setSymmetry(SymmetryGroup symmetry) {
+      this.symmetry = symmetry;
+   }
+
+   /**
+    * Włącza punkty kontrolne: co intervalMillis milisekund (i przy przerwaniu) stan wyszukiwania jest zapisywany w pliku file.
+    * Jeśli plik istnieje i pochodzi z wyszukiwania na tej samej planszy z tymi samymi opcjami i tą samą kolejnością klocków,
+    * solve() wznawia wyszukiwanie od zapisanego miejsca i daje te same końcowe liczby, co wyszukiwanie bez przerwy.
+    * Po zakończeniu wyszukiwania plik jest usuwany. null wyłącza punkty kontrolne.
+    */
+   public void setCheckpoint(File file, long intervalMillis) {
+      checkpointFile = file;
+      checkpointInterval = Math.max(0, intervalMillis) * 1000000;
+   }
+
+   /**
+    * Prawda, jeśli ostatnie wyszukiwanie zostało wznowione z punktu kontrolnego.
+    */
+   public boolean wasResumed() {
+      return resumed;
+   }
+
+   /**
+    * Prawda, jeśli ostatnio nie udało się zapisać punktu kontrolnego (na przykład z powodu braku miejsca na dysku).
+    */
+   public boolean checkpointFailed() {
+      return checkpointFailed;
+   }
+
+   public void setListener(Listener listener) {
+      this.listener = listener;
+   }
+
+   /**
+    * Prosi o przerwanie trwającego wyszukiwania. Może być wywoływane z dowolnego wątku.
+    */
+   public void abort() {
+      synchronized (this) {
+         abortRequested = true;
+         notifyAll();  // Przerwanie działa także w czasie pauzy.
+      }
+   }
+
+   /**
+    * Wstrzymuje wyszukiwanie (z dowolnego wątku). Wątek solve() zatrzymuje się w najbliższym punkcie próbkowania,
+    * czyli po co najwyżej PROGRESS_TEST_NODES węzłach, i czeka na resume() albo abort().
+    */
+   public void pause() {
+      paused = true;
+   }
+
+   /**
+    * Wznawia wyszukiwanie wstrzymane przez pause().
+    */
+   public void resume() {
+      synchronized (this) {
+         paused = false;
+         notifyAll();
+      }
+   }
+
+   public boolean isPaused() {
+      return paused;
+   }
+
+   private void waitWhilePaused() {
+      synchronized (this) {
+         while (paused && !abortRequested) {
+            try {
+               wait();
+            }
+            catch (InterruptedException e) {
+               abortRequested = true;
+            }
+         }
+      }
+   }
+
+   /**
+    * Przeszukuje wszystkie rozwiązania i zwraca ich liczbę. Jeśli wyszukiwanie zostało przerwane,
+    * zwracana jest liczba rozwiązań znalezionych do tej pory.
+    */
+   public long solve() {
+      SolverEvents.Search event = new SolverEvents.Search();
+      event.begin();
+      aborted = false;
+      abortRequested = false;
+      prepare();
+      long filled = rootFilled;
+      int forced = rootForced;
+      blocked = forced < 0;
+      if (frames == null || frames.length != (piecesNeeded + emptySpaces + 2)*FRAME)
+         frames = new int[(piecesNeeded + emptySpaces + 2)*FRAME];
+      resumed = false;
+      checkpointFailed = false;
+      lastCheckpoint = System.nanoTime();
+      nextProgressTest = PROGRESS_TEST_NODES;
+      prunedCount = 0;
+      currentDepth = 0;
+      sampleCount = 0;
+      estimatedTotal = -1;
+      nextSample = 0;
+      timing = SolverEvents.PROGRESS.isEnabled();
+      symmetryNanos = 0;
+      progressNodes = 0;
+      progressTime = System.nanoTime();
+      if (!blocked) {
+         int level = -1;
+         if (checkpointFile != null)
+            level = readCheckpoint(filled, forced);
+         if (level >= 0)
+            resumed = true;
+         else {
+            nodeCount = 0;
+            solutionCount = 0;
+            level = 0;
+            enter(0, filled, 0, forced);
+            curFilled = filled;
+            curUsed = curNumused = curEmpty = 0;
+         }
+         if (estimate) {
+            if (resumed)
+               sampleRemaining(level, nodeCount);
+            else
+               estimatedTotal = probeRoot(ROOT_PROBES);
+         }
+         play(level);
+         if (checkpointFile != null && !aborted)
+            checkpointFile.delete();  // Wyszukiwanie zakończone; nie ma czego wznawiać.
+      }
+      if (!aborted)
+         estimatedTotal = nodeCount;
+      event.end();
+      if (event.shouldCommit()) {
+         event.board = rows + "x" + cols;
+         event.piecesNeeded = piecesNeeded;
+         event.emptySpaces = emptySpaces;
+         event.checkForBlocks = checkForBlocks;
+         event.symmetry = symmetry != null;
+         event.mostConstrained = mostConstrained;
+         event.resumed = resumed;
+         event.aborted = aborted;
+         event.nodes = nodeCount;
+         event.solutions = solutionCount;
+         event.pruned = prunedCount;
+         event.commit();
+      }
+      return solutionCount;
+   }
+
+   private void prepare() { // Pobiera tablice pozycji dla bieżących dziur i oblicza stan korzenia drzewa.
+      nodeCount = 0;
+      solutionCount = 0;
+      if (preparedTable == null || holes != preparedHoles) {  // Przy kolejnym solve() z tymi samymi dziurami tablice są ponownie używane.
+         PlacementTable t = table.withHoles(holes);  // Tylko pozycje, które nie zajmują dziur.
+         start = t.start;
+         masks = t.mask;
+         piece = t.piece;
+         coverStart = t.coverStart;
+         cover = t.cover;
+         cells = t.cells;
+         cellList = t.cellList;
+         if (transposed) {
+            cells = new int[cells.length];
+            for (int j = 0; j < cells.length; j++)
+               cells[j] = toBoard(t.cells[j]);
+            cellList = new int[t.size()][];
+            for (int i = 0; i < cellList.length; i++)
+               cellList[i] = Arrays.copyOfRange(cells, t.pieceSize*i, t.pieceSize*(i+1));
+         }
+         regions.setPlacements(t);
+         probePlacement = new int[t.size() + 1];
+         probeForced = new int[t.size() + 1];
+         solution = new int[cellCount];
+         preparedTable = t;
+         preparedHoles = holes;
+      }
+      if (stack == null || stack.length != Math.max(1,piecesNeeded))
+         stack = new int[Math.max(1,piecesNeeded)];
+      if (random == null)
+         random = new Random();
+      rootFilled = holes | outsideMask;
+      rootForced = 0;
+      if (checkForBlocks)
+         rootForced = regions.forcedEmpty(rootFilled, 0, emptySpaces);
+   }
+
+   /**
+    * Szacuje liczbę węzłów (położonych klocków) całego drzewa przeszukiwania metodą Knutha: średnia z podanej liczby
+    * losowych ścieżek od korzenia, bez przeszukiwania. Pozwala przed uruchomieniem ocenić, czy wyszukiwanie potrwa minuty, czy dni.
+    * Zwraca 0 dla planszy oczywiście zablokowanej.
+    */
+   public double estimateTreeSize(int probes) {
+      prepare();
+      if (rootForced < 0)
+         return 0;
+      return probeRoot(Math.max(1, probes));
+   }
+
+   /**
+    * Ustawia ziarno generatora losowych ścieżek estymatora, aby oszacowania były powtarzalne.
+    */
+   public void setRandomSeed(long seed) {
+      random = new Random(seed);
+   }
+
+   /**
+    * Włącza albo wyłącza szacowanie rozmiaru drzewa w trakcie wyszukiwania (domyślnie włączone; kosztuje około 1% czasu).
+    */
+   public void setEstimate(boolean estimate) {
+      this.estimate = estimate;
+   }
+
+   /**
+    * Szacowana liczba węzłów całego drzewa przeszukiwania, -1 jeśli nieznana. Może być wywoływane z dowolnego wątku
+    * w trakcie solve(). Na początku jest to średnia z losowych ścieżek od korzenia (metoda Knutha); potem co jakiś czas
+    * losowe ścieżki są puszczane w nieodwiedzone jeszcze gałęzie bieżącej ścieżki wyszukiwania, więc oszacowanie
+    * staje się coraz dokładniejsze, w miarę jak wyszukiwanie pokrywa coraz większą część drzewa.
+    * Po zakończeniu wyszukiwania jest to dokładna liczba węzłów.
+    */
+   public double getEstimatedTotalNodes() {
+      return estimatedTotal;
+   }
+
+   /**
+    * Szacowana liczba węzłów, których wyszukiwanie jeszcze nie odwiedziło, -1 jeśli nieznana.
+    */
+   public double getEstimatedRemainingNodes() {
+      double total = estimatedTotal;
+      return (total < 0)? -1 : Math.max(0, total - nodeCount);
+   }
+
+   /**
+    * Liczba pozycji odrzuconych przez sprawdzanie oczywistego blokowania. W trakcie wyszukiwania aktualizowana
+    * co PROGRESS_TEST_NODES węzłów, więc jej odczytywanie z innego wątku nie spowalnia wyszukiwania.
+    */
+   public long getPrunedCount() {
+      return prunedCount;
+   }
+
+   /**
+    * Liczba klocków na planszy w ostatnim punkcie próbkowania (głębokość wyszukiwania).
+    */
+   public int getDepth() {
+      return currentDepth;
+   }
+
+   public long getNodeCount() {
+      return nodeCount;
+   }
+
+   public long getSolutionCount() {
+      return solutionCount;
+   }
+
+   public boolean wasAborted() {
+      return aborted;
+   }
+
+   public boolean wasBlocked() {
+      return blocked;
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   /**
+    * Zwraca kopię rozwiązania, które właśnie zostało znalezione: tablicę o długości rows*cols, w której element row*cols+col
+    * jest numerem klocka zajmującego kwadrat (row,col), albo 0 dla pustego kwadratu. Może być wywoływane tylko
+    * wewnątrz Listener.solutionFound().
+    */
+   public int[] getCurrentSolution() {
+      fillSolution(depth);
+      return solution.clone();
+   }
+
+   private void fillSolution(int depth) { // Wypełnia bufor solution pozycjami ze stosu.
+      Arrays.fill(solution, 0);
+      int n = table.pieceSize;
+      for (int d = 0; d < depth; d++) {
+         int p = stack[d];
+         for (int j = n*p; j < n*p+n; j++)
+            solution[cells[j]] = piece[p];
+      }
+   }
+
+   private boolean isCanonical(int depth) { // Sprawdza bieżące rozwiązanie w grupie symetrii.
+      fillSolution(depth);
+      if (!timing)
+         return symmetry.isCanonical(solution);
+      long t = System.nanoTime();
+      boolean canonical = symmetry.isCanonical(solution);
+      symmetryNanos += System.nanoTime() - t;
+      return canonical;
+   }
+
+   private int mostConstrainedCell(long filled, int usedMask, int first) { // Pusty kwadrat z najmniejszą liczbą pasujących pozycji.
+      int best = first;
+      int bestCount = 0;
+      for (int i = start[first]; i < start[first+1]; i++)
+         if ((masks[i] & filled) == 0 && (usedMask & (1 << piece[i])) == 0)
+            bestCount++;
+      long candidates = regions.constrained(filled) & ~(1L << first);
+      while (candidates != 0 && bestCount > 1) {
+         int cell = Long.numberOfTrailingZeros(candidates);
+         candidates &= candidates - 1;
+         int count = 0;
+         int end = coverStart[cell+1];
+         for (int k = coverStart[cell]; k < end && count < bestCount; k++) {
+            int i = cover[k];
+            if ((masks[i] & filled) == 0 && (usedMask & (1 << piece[i])) == 0)
+               count++;
+         }
+         if (count < bestCount) {
+            best = cell;
+            bestCount = count;
+         }
+      }
+      return best;
+   }
+
+   private void enter(int level, long filled, int usedMask, int forced) { // Przygotowuje ramkę na poziomie level: wybiera kwadrat i listę pozycji.
+      // forced to liczba kwadratów, które na pewno pozostaną puste (patrz RegionTracker); używana tylko, gdy checkForBlocks jest true.
+      int f = level*FRAME;
+      frames[f+F_FORCED] = forced;
+      long free = ~filled;
+      if (free == 0) {  // Przekroczyliśmy koniec planszy: ramka bez żadnej możliwości.
+         frames[f+F_CELL] = -1;
+         frames[f+F_K] = 1;
+         frames[f+F_END] = 0;
+         return;
+      }
+      int first = Long.numberOfTrailingZeros(free);
+      int cell = mostConstrained? mostConstrainedCell(filled, usedMask, first) : first;
+      boolean anchored = cell == first;  // Dla pierwszego pustego kwadratu wystarczą pozycje w nim zaczepione.
+      frames[f+F_CELL] = cell;
+      frames[f+F_ANCHORED] = anchored? 1 : 0;
+      frames[f+F_K] = anchored? start[cell] : coverStart[cell];
+      frames[f+F_END] = anchored? start[cell+1] : coverStart[cell+1];
+   }
+
+   private void play(int level) { // Procedura wyszukiwania, odpowiednik play() w PentominosPanel, na jawnym stosie ramek.
+      // Zaczyna od ramki level i stanu cur*; kończy się po przejrzeniu całego drzewa albo po przerwaniu.
+      // Ramka opisuje jeden kwadrat: F_K to następna pozycja do sprawdzenia (w ramce na szczycie stosu) albo pozycja
+      // właśnie położona (w ramkach poniżej); F_K == F_END+1 oznacza, że kwadrat został zostawiony pusty.
+      // Zajęte kwadraty i użyte klocki są przechowywane tylko dla szczytu stosu; powrót zdejmuje maskę położonej pozycji.
+      final int[] frames = this.frames;
+      final int[] stack = this.stack;
+      final long[] masks = this.masks;
+      final int[] piece = this.piece;
+      final int[] cover = this.cover;
+      final int emptySpaces = this.emptySpaces;
+      final boolean checkForBlocks = this.checkForBlocks;
+      final Listener listener = this.listener;
+      final boolean mostConstrained = this.mostConstrained;
+      long nodes = nodeCount;
+      long solutions = solutionCount;
+      long pruned = 0;  // Odrzucone pozycje od ostatniego punktu próbkowania.
+      boolean timing = this.timing;
+      int checks = 0;   // Licznik sprawdzeń blokowania, do wyboru mierzonych wywołań.
+      long blockNanos = 0;
+      long filled = curFilled;
+      int usedMask = curUsed;
+      int numused = curNumused;
+      int squaresLeftEmpty = curEmpty;
+      while (true) {
+         int f = level*FRAME;
+         int k = frames[f+F_K];
+         int end = frames[f+F_END];
+         boolean anchored = !mostConstrained || frames[f+F_ANCHORED] != 0;
+         int forced = frames[f+F_FORCED];
+         boolean descended = false;
+         for (; k < end; k++) {
+            int i = anchored? k : cover[k];
+            long mask = masks[i];
+            int bit = 1 << piece[i];
+            if ((mask & filled) != 0 || (usedMask & bit) != 0)
+               continue;
+            long next = filled | mask;
+            int nextForced = forced;
+            if (checkForBlocks) {
+               if (timing && (++checks & TIMING_MASK) == 0) {
+                  long t = System.nanoTime();
+                  nextForced = regions.update(next, mask, forced, usedMask | bit, emptySpaces - squaresLeftEmpty);
+                  blockNanos += (System.nanoTime() - t)*(TIMING_MASK + 1);
+               }
+               else
+                  nextForced = regions.update(next, mask, forced, usedMask | bit, emptySpaces - squaresLeftEmpty);
+               if (nextForced < 0) {
+                  pruned++;
+                  continue;
+               }
+            }
+            nodes++;
+            if (listener != null && !listener.piecePlaced(piece[i], cellList[i])) {
+               nodes--;
+               stop(nodes, solutions, pruned, level, k);  // Po wznowieniu ta pozycja zostanie położona jeszcze raz.
+               return;
+            }
+            stack[numused] = i;
+            if (numused + 1 == piecesNeeded) {  // Znaleziono rozwiązanie
+               if (symmetry != null && !isCanonical(numused + 1)) {
+                  if (listener != null)
+                     listener.pieceRemoved(piece[i], cellList[i]);
+                  continue;  // To rozwiązanie jest obrazem innego rozwiązania, które jest (lub zostanie) policzone.
+               }
+               solutions++;
+               depth = numused + 1;
+               if (SolverEvents.SOLUTION.isEnabled()) {
+                  SolverEvents.Solution event = new SolverEvents.Solution();
+                  if (event.shouldCommit()) {
+                     event.solutionNumber = solutions;
+                     event.nodes = nodes;
+                     event.commit();
+                  }
+               }
+               if (listener != null) {
+                  solutionCount = solutions;  // Obserwator może odczytać getSolutionCount().
+                  if (!listener.solutionFound(solutions)) {
+                     stop(nodes, solutions, pruned, level, k + 1);
+                     return;
+                  }
+                  listener.pieceRemoved(piece[i], cellList[i]);
+               }
+               if (abortRequested) {
+                  stop(nodes, solutions, pruned, level, k + 1);
+                  return;
+               }
+            }
+            else {
+               frames[f+F_K] = k;
+               filled = next;
+               usedMask |= bit;
+               numused++;
+               enter(level + 1, filled, usedMask, nextForced);
+               descended = true;
+               break;
+            }
+         }
+         if (descended) {
+            level++;
+            continue;
+         }
+         if (k == end && squaresLeftEmpty < emptySpaces) {
+            // Nie można położyć klocka na tym kwadracie, ale być może można go zostawić pustym.
+            frames[f+F_K] = end + 1;
+            long bit = 1L << frames[f+F_CELL];
+            int nextForced = forced;
+            if (checkForBlocks)
+               nextForced = regions.update(filled | bit, bit, forced, usedMask, emptySpaces - squaresLeftEmpty - 1);
+            if (nextForced >= 0) {
+               filled |= bit;
+               squaresLeftEmpty++;
+               enter(level + 1, filled, usedMask, nextForced);
+               level++;
+               continue;
+            }
+         }
+         level--;  // Powrót do poprzedniego kwadratu.
+         if (level < 0) {
+            nodeCount = nodes;
+            solutionCount = solutions;
+            prunedCount += pruned;
+            return;
+         }
+         f -= FRAME;
+         int k2 = frames[f+F_K];
+         if (k2 < frames[f+F_END]) {  // Zdejmij klocek położony w ramce level.
+            int i = stack[--numused];
+            filled &= ~masks[i];
+            usedMask &= ~(1 << piece[i]);
+            frames[f+F_K] = k2 + 1;
+            if (listener != null)
+               listener.pieceRemoved(piece[i], cellList[i]);
+            if (abortRequested) {
+               stop(nodes, solutions, pruned, level, k2 + 1);
+               return;
+            }
+            if (nodes >= nextProgressTest) {  // Punkt próbkowania: rzadko, więc liczniki, pauza, punkty kontrolne i oszacowanie nie spowalniają wyszukiwania.
+               nextProgressTest = nodes + PROGRESS_TEST_NODES;
+               nodeCount = nodes;
+               solutionCount = solutions;
+               prunedCount += pruned;
+               pruned = 0;
+               currentDepth = numused;
+               timing = this.timing = progressEvent(numused, nodes, blockNanos);
+               blockNanos = 0;
+               if (paused)
+                  waitWhilePaused();
+               long now = System.nanoTime();
+               if (estimate && now >= nextSample)
+                  sampleRemaining(level, nodes);
+               if (checkpointFile != null && now - lastCheckpoint >= checkpointInterval)
+                  writeCheckpoint(level);
+            }
+         }
+         else {  // Kwadrat ramki level był zostawiony pusty.
+            filled &= ~(1L << frames[f+F_CELL]);
+            squaresLeftEmpty--;
+         }
+      }
+   }
+
+   private void stop(long nodes, long solutions, long pruned, int level, int nextK) { // Przerywa wyszukiwanie; stan (ramki 0..level) jest zapisywany w punkcie kontrolnym, jeśli jest używany.
+      nodeCount = nodes;
+      solutionCount = solutions;
+      prunedCount += pruned;
+      SolverEvents.Abort event = new SolverEvents.Abort();
+      if (event.shouldCommit()) {
+         event.reason = abortRequested? "abort" : "listener";
+         int placed = 0;
+         for (int l = 0; l < level; l++)
+            if (frames[l*FRAME+F_K] < frames[l*FRAME+F_END])
+               placed++;
+         event.depth = placed;
+         event.nodes = nodes;
+         event.solutions = solutionCount;
+         event.commit();
+      }
+      aborted = true;
+      frames[level*FRAME+F_K] = nextK;
+      if (checkpointFile != null)
+         writeCheckpoint(level);
+   }
+
+   private boolean progressEvent(int depth, long nodes, long blockNanos) { // Wysyła zdarzenie Progress; zwraca true, jeśli mierzyć czas sprawdzeń.
+      if (!SolverEvents.PROGRESS.isEnabled())
+         return false;
+      SolverEvents.Progress event = new SolverEvents.Progress();
+      long now = System.nanoTime();
+      if (event.shouldCommit()) {
+         event.depth = depth;
+         event.nodes = nodes;
+         event.nodesPerSecond = (now > progressTime)? (nodes - progressNodes) / ((now - progressTime) / 1e9) : 0;
+         event.solutions = solutionCount;
+         event.blockCheckTime = blockNanos;
+         event.symmetryCheckTime = symmetryNanos;
+         event.pruned = prunedCount;
+         event.commit();
+      }
+      progressNodes = nodes;
+      progressTime = now;
+      symmetryNanos = 0;
+      return true;
+   }
+
+   private int validPlacements(int k, int end, boolean anchored, long filled, int usedMask, int squaresLeftEmpty, int forced) {
+      // Zapisuje w probePlacement i probeForced pozycje o indeksach k..end-1, które można położyć; zwraca ich liczbę.
+      int count = 0;
+      for (; k < end; k++) {
+         int i = anchored? k : cover[k];
+         long mask = masks[i];
+         int bit = 1 << piece[i];
+         if ((mask & filled) != 0 || (usedMask & bit) != 0)
+            continue;
+         int nextForced = forced;
+         if (checkForBlocks && (nextForced = regions.update(filled | mask, mask, forced, usedMask | bit, emptySpaces - squaresLeftEmpty)) < 0)
+            continue;
+         probePlacement[count] = i;
+         probeForced[count] = nextForced;
+         count++;
+      }
+      return count;
+   }
+
+   private int emptyForced(int cell, long filled, int usedMask, int squaresLeftEmpty, int forced) {
+      // Liczba wymuszonych pustych kwadratów po zostawieniu kwadratu cell pustym, albo -1, jeśli to niemożliwe.
+      if (squaresLeftEmpty >= emptySpaces)
+         return -1;
+      long bit = 1L << cell;
+      return checkForBlocks? regions.update(filled | bit, bit, forced, usedMask, emptySpaces - squaresLeftEmpty - 1) : forced;
+   }
+
+   private double probe(long filled, int usedMask, int numused, int squaresLeftEmpty, int forced) { // Losowa ścieżka Knutha.
+      // Zwraca nieobciążone oszacowanie liczby węzłów w poddrzewie poniżej podanego stanu: na każdym poziomie do wyniku
+      // dodawana jest liczba pasujących pozycji pomnożona przez iloczyn liczb możliwości na wyższych poziomach.
+      double weight = 1, total = 0;
+      while (numused < piecesNeeded) {
+         long free = ~filled;
+         if (free == 0)
+            break;
+         int first = Long.numberOfTrailingZeros(free);
+         int cell = mostConstrained? mostConstrainedCell(filled, usedMask, first) : first;
+         boolean anchored = cell == first;
+         int p = validPlacements(anchored? start[cell] : coverStart[cell], anchored? start[cell+1] : coverStart[cell+1],
+                                 anchored, filled, usedMask, squaresLeftEmpty, forced);
+         int ef = emptyForced(cell, filled, usedMask, squaresLeftEmpty, forced);
+         int n = (ef >= 0)? p + 1 : p;
+         total += weight * p;
+         if (n == 0)
+            break;
+         weight *= n;
+         int r = random.nextInt(n);
+         if (r < p) {
+            if (numused + 1 == piecesNeeded)
+               break;  // Rozwiązanie jest liściem drzewa.
+            int i = probePlacement[r];
+            filled |= masks[i];
+            usedMask |= 1 << piece[i];
+            numused++;
+            forced = probeForced[r];
+         }
+         else {
+            filled |= 1L << cell;
+            squaresLeftEmpty++;
+            forced = ef;
+         }
+      }
+      return total;
+   }
+
+   private double probeRoot(int probes) { // Średnia z losowych ścieżek od korzenia.
+      double sum = 0;
+      for (int j = 0; j < probes; j++)
+         sum += probe(rootFilled, 0, 0, 0, rootForced);
+      return sum / probes;
+   }
+
+   private void sampleRemaining(int level, long nodes) { // Szacuje liczbę węzłów, których wyszukiwanie jeszcze nie odwiedziło.
+      // Dla każdej ramki 0..level liczone są nieodwiedzone możliwości (w ramce na szczycie: od F_K, w niższych: po F_K),
+      // a do jednej z nich, wybranej losowo, puszczana jest losowa ścieżka. Suma jest nieobciążonym oszacowaniem reszty drzewa.
+      long startTime = System.nanoTime();
+      double remaining = 0;
+      long filled = rootFilled;
+      int usedMask = 0, numused = 0, squaresLeftEmpty = 0;
+      for (int l = 0; l <= level; l++) {
+         int f = l*FRAME;
+         int k = frames[f+F_K], end = frames[f+F_END], cell = frames[f+F_CELL];
+         int forced = frames[f+F_FORCED];
+         if (cell >= 0) {
+            int from = (l == level)? k : k + 1;
+            boolean emptyPending = (l == level)? k <= end : k < end;
+            int p = (from < end)? validPlacements(from, end, frames[f+F_ANCHORED] != 0, filled, usedMask, squaresLeftEmpty, forced) : 0;
+            int ef = emptyPending? emptyForced(cell, filled, usedMask, squaresLeftEmpty, forced) : -1;
+            int n = (ef >= 0)? p + 1 : p;
+            remaining += p;
+            if (n > 0) {
+               int[] placements = Arrays.copyOf(probePlacement, p), placementForced = Arrays.copyOf(probeForced, p);
+               double subtree = 0;
+               for (int j = 0; j < SAMPLE_PROBES; j++) {
+                  int r = random.nextInt(n);
+                  if (r < p) {
+                     int i = placements[r];
+                     if (numused + 1 < piecesNeeded)
+                        subtree += probe(filled | masks[i], usedMask | (1 << piece[i]), numused + 1, squaresLeftEmpty, placementForced[r]);
+                  }
+                  else
+                     subtree += probe(filled | (1L << cell), usedMask, numused, squaresLeftEmpty + 1, ef);
+               }
+               remaining += n * subtree / SAMPLE_PROBES;
+            }
+         }
+         if (l < level) {  // Przejdź do następnej ramki ścieżki.
+            if (k < end) {
+               int i = stack[numused++];
+               filled |= masks[i];
+               usedMask |= 1 << piece[i];
+            }
+            else {
+               filled |= 1L << cell;
+               squaresLeftEmpty++;
+            }
+         }
+      }
+      samples[sampleCount++ % SAMPLE_WINDOW] = nodes + remaining;
+      int n = Math.min(sampleCount, SAMPLE_WINDOW);
+      double sum = 0;
+      for (int j = 0; j < n; j++)
+         sum += samples[j];
+      estimatedTotal = sum / n;
+      long now = System.nanoTime();
+      nextSample = now + SAMPLE_COST*(now - startTime);
+   }
+
+   private int checkpointFingerprint() { // Opcje, które muszą być takie same, aby można było wznowić wyszukiwanie.
+      int h = Arrays.deepHashCode(table.pieces);
+      h = 31*h + (int)(holes ^ (holes >>> 32));
+      h = 31*h + piecesNeeded;
+      h = 31*h + emptySpaces;
+      h = 31*h + (checkForBlocks? 1 : 0) + (mostConstrained? 4 : 0);  // 4, nie 2: zmienił się wybór kandydatów, więc stare punkty kontrolne nie pasują.
+      h = 31*h + (symmetry == null? 0 : symmetry.size());
+      return h;
+   }
+
+   private void writeCheckpoint(int level) { // Zapisuje ramki 0..level do pliku tymczasowego, a potem zastępuje nim punkt kontrolny.
+      File temp = new File(checkpointFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+         out.writeInt(CHECKPOINT_MAGIC);
+         out.writeInt(rows);
+         out.writeInt(cols);
+         out.writeInt(checkpointFingerprint());
+         out.writeLong(nodeCount);
+         out.writeLong(solutionCount);
+         out.writeInt(level + 1);
+         int usedMask = 0, numused = 0, squaresLeftEmpty = 0;
+         for (int l = 0; l <= level; l++) {  // Ramka: kwadrat, pozycja, użyte klocki, liczba pustych kwadratów.
+            int f = l*FRAME;
+            out.writeByte(frames[f+F_CELL]);
+            out.writeInt(frames[f+F_K]);
+            out.writeInt(usedMask);
+            out.writeByte(squaresLeftEmpty);
+            if (frames[f+F_K] < frames[f+F_END])
+               usedMask |= 1 << piece[stack[numused++]];
+            else
+               squaresLeftEmpty++;
+         }
+      }
+      catch (IOException e) {
+         checkpointFailed = true;
+         return;
+      }
+      try {
+         Files.move(temp.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (IOException e) {
+         checkpointFailed = true;
+         return;
+      }
+      lastCheckpoint = System.nanoTime();
+   }
+
+   private int readCheckpoint(long filled, int forced) { // Odtwarza ramki z punktu kontrolnego; zwraca poziom ramki na szczycie albo -1.
+      if (!checkpointFile.exists())
+         return -1;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+         if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != rows || in.readInt() != cols || in.readInt() != checkpointFingerprint())
+            return -1;
+         long nodes = in.readLong();
+         long solutions = in.readLong();
+         int count = in.readInt();
+         if (count < 1 || count*FRAME > frames.length)
+            return -1;
+         int[] cellRead = new int[count], kRead = new int[count], usedRead = new int[count], emptyRead = new int[count];
+         for (int l = 0; l < count; l++) {
+            cellRead[l] = in.readByte();
+            kRead[l] = in.readInt();
+            usedRead[l] = in.readInt();
+            emptyRead[l] = in.readByte();
+         }
+         // Przejdź ponownie ścieżkę od korzenia; każda ramka musi się zgadzać z zapisaną.
+         int usedMask = 0, numused = 0, squaresLeftEmpty = 0;
+         enter(0, filled, 0, forced);
+         for (int level = 0; ; level++) {
+            int f = level*FRAME;
+            if (frames[f+F_CELL] != cellRead[level] || usedMask != usedRead[level] || squaresLeftEmpty != emptyRead[level])
+               return -1;
+            int k = kRead[level];
+            int first = (frames[f+F_ANCHORED] != 0)? start[frames[f+F_CELL]] : coverStart[frames[f+F_CELL]];
+            if (level == count - 1) {
+               if (k < first || k > frames[f+F_END] + 1)
+                  return -1;
+               frames[f+F_K] = k;
+               break;
+            }
+            int nextForced = frames[f+F_FORCED];
+            if (k >= first && k < frames[f+F_END]) {
+               int i = (frames[f+F_ANCHORED] != 0)? k : cover[k];
+               long mask = masks[i];
+               int bit = 1 << piece[i];
+               if ((mask & filled) != 0 || (usedMask & bit) != 0 || numused + 1 >= piecesNeeded)
+                  return -1;
+               if (checkForBlocks && (nextForced = regions.update(filled | mask, mask, nextForced, usedMask | bit, emptySpaces - squaresLeftEmpty)) < 0)
+                  return -1;
+               stack[numused++] = i;
+               filled |= mask;
+               usedMask |= bit;
+            }
+            else if (k == frames[f+F_END] + 1 && frames[f+F_CELL] >= 0 && squaresLeftEmpty < emptySpaces) {
+               long bit = 1L << frames[f+F_CELL];
+               if (checkForBlocks && (nextForced = regions.update(filled | bit, bit, nextForced, usedMask, emptySpaces - squaresLeftEmpty - 1)) < 0)
+                  return -1;
+               filled |= bit;
+               squaresLeftEmpty++;
+            }
+            else
+               return -1;
+            frames[f+F_K] = k;
+            enter(level + 1, filled, usedMask, nextForced);
+         }
+         nodeCount = nodes;
+         solutionCount = solutions;
+         curFilled = filled;
+         curUsed = usedMask;
+         curNumused = numused;
+         curEmpty = squaresLeftEmpty;
+         if (listener != null)  // Pokaż obserwatorowi klocki, które leżą na planszy w chwili wznowienia.
+            for (int d = 0; d < numused; d++)
+               listener.piecePlaced(piece[stack[d]], cellList[stack[d]]);
+         return count - 1;
+      }
+      catch (IOException e) {
+         return -1;
+      }
+   }
+
+}
@@ -58,6 +58,12 @@ public class Pentominos extends JFrame {
       {8,9}, {11,6}, {13,5}, {16,4}
    };
    
+   private static int[][] setChoices = {  // Plansze dla kilku kompletów klocków: wiersze, kolumny, liczba kompletów.
+      {10,12,2}, {8,15,2}, {6,20,2}, {12,15,3}, {10,18,3}
+   };
+   
+   private static final String[] SET_NAMES = { "One Set", "Two Sets", "Three Sets", "Four Sets" };
+   
    private JMenu makeSizeMenu() {
       JMenu size = new JMenu("Size");
       for (int i = 0; i < sizeChoices.length; i++) {
@@ -71,6 +77,19 @@ public class Pentominos extends JFrame {
          });
          size.add(item);
       }
+      size.addSeparator();
+      for (int i = 0; i < setChoices.length; i++) {
+         final int r = setChoices[i][0];
+         final int c = setChoices[i][1];
+         final int sets = setChoices[i][2];
+         JMenuItem item = new JMenuItem(SET_NAMES[sets-1] + ": " + r + "-by-" + c);
+         item.addActionListener( new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+               setBoardSize(r,c,sets);
+            }
+         });
+         size.add(item);
+      }
       JMenuItem other = new JMenuItem("Custom Size...");
       other.addActionListener(new ActionListener() {
          public void actionPerformed(ActionEvent evt) {
@@ -85,31 +104,40 @@ public class Pentominos extends JFrame {
    private void doOtherSize() {
       JPanel p = new JPanel();
       p.setBorder(BorderFactory.createEmptyBorder(10,10,10,10));
-      p.setLayout(new GridLayout(2,2,10,10));
+      p.setLayout(new GridLayout(3,2,10,10));
       JComboBox rowChoice = new JComboBox();
       JComboBox columnChoice = new JComboBox();
-      for (int i = 3; i <= 21; i++) {
+      JComboBox<String> setsChoice = new JComboBox<String>();
+      for (int i = 3; i <= 30; i++) {
          String s = "" + i;
          rowChoice.addItem(s);
          columnChoice.addItem(s);
       }
+      for (int i = 0; i < SET_NAMES.length; i++)
+         setsChoice.addItem(SET_NAMES[i]);
       rowChoice.setSelectedIndex(5);
       columnChoice.setSelectedIndex(5);
       p.add( new JLabel("Rows:", JLabel.RIGHT) );
       p.add(rowChoice);
       p.add( new JLabel("Columns:", JLabel.RIGHT) );
       p.add(columnChoice);
+      p.add( new JLabel("Pieces:", JLabel.RIGHT) );
+      p.add(setsChoice);
       if (JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel,p,"Select Size",JOptionPane.OK_CANCEL_OPTION)) {
          int r= rowChoice.getSelectedIndex() + 3;
          int c = columnChoice.getSelectedIndex() + 3;
-         setBoardSize(r,c);
+         setBoardSize(r,c,setsChoice.getSelectedIndex() + 1);
       }
    }
    
    private void setBoardSize(int rows, int cols) {
+      setBoardSize(rows,cols,1);
+   }
+   
+   private void setBoardSize(int rows, int cols, int sets) {
       PentominosPanel oldPanel = panel;
       oldPanel.terminate();
-      panel = new PentominosPanel(rows,cols,false);
+      panel = new PentominosPanel(rows,cols,false,sets);
       JMenuBar bar = panel.getMenuBar(!runningAsApplet,oldPanel);
       bar.add(makeSizeMenu());
       setJMenuBar(bar);
@@ -0,0 +1,425 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Program wsadowy bez Swinga: rozwiązuje łamigłówki zapisane w pliku (albo na standardowym wejściu), po jednej w wierszu,
+ * na ograniczonej puli wątków, i wypisuje wyniki jako wiersze JSON. Na końcu wypisywany jest wiersz z podsumowaniem
+ * (liczba łamigłówek, czas, łamigłówki na sekundę).
+ * <p>
+ * Użycie: java com.mycompany.pentomimo.PentominosBatch [-t wątki] [-o plik_wyników] [-c plik_pamięci_podręcznej | -nocache]
+ *        [plik_łamigłówek | -]
+ * <p>
+ * Domyślnie wyniki są zapamiętywane we wspólnej pamięci podręcznej (ResultCache.getDefault()), tej samej, której używa panel.
+ * <p>
+ * Każdy wiersz wejścia zaczyna się od rozmiaru planszy (na przykład 8x8), po którym mogą wystąpić opcje oddzielone spacjami:
+ * <pre>
+ *   holes=3:3,3:4,27        kwadraty, które muszą pozostać puste: wiersz:kolumna albo numer row*cols+col
+ *   pieces=5                wszystkie wolne poliomina o podanej liczbie kwadratów (domyślnie pentomina z numeracją panelu)
+ *   pieces=XXX/.X.;XX/XX    własne klocki: rysunki jak w PolyominoSet.get(), oddzielone znakiem ';'
+ *   sets=2                  liczba egzemplarzy każdego klocka
+ *   one-sided[=ABBA...]     klocki jednostronne; litery wybierają stronę kolejnych klocków z dwiema stronami (domyślnie A)
+ *   symmetry                liczy tylko rozwiązania różne z dokładnością do symetrii planszy
+ *   first                   kończy po pierwszym rozwiązaniu (sprawdzenie, czy łamigłówka ma rozwiązanie)
+ *   noblocks                wyłącza sprawdzanie oczywistego blokowania
+ *   empty=N                 liczba dodatkowych kwadratów, które pozostaną puste (domyślnie tyle, ile zostaje po największej liczbie klocków)
+ * </pre>
+ * Puste wiersze i wiersze zaczynające się od '#' są pomijane. Wyniki mogą być wypisywane w innej kolejności niż łamigłówki;
+ * pole "line" podaje numer wiersza wejścia.
+ */
+public class PentominosBatch {
+
+   /**
+    * Opis jednej łamigłówki, odczytany z wiersza wejścia przez parse().
+    */
+   public static class Puzzle {
+      public int rows, cols;
+      public boolean[] holes;        // holes[row*cols+col] jest true dla kwadratu, który musi pozostać pusty.
+      public PolyominoSet pieceSet;  // Zestaw klocków.
+      public String pieceSpec = "pentominoes";  // Opis zestawu klocków z wiersza wejścia, do wyświetlania.
+      public int sets = 1;           // Liczba egzemplarzy każdego klocka.
+      public String oneSided;        // null, albo litery A/B dla kolejnych klocków z dwiema stronami.
+      public boolean symmetry;       // Liczyć tylko rozwiązania różne z dokładnością do symetrii.
+      public boolean firstOnly;      // Zakończyć po pierwszym rozwiązaniu.
+      public boolean checkForBlocks = true;
+      public int emptySpaces = -1;   // -1 oznacza wartość domyślną.
+
+      /**
+       * Zwraca tablicę pozycji klocków z uwzględnieniem opcji one-sided.
+       */
+      public int[][] pieces() {
+         if (oneSided == null)
+            return pieceSet.getPieceData();
+         boolean[] useSideA = new boolean[pieceSet.getPieceCount() + 1];
+         int k = 0;
+         for (int p = 1; p <= pieceSet.getPieceCount(); p++)
+            if (pieceSet.isChiral(p)) {
+               useSideA[p] = k >= oneSided.length() || Character.toUpperCase(oneSided.charAt(k)) != 'B';
+               k++;
+            }
+         return pieceSet.getOneSided(useSideA);
+      }
+   }
+
+   /**
+    * Wynik rozwiązania jednej łamigłówki.
+    */
+   public static class Result {
+      public long solutionCount;  // Liczba rozwiązań (różnych z dokładnością do symetrii, jeśli była opcja symmetry).
+      public boolean complete;    // false, jeśli wyszukiwanie zakończyło się wcześniej (opcja first).
+      public int[] firstSolution; // Pierwsze rozwiązanie w formacie PentominoSolver.getCurrentSolution(), albo null.
+      public long nodeCount;      // Liczba położonych klocków.
+      public long elapsedTime;    // Czas wyszukiwania w milisekundach.
+      public boolean cached;      // Prawda, jeśli wynik pochodzi z pamięci podręcznej (wtedy nodeCount i elapsedTime są równe 0).
+   }
+
+   /**
+    * Odczytuje łamigłówkę z jednego wiersza wejścia. Zgłasza IllegalArgumentException, jeśli wiersz jest niepoprawny.
+    */
+   public static Puzzle parse(String line) {
+      String[] tokens = line.trim().split("\\s+");
+      Puzzle puzzle = new Puzzle();
+      String[] size = tokens[0].toLowerCase().split("x");
+      if (size.length != 2)
+         throw new IllegalArgumentException("Expected board size such as 8x8, found \"" + tokens[0] + "\".");
+      puzzle.rows = Integer.parseInt(size[0]);
+      puzzle.cols = Integer.parseInt(size[1]);
+      if (puzzle.rows < 1 || puzzle.cols < 1)
+         throw new IllegalArgumentException("Board must have at least one square.");
+      puzzle.holes = new boolean[puzzle.rows*puzzle.cols];
+      puzzle.pieceSet = PolyominoSet.pentominoes();
+      for (int i = 1; i < tokens.length; i++) {
+         String token = tokens[i];
+         int eq = token.indexOf('=');
+         String key = (eq < 0)? token : token.substring(0, eq);
+         String value = (eq < 0)? null : token.substring(eq + 1);
+         if (key.equals("holes") && value != null) {
+            for (String cell : value.split(","))
+               if (cell.length() > 0)
+                  puzzle.holes[parseCell(cell, puzzle.rows, puzzle.cols)] = true;
+         }
+         else if (key.equals("pieces") && value != null) {
+            puzzle.pieceSpec = value;
+            if (value.equals("pentominoes"))
+               puzzle.pieceSet = PolyominoSet.pentominoes();
+            else if (value.matches("[0-9]+"))
+               puzzle.pieceSet = PolyominoSet.all(Integer.parseInt(value));
+            else
+               puzzle.pieceSet = PolyominoSet.get(value.split(";"));
+         }
+         else if (key.equals("sets") && value != null)
+            puzzle.sets = Integer.parseInt(value);
+         else if (key.equals("one-sided"))
+            puzzle.oneSided = (value == null)? "" : value;
+         else if (key.equals("symmetry"))
+            puzzle.symmetry = true;
+         else if (key.equals("first"))
+            puzzle.firstOnly = true;
+         else if (key.equals("noblocks"))
+            puzzle.checkForBlocks = false;
+         else if (key.equals("empty") && value != null)
+            puzzle.emptySpaces = Integer.parseInt(value);
+         else
+            throw new IllegalArgumentException("Unknown option \"" + token + "\".");
+      }
+      if (puzzle.sets < 1)
+         throw new IllegalArgumentException("sets must be at least 1.");
+      return puzzle;
+   }
+
+   private static int parseCell(String cell, int rows, int cols) { // "wiersz:kolumna" albo numer kwadratu.
+      int colon = cell.indexOf(':');
+      int index;
+      if (colon < 0)
+         index = Integer.parseInt(cell);
+      else {
+         int r = Integer.parseInt(cell.substring(0, colon));
+         int c = Integer.parseInt(cell.substring(colon + 1));
+         if (r < 0 || r >= rows || c < 0 || c >= cols)
+            throw new IllegalArgumentException("Hole " + cell + " is outside the board.");
+         index = r*cols + c;
+      }
+      if (index < 0 || index >= rows*cols)
+         throw new IllegalArgumentException("Hole " + cell + " is outside the board.");
+      return index;
+   }
+
+   /**
+    * Rozwiązuje łamigłówkę w bieżącym wątku. Plansze o co najwyżej 64 kwadratach z jednym zestawem klocków
+    * rozwiązuje PentominoSolver, pozostałe LargeBoardSolver.
+    */
+   public static Result solve(Puzzle puzzle) {
+      return solve(puzzle, null);
+   }
+
+   /**
+    * Rozwiązuje łamigłówkę, najpierw sprawdzając pamięć podręczną wyników (może być null). Wynik z pamięci podręcznej
+    * jest używany, jeśli jest pełny albo jeśli wystarcza dla opcji first; nowy wynik jest w niej zapisywany.
+    */
+   public static Result solve(Puzzle puzzle, ResultCache cache) {
+      final Result result = new Result();
+      int cellCount = puzzle.rows*puzzle.cols;
+      int[][] pieces = puzzle.pieces();
+      int[] fit = fit(puzzle);
+      int piecesNeeded = fit[0];
+      int emptySpaces = fit[1];
+      ResultCache.Key cacheKey = null;
+      if (cache != null) {
+         cacheKey = ResultCache.Key.of(puzzle.rows, puzzle.cols, puzzle.holes, pieces, puzzle.oneSided == null,
+                                       puzzle.sets, piecesNeeded, emptySpaces, puzzle.symmetry);
+         ResultCache.Entry cached = cache.get(cacheKey);
+         if (cached != null && (cached.complete || (puzzle.firstOnly && cached.solutions.length > 0))) {
+            result.solutionCount = puzzle.firstOnly? Math.min(1, cached.solutionCount) : cached.solutionCount;
+            result.complete = cached.complete && !(puzzle.firstOnly && cached.solutionCount > 0);
+            if (cached.solutions.length > 0)
+               result.firstSolution = cached.solutions[0];
+            result.cached = true;
+            return result;
+         }
+      }
+      SymmetryGroup symmetry = puzzle.symmetry? new SymmetryGroup(puzzle.rows, puzzle.cols, puzzle.holes, puzzle.oneSided == null) : null;
+      long startTime = System.nanoTime();
+      if (cellCount <= PentominoSolver.MAX_CELLS && puzzle.sets == 1 && puzzle.pieceSet.getPieceCount() <= 31) {
+         final PentominoSolver solver = new PentominoSolver(puzzle.rows, puzzle.cols, pieces);
+         long holeMask = 0;
+         for (int cell = 0; cell < cellCount; cell++)
+            if (puzzle.holes[cell])
+               holeMask |= 1L << cell;
+         solver.setHoles(holeMask);
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setCheckForBlocks(puzzle.checkForBlocks);
+         solver.setSymmetry(symmetry);
+         final boolean firstOnly = puzzle.firstOnly;
+         solver.setListener(new FirstSolution() {
+            public boolean solutionFound(long solutionCount) {
+               if (result.firstSolution == null)
+                  result.firstSolution = solver.getCurrentSolution();
+               return !firstOnly;
+            }
+         });
+         solver.solve();
+         result.solutionCount = solver.getSolutionCount();
+         result.nodeCount = solver.getNodeCount();
+         result.complete = !solver.wasAborted();
+      }
+      else {
+         final LargeBoardSolver solver = new LargeBoardSolver(puzzle.rows, puzzle.cols, pieces);
+         solver.setHoles(puzzle.holes);
+         solver.setCopies(puzzle.sets);
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setCheckForBlocks(puzzle.checkForBlocks);
+         solver.setSymmetry(symmetry);
+         final boolean firstOnly = puzzle.firstOnly;
+         solver.setListener(new FirstSolution() {
+            public boolean solutionFound(long solutionCount) {
+               if (result.firstSolution == null)
+                  result.firstSolution = solver.getCurrentSolution();
+               return !firstOnly;
+            }
+         });
+         solver.solve();
+         result.solutionCount = solver.getSolutionCount();
+         result.nodeCount = solver.getNodeCount();
+         result.complete = !solver.wasAborted();
+      }
+      result.elapsedTime = (System.nanoTime() - startTime) / 1000000;
+      if (cache != null) {
+         try {
+            cache.put(cacheKey, result.solutionCount, result.complete,
+                      result.firstSolution == null? null : java.util.Collections.singletonList(result.firstSolution));
+         }
+         catch (IOException e) {
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Zwraca {liczba klocków do położenia, liczba kwadratów, które zostaną puste} dla łamigłówki, z uwzględnieniem opcji empty.
+    */
+   static int[] fit(Puzzle puzzle) {
+      int pieceSize = puzzle.pieceSet.getPieceSize();
+      int freeCells = 0;
+      for (int cell = 0; cell < puzzle.holes.length; cell++)
+         if (!puzzle.holes[cell])
+            freeCells++;
+      int piecesNeeded = Math.min(puzzle.pieceSet.getPieceCount()*puzzle.sets, freeCells/pieceSize);
+      int emptySpaces = freeCells - pieceSize*piecesNeeded;
+      if (puzzle.emptySpaces >= 0) {
+         if (puzzle.emptySpaces > freeCells || (freeCells - puzzle.emptySpaces) % pieceSize != 0)
+            throw new IllegalArgumentException("empty=" + puzzle.emptySpaces + " does not leave room for whole pieces.");
+         emptySpaces = puzzle.emptySpaces;
+         piecesNeeded = (freeCells - emptySpaces) / pieceSize;
+      }
+      return new int[] {piecesNeeded, emptySpaces};
+   }
+
+   private static abstract class FirstSolution implements PentominoSolver.Listener { // Obserwator, który zapamiętuje tylko rozwiązania.
+      public boolean piecePlaced(int piece, int[] cells) {
+         return true;
+      }
+      public void pieceRemoved(int piece, int[] cells) {
+      }
+   }
+
+   /**
+    * Zamienia wynik na jeden wiersz JSON.
+    */
+   public static String toJson(int line, Puzzle puzzle, Result result) {
+      StringBuilder json = new StringBuilder();
+      json.append("{\"line\":").append(line);
+      json.append(",\"rows\":").append(puzzle.rows).append(",\"cols\":").append(puzzle.cols);
+      json.append(",\"holes\":[");
+      boolean comma = false;
+      for (int cell = 0; cell < puzzle.holes.length; cell++)
+         if (puzzle.holes[cell]) {
+            if (comma)
+               json.append(',');
+            json.append(cell);
+            comma = true;
+         }
+      json.append("],\"pieces\":").append(quote(puzzle.pieceSpec));
+      if (puzzle.sets > 1)
+         json.append(",\"sets\":").append(puzzle.sets);
+      if (puzzle.oneSided != null)
+         json.append(",\"oneSided\":").append(quote(puzzle.oneSided));
+      json.append(",\"symmetry\":").append(puzzle.symmetry);
+      json.append(",\"solutions\":").append(result.solutionCount);
+      json.append(",\"complete\":").append(result.complete);
+      json.append(",\"nodes\":").append(result.nodeCount);
+      json.append(",\"ms\":").append(result.elapsedTime);
+      if (result.cached)
+         json.append(",\"cached\":true");
+      if (result.firstSolution != null) {
+         json.append(",\"first\":[");
+         for (int r = 0; r < puzzle.rows; r++) {
+            json.append(r == 0? "[" : ",[");
+            for (int c = 0; c < puzzle.cols; c++) {
+               if (c > 0)
+                  json.append(',');
+               json.append(result.firstSolution[r*puzzle.cols + c]);
+            }
+            json.append(']');
+         }
+         json.append(']');
+      }
+      json.append('}');
+      return json.toString();
+   }
+
+   private static String quote(String s) { // Napis JSON w cudzysłowach.
+      StringBuilder q = new StringBuilder("\"");
+      for (int i = 0; i < s.length(); i++) {
+         char ch = s.charAt(i);
+         if (ch == '"' || ch == '\\')
+            q.append('\\').append(ch);
+         else if (ch < ' ')
+            q.append(String.format("\\u%04x", (int)ch));
+         else
+            q.append(ch);
+      }
+      return q.append('"').toString();
+   }
+
+   public static void main(String[] args) throws IOException, InterruptedException {
+      int threads = Runtime.getRuntime().availableProcessors();
+      String inputName = "-";
+      String outputName = null;
+      String cacheName = null;
+      boolean useCache = true;
+      for (int i = 0; i < args.length; i++) {
+         if (args[i].equals("-t") && i + 1 < args.length)
+            threads = Math.max(1, Integer.parseInt(args[++i]));
+         else if (args[i].equals("-o") && i + 1 < args.length)
+            outputName = args[++i];
+         else if (args[i].equals("-c") && i + 1 < args.length)
+            cacheName = args[++i];
+         else if (args[i].equals("-nocache"))
+            useCache = false;
+         else
+            inputName = args[i];
+      }
+      final ResultCache cache;
+      if (!useCache)
+         cache = null;
+      else if (cacheName != null)
+         cache = ResultCache.open(new java.io.File(cacheName));
+      else
+         cache = ResultCache.getDefault();
+      BufferedReader in = new BufferedReader(new InputStreamReader(
+            inputName.equals("-")? System.in : new FileInputStream(inputName), StandardCharsets.UTF_8));
+      final PrintWriter out = new PrintWriter(new OutputStreamWriter(
+            outputName == null? System.out : new FileOutputStream(outputName), StandardCharsets.UTF_8));
+      // Ograniczona kolejka: gdy pula nie nadąża, wątek czytający sam rozwiązuje łamigłówkę, więc wejście nie jest wczytywane całe do pamięci.
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(4*threads), new ThreadPoolExecutor.CallerRunsPolicy());
+      final AtomicLong solved = new AtomicLong();
+      final AtomicLong failed = new AtomicLong();
+      final AtomicLong nodes = new AtomicLong();
+      long startTime = System.nanoTime();
+      String text;
+      int lineNumber = 0;
+      while ((text = in.readLine()) != null) {
+         lineNumber++;
+         final String line = text.trim();
+         if (line.length() == 0 || line.startsWith("#"))
+            continue;
+         final int number = lineNumber;
+         pool.execute(new Runnable() {
+            public void run() {
+               String json;
+               try {
+                  Puzzle puzzle = parse(line);
+                  Result result = solve(puzzle, cache);
+                  json = toJson(number, puzzle, result);
+                  solved.incrementAndGet();
+                  nodes.addAndGet(result.nodeCount);
+               }
+               catch (RuntimeException e) {
+                  json = "{\"line\":" + number + ",\"error\":" + quote(String.valueOf(e.getMessage())) + "}";
+                  failed.incrementAndGet();
+               }
+               synchronized (out) {
+                  out.println(json);
+               }
+            }
+         });
+      }
+      in.close();
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      double seconds = (System.nanoTime() - startTime) / 1e9;
+      long total = solved.get() + failed.get();
+      out.println("{\"summary\":true,\"puzzles\":" + total + ",\"errors\":" + failed.get()
+            + ",\"nodes\":" + nodes.get() + ",\"threads\":" + threads
+            + ",\"seconds\":" + String.format(java.util.Locale.ROOT, "%.3f", seconds)
+            + ",\"puzzlesPerSecond\":" + String.format(java.util.Locale.ROOT, "%.1f", seconds > 0? total / seconds : 0.0) + "}");
+      out.flush();
+      if (outputName != null)
+         out.close();
+      if (cache != null)
+         cache.close();
+   }
+
+}
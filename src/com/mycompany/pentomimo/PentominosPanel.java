@@ -13,7 +13,11 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -30,19 +34,20 @@ import javax.swing.*;
 public class PentominosPanel extends JPanel {
    
    private MosaicPanel board;  // Wyświetlanie planszy na ekranie
+   private transient BoardRenderer renderer;  // Rysuje ruchy silnika na planszy z EDT, w stałym tempie klatek.
    
    private JLabel comment;   // komentarz statusu wyświetlany pod planszą
    
-   private boolean[] used = new boolean[13];  //  used[i] informuje, czy element o numerze i jest już na planszy
+   private int[] used = new int[13];  //  used[i] to liczba egzemplarzy elementu o numerze i, które są już na planszy
    
-   private int numused;     // Liczba elementów obecnie na planszy, od 0 do 12.
+   private int numused;     // Liczba elementów obecnie na planszy, od 0 do piecesNeeded.
    
    private GameThread gameThread = null;   // Wątek do uruchomienia procedury rozwiązywania łamigłówki.
    
    private JMenuItem restartAction,restartClearAction,restartRandomAction;  // Pozycje menu dla poleceń użytkownika.
     private JMenuItem goAction,pauseAction,stepAction,saveAction,quitAction; 
     private JMenuItem oneSidedAction;
-    private JCheckBoxMenuItem randomizePiecesChoice, checkForBlocksChoice, symmetryCheckChoice;
+    private JCheckBoxMenuItem randomizePiecesChoice, checkForBlocksChoice, symmetryCheckChoice, dancingLinksChoice, parallelChoice, countOnlyChoice, mostConstrainedChoice;
 
    private JRadioButtonMenuItem[] speedChoice = new JRadioButtonMenuItem[7];  // Pozycje menu do ustawiania prędkości.
    
@@ -54,18 +59,17 @@ public class PentominosPanel extends JPanel {
    private boolean creatingBoard;  // To jest prawdą, gdy użytkownik ustawia planszę.
    private int clickCt;  // Liczba kwadratów, które zostały zamalowane przez użytkownika - patrz w rutynie mousePressed.
    
-   private final static int GO_MESSAGE = 1;      // Wartości dla zmiennej message.   
-   private final static int STEP_MESSAGE = 2;
-   private final static int PAUSE_MESSAGE = 3;
-   private final static int RESTART_MESSAGE = 4;
-   private final static int RESTART_CLEAR_MESSAGE = 5;
-   private final static int RESTART_RANDOM_MESSAGE = 6;
-   private final static int TERMINATE_MESSAGE = 7;
+   private enum Command {  // Polecenia wysyłane do wątku gry; polecenia od RESTART w górę przerywają rozwiązywanie.
+      GO, STEP, PAUSE, SPEED, RESTART, RESTART_CLEAR, RESTART_RANDOM, TERMINATE
+   }
+   private final static int CHECK_BUDGET = 64;  // Przy prędkości 0 i 1 polecenia są sprawdzane co tyle położonych klocków.
+   private final static long CHECKPOINT_INTERVAL = 60000;  // Odstęp (w milisekundach) między punktami kontrolnymi w trybie "Count Solutions Only".
    
    
    private int rows, cols;  // Liczba wierszy i kolumn na planszy.
    
-   private int piecesNeeded; // Ile elementów potrzeba, aby wypełnić planszę tak dużo, jak to możliwe. Zawsze <= 12.
+   private int pieceSets;    // Liczba kompletów 12 pentomin; każdy klocek może być użyty pieceSets razy.
+   private int piecesNeeded; // Ile elementów potrzeba, aby wypełnić planszę tak dużo, jak to możliwe. Zawsze <= 12*pieceSets.
    private int spareSpaces;  // Liczba dodatkowych pustych miejsc po umieszczeniu wymaganej liczby elementów.
    
    
@@ -104,30 +108,30 @@ public class PentominosPanel extends JPanel {
          if (source == restartAction) {
             pauseAction.setEnabled(false);
             stepAction.setEnabled(false);
-            gameThread.setMessage(RESTART_MESSAGE);
+            gameThread.send(Command.RESTART);
          }
          else if (source == restartClearAction) {
             pauseAction.setEnabled(false);
             stepAction.setEnabled(false);
-            gameThread.setMessage(RESTART_CLEAR_MESSAGE);
+            gameThread.send(Command.RESTART_CLEAR);
          }
          else if (source == restartRandomAction) {
             pauseAction.setEnabled(false);
             stepAction.setEnabled(false);
-            gameThread.setMessage(RESTART_RANDOM_MESSAGE);
+            gameThread.send(Command.RESTART_RANDOM);
          }
          else if (source == goAction) {
             pauseAction.setEnabled(true);
             stepAction.setEnabled(false);
-            gameThread.setMessage(GO_MESSAGE);
+            gameThread.send(Command.GO);
          }
          else if (source == pauseAction) {
             pauseAction.setEnabled(false);
             stepAction.setEnabled(true);
-            gameThread.setMessage(PAUSE_MESSAGE);
+            gameThread.send(Command.PAUSE);
          }
          else if (source == stepAction) {
-            gameThread.setMessage(STEP_MESSAGE);
+            gameThread.send(Command.STEP);
          }
          else if (source == checkForBlocksChoice)
             gameThread.checkForBlocks = checkForBlocksChoice.isSelected();
@@ -135,6 +139,14 @@ public class PentominosPanel extends JPanel {
             gameThread.randomizePieces = randomizePiecesChoice.isSelected();
          else if (source == symmetryCheckChoice)
             gameThread.symmetryCheck = symmetryCheckChoice.isSelected();
+         else if (source == dancingLinksChoice)
+            gameThread.useDancingLinks = dancingLinksChoice.isSelected();
+         else if (source == parallelChoice)
+            gameThread.useParallelSearch = parallelChoice.isSelected();
+         else if (source == countOnlyChoice)
+            gameThread.countOnly = countOnlyChoice.isSelected();
+         else if (source == mostConstrainedChoice)
+            gameThread.mostConstrained = mostConstrainedChoice.isSelected();
          else if (source == oneSidedAction)
             doOneSidedCommand();
          else if (source == saveAction)
@@ -155,10 +167,7 @@ public class PentominosPanel extends JPanel {
                delay = 0;
             else
                delay = speedDelay[selectedSpeed-2];
-            if (gameThread.running)
-               board.setAutopaint( selectedSpeed > 1 );
-            board.repaint();
-            gameThread.doDelay(25);
+            gameThread.send(Command.SPEED);  // Budzi wątek gry, aby nowe opóźnienie działało od razu.
          }
       }
    };
@@ -174,75 +183,15 @@ public class PentominosPanel extends JPanel {
     * Jeśli osiem liczb opisujących klocek to (a,b,c,d,e,f,g,h), 
     * to gdy klocek jest umieszczany na planszy z narożnym górnym lewym kwadratem na pozycji (r,c), 
     * pozostałe kwadraty znajdą się na pozycjach (r+a,c+b), (r+c,c+d), (r+e,c+f) i (r+g,c+h). 
-    * Ta reprezentacja jest używana w metodach putPiece() i removePiece().
+    * Z tej reprezentacji PlacementTable oblicza pozycje klocków dla silników.
+    * Tablicę tworzy PolyominoSet.pentominoes(): dla każdego klocka najpierw obroty strony A, potem obroty strony B.
+    * Tablica jest wspólna i nie może być modyfikowana.
     */
-   private  static final int[][] piece_data = {
-      { 1, 0,1,0,2,0,3,0,4 },  // Opisuje klocek 1 (pentomino "I") w jego poziomej orientacji.
-      { 1, 1,0,2,0,3,0,4,0 },  // Opisuje klocek 1 (pentomino "I") w jego pionowej orientacji.
-      { 2, 1,-1,1,0,1,1,2,0 }, // Pentomino "X" w swojej jedynie orientacji.
-      { 3, 0,1,1,0,2,-1,2,0 }, // itd.
-      { 3, 1,0,1,1,1,2,2,2 },
-      { 3, 0,1,1,1,2,1,2,2 },
-      { 3, 1,-2,1,-1,1,0,2,-2 },
-      { 4, 1,0,2,0,2,1,2,2 },
-      { 4, 0,1,0,2,1,0,2,0 },
-      { 4, 1,0,2,-2,2,-1,2,0 },
-      { 4, 0,1,0,2,1,2,2,2 },
-      { 5, 0,1,0,2,1,1,2,1 },
-      { 5, 1,-2,1,-1,1,0,2,0 },
-      { 5, 1,0,2,-1,2,0,2,1 },
-      { 5, 1,0,1,1,1,2,2,0 },
-      { 6, 1,0,1,1,2,1,2,2 },
-      { 6, 1,-1,1,0,2,-2,2,-1 },
-      { 6, 0,1,1,1,1,2,2,2 },
-      { 6, 0,1,1,-1,1,0,2,-1 },
-      { 7, 0,1,0,2,1,0,1,2 },
-      { 7, 0,1,1,1,2,0,2,1 },
-      { 7, 0,2,1,0,1,1,1,2 },
-      { 7, 0,1,1,0,2,0,2,1 },
-      { 8, 1,0,1,1,1,2,1,3 },
-      { 8, 1,0,2,0,3,-1,3,0 },
-      { 8, 0,1,0,2,0,3,1,3 },
-      { 8, 0,1,1,0,2,0,3,0 },
-      { 8, 0,1,1,1,2,1,3,1 },
-      { 8, 0,1,0,2,0,3,1,0 },
-      { 8, 1,0,2,0,3,0,3,1 },
-      { 8, 1,-3,1,-2,1,-1,1,0 },
-      { 9, 0,1,1,-2,1,-1,1,0 },
-      { 9, 1,0,1,1,2,1,3,1 },
-      { 9, 0,1,0,2,1,-1,1,0 },
-      { 9, 1,0,2,0,2,1,3,1 },
-      { 9, 0,1,1,1,1,2,1,3 },
-      { 9, 1,0,2,-1,2,0,3,-1 },
-      { 9, 0,1,0,2,1,2,1,3 },
-      { 9, 1,-1,1,0,2,-1,3,-1 },
-      { 10, 1,-2,1,-1,1,0,1,1 },
-      { 10, 1,-1,1,0,2,0,3,0 },
-      { 10, 0,1,0,2,0,3,1,1 },
-      { 10, 1,0,2,0,2,1,3,0 },
-      { 10, 0,1,0,2,0,3,1,2 },
-      { 10, 1,0,1,1,2,0,3,0 },
-      { 10, 1,-1,1,0,1,1,1,2 },
-      { 10, 1,0,2,-1,2,0,3,0 },
-      { 11, 1,-1,1,0,1,1,2,1 },
-      { 11, 0,1,1,-1,1,0,2,0 },
-      { 11, 1,0,1,1,1,2,2,1 },
-      { 11, 1,0,1,1,2,-1,2,0 },
-      { 11, 1,-2,1,-1,1,0,2,-1 },
-      { 11, 0,1,1,1,1,2,2,1 },
-      { 11, 1,-1,1,0,1,1,2,-1 },
-      { 11, 1,-1,1,0,2,0,2,1 },
-      { 12, 0,1,1,0,1,1,2,1 },
-      { 12, 0,1,0,2,1,0,1,1 },
-      { 12, 1,0,1,1,2,0,2,1 },
-      { 12, 0,1,1,-1,1,0,1,1 },
-      { 12, 0,1,1,0,1,1,1,2 },
-      { 12, 1,-1,1,0,2,-1,2,0 },
-      { 12, 0,1,0,2,1,1,1,2 },
-      { 12, 0,1,1,0,1,1,2,0 }
-   };
+   private static final int[][] piece_data = PolyominoSet.pentominoes().getPieceData();
+
+   private static final int piece_size = PolyominoSet.pentominoes().getPieceSize();  // Liczba kwadratów klocka (5).
    
-   private Color pieceColor[] = {  // Kolory kształtów numer 1 do 12; pieceColor[0] nie jest używany.
+   final static Color pieceColor[] = {  // Kolory kształtów numer 1 do 12; pieceColor[0] nie jest używany. Także dla SolutionImages.
          null,
          new Color(200,0,0),
          new Color(150,150,255),
@@ -258,39 +207,9 @@ public class PentominosPanel extends JPanel {
          new Color(150,255,150)
    };
    
-   private final static Color emptyColor = Color.BLACK; // Kolor kwadratu, który użytkownik wybrał, aby pozostał pusty.
+   final static Color emptyColor = Color.BLACK; // Kolor kwadratu, który użytkownik wybrał, aby pozostał pusty.
    
-   private static final int SYMMETRY_NONE = -1;   // Potencjalne typy symetrii planszy, używane w GameThread.checkSymmetries.
-   private static final int SYMMETRY_V = 0;
-   private static final int SYMMETRY_H = 1;
-   private static final int SYMMETRY_R180 = 2;
-   private static final int SYMMETRY_HV = 3;   // R180
-   private static final int SYMMETRY_D1 = 4;
-   private static final int SYMMETRY_D2 = 5;
-   private static final int SYMMETRY_D1D2 = 6;  // R180
-   private static final int SYMMETRY_R90 = 7;   // R180, R270
-   private static final int SYMMETRY_ALL = 8;
-   
-   private static final int[][] remove_for_symmetry = { // Usuwanie kawałków pozwala eliminować rozwiązania, które są tylko odbiciami lub obrótami innych rozwiązań.
-      { 9,10 },  // Kawałki do usunięcia dla typu symetrii 0 = SYMMETRY_V, itd.
-      { 8,10 }, 
-      { 9,10 },
-      { 8,9,10 },
-      { 1 },
-      { 1 },
-      { 12, 13, 14 },
-      { 8,9,10},
-      { 1,8,9,10}
-   };
-
-   private final static int[][][] side_info = { // Pozycje kawałków dla obu stron dwustronnych pentominos; używane w implementacji polecenia "One Sided".
-      { {27, 28, 29, 30}, {23, 24, 25, 26} }, // Strony A i B dla pentomino "L".
-      { {35, 36, 37, 38}, {31, 32, 33, 34} }, // dla "N" 
-      { {43, 44, 45, 46}, {39, 40, 41, 42} }, // dla "Y" 
-      { {47, 48, 49, 50}, {51, 52, 53, 54} }, // dla "R" 
-      { {59, 60, 61, 62}, {55, 56, 57, 58} }, // dla "P" 
-      { {3, 4}, {5, 6} }                      // dla "Z" 
-   };
+   private final static int[] two_sided = { 8, 9, 10, 11, 12, 3 }; // Klocki z dwiema stronami ("L", "N", "Y", "R", "P", "Z") w kolejności z okna "One Sided".
    
       
    /**
@@ -305,11 +224,20 @@ public class PentominosPanel extends JPanel {
     * Jeśli opcja "autostart" jest ustawiona na "true", program tworzy losową planszę i rozpoczyna rozwiązywanie natychmiast.*
     */
    public PentominosPanel(int rowCt, int colCt, boolean autostart) {
+      this(rowCt,colCt,autostart,1);
+   }
+   
+   /**
+    * Tworzy planszę pentominos o określonej liczbie wierszy i kolumn, na której można użyć "sets" kompletów klocków
+    * (każdy z 12 klocków w "sets" egzemplarzach). Duże plansze (na przykład 10 na 12 dla dwóch kompletów) rozwiązuje LargeBoardSolver.
+    */
+   public PentominosPanel(int rowCt, int colCt, boolean autostart, int sets) {
       
       setLayout(new BorderLayout(5,5));
       setBackground(Color.LIGHT_GRAY);
       
       rows = rowCt;
+      pieceSets = Math.max(1, sets);
       if (rows < 3)
          rows = 8;
       if (cols < 3)
@@ -333,6 +261,7 @@ public class PentominosPanel extends JPanel {
       board.setDefaultColor(Color.WHITE);
       board.setGroutingColor(Color.LIGHT_GRAY);
       add(board,BorderLayout.CENTER);
+      renderer = new BoardRenderer(board, pieceColor);
       
       comment = new JLabel("", JLabel.CENTER);
       comment.setFont(new Font("TimesRoman", Font.BOLD, 14));
@@ -350,7 +279,12 @@ public class PentominosPanel extends JPanel {
       quitAction = new JMenuItem("Quit");
       randomizePiecesChoice = new JCheckBoxMenuItem("Randomize Order of Pieces");
       checkForBlocksChoice = new JCheckBoxMenuItem("Check for Obvious Blocking");
+      checkForBlocksChoice.setSelected(true);  // Przyrostowe sprawdzanie w silnikach bitowych zawsze się opłaca, więc jest domyślnie włączone.
       symmetryCheckChoice = new JCheckBoxMenuItem("Symmetry Check");
+      dancingLinksChoice = new JCheckBoxMenuItem("Use Dancing Links (Algorithm X)");
+      parallelChoice = new JCheckBoxMenuItem("Parallel Search (No Animation)");
+      countOnlyChoice = new JCheckBoxMenuItem("Count Solutions Only (No Display)");
+      mostConstrainedChoice = new JCheckBoxMenuItem("Most Constrained Square First (Fewer Moves, Slower)");
       oneSidedAction  = new JMenuItem("One Sided [Currently OFF]...");
       
       String commandKey;
@@ -374,6 +308,10 @@ public class PentominosPanel extends JPanel {
       randomizePiecesChoice.addActionListener(menuHandler);
       checkForBlocksChoice.addActionListener(menuHandler);
       symmetryCheckChoice.addActionListener(menuHandler);
+      dancingLinksChoice.addActionListener(menuHandler);
+      parallelChoice.addActionListener(menuHandler);
+      countOnlyChoice.addActionListener(menuHandler);
+      mostConstrainedChoice.addActionListener(menuHandler);
       oneSidedAction.addActionListener(menuHandler);
       goAction.setAccelerator(KeyStroke.getKeyStroke(commandKey + "G"));
       pauseAction.setAccelerator(KeyStroke.getKeyStroke(commandKey + "P"));
@@ -400,10 +338,10 @@ public class PentominosPanel extends JPanel {
       
       board.addMouseListener(mouseHandler);
       
-      piecesNeeded = (rows*cols)/5;
-      if (piecesNeeded > 12)
-         piecesNeeded = 12;
-      spareSpaces = rows*cols - 5*piecesNeeded;
+      piecesNeeded = (rows*cols)/piece_size;
+      if (piecesNeeded > 12*pieceSets)
+         piecesNeeded = 12*pieceSets;
+      spareSpaces = rows*cols - piece_size*piecesNeeded;
       if (spareSpaces > 0)
          comment.setText("Click (up to) " + spareSpaces + " squares");
       creatingBoard = spareSpaces > 0;
@@ -415,7 +353,7 @@ public class PentominosPanel extends JPanel {
       gameThread = new GameThread();
       
       if (autostart) {
-         gameThread.setMessage(RESTART_RANDOM_MESSAGE);
+         gameThread.send(Command.RESTART_RANDOM);
          pauseAction.setEnabled(true);
          stepAction.setEnabled(false);
          creatingBoard = false;
@@ -453,9 +391,16 @@ public class PentominosPanel extends JPanel {
       control.addSeparator();
       control.add(checkForBlocksChoice);
       control.add(randomizePiecesChoice);
-      if (rows*cols >= 60)
-         control.add(symmetryCheckChoice);  // Dodaj tylko, jeśli plansza może pomieścić wszystkie 12 elementów.
+      control.add(symmetryCheckChoice);
       control.add(oneSidedAction);
+      boolean bitboard = rows*cols <= PentominoSolver.MAX_CELLS && pieceSets == 1;  // Plansza mieści się w masce bitowej i każdy klocek jest jeden.
+      if (pieceSets == 1)
+         control.add(dancingLinksChoice);
+      if (bitboard)
+         control.add(parallelChoice);  // Dodaj tylko, jeśli plansza mieści się w masce bitowej.
+      control.add(countOnlyChoice);  // Duże plansze liczy LargeBoardSolver, a długie, wąskie plansze StripCounter.
+      if (bitboard)
+         control.add(mostConstrainedChoice);
       if (includeSaveAndQuit) {
          control.addSeparator();
          control.add(saveAction);
@@ -474,10 +419,20 @@ public class PentominosPanel extends JPanel {
          randomizePiecesChoice.setSelected(gameThread.randomizePieces);
          gameThread.checkForBlocks = (getOptionsFromThisOne.checkForBlocksChoice.isSelected());
          checkForBlocksChoice.setSelected(gameThread.checkForBlocks);
-         if (rows*cols >= 60) {
-            gameThread.symmetryCheck = getOptionsFromThisOne.symmetryCheckChoice.isSelected();
-            symmetryCheckChoice.setSelected(gameThread.symmetryCheck);
+         gameThread.symmetryCheck = getOptionsFromThisOne.symmetryCheckChoice.isSelected();
+         symmetryCheckChoice.setSelected(gameThread.symmetryCheck);
+         if (pieceSets == 1) {
+            gameThread.useDancingLinks = getOptionsFromThisOne.dancingLinksChoice.isSelected();
+            dancingLinksChoice.setSelected(gameThread.useDancingLinks);
          }
+         if (bitboard) {
+            gameThread.useParallelSearch = getOptionsFromThisOne.parallelChoice.isSelected();
+            parallelChoice.setSelected(gameThread.useParallelSearch);
+            gameThread.mostConstrained = getOptionsFromThisOne.mostConstrainedChoice.isSelected();
+            mostConstrainedChoice.setSelected(gameThread.mostConstrained);
+         }
+         gameThread.countOnly = getOptionsFromThisOne.countOnlyChoice.isSelected();
+         countOnlyChoice.setSelected(gameThread.countOnly);
          gameThread.useOneSidedPieces = getOptionsFromThisOne.gameThread.useOneSidedPieces; 
          if (gameThread.useOneSidedPieces)
             oneSidedAction.setText("One Sided [Currently ON]...");
@@ -618,9 +573,13 @@ public class PentominosPanel extends JPanel {
     * Jest to używane w klasie ramki, Pentominos.java.
     */
    synchronized public void terminate() {
-      gameThread.setMessage(TERMINATE_MESSAGE);
+      gameThread.send(Command.TERMINATE);
       notify();
-      gameThread.doDelay(25);
+      try {
+         gameThread.join(25);
+      }
+      catch (InterruptedException e) {
+      }
       board = null;
    }
    
@@ -628,180 +587,429 @@ public class PentominosPanel extends JPanel {
    
    private class GameThread extends Thread {  // To powinno być wywoływane, aby zakończyć wątek gry tuż przed odrzuceniem tego panelu PentominosPanel. Jest to używane w klasie ramki, Pentominos.java.
 
-      int moveCount;        // Ile kawałków zostało dotąd umieszczonych?
-      int movesSinceCheck;  // Ile ruchów zostało wykonanych od ostatniego przerysowania planszy, działając z prędkością #1?
-      int solutionCount;    // Ile dotychczas znaleziono rozwiązań?
+      long moveCount;       // Ile kawałków zostało dotąd umieszczonych?
+      long solutionCount;   // Ile dotychczas znaleziono rozwiązań?
+      long elapsedTime;     // Czas wyszukiwania w milisekundach, pokazywany po zakończeniu trybu "Count Solutions Only"; -1, jeśli nie jest znany.
 
       volatile boolean running;   // Prawda, gdy proces rozwiązywania jest uruchomiony (a nie wstrzymany).
 
-      boolean aborted;  // Używane w funkcji play() do sprawdzenia, czy proces rozwiązania został przerwany przez "restart".
+      boolean aborted;  // Prawda, jeśli proces rozwiązania został przerwany przez "restart".
+      boolean overflow; // Prawda, jeśli liczba rozwiązań w trybie "Count Solutions Only" nie zmieściła się w typie long.
 
-      volatile int message = 0;  // "message" jest używane przez wątek interfejsu użytkownika do przesyłania komunikatów kontrolnych do wątku gry. 
-      // Wartość 0 oznacza "no message".
+      final CommandChannel<Command> channel = new CommandChannel<Command>();  // Polecenia od wątku interfejsu użytkownika, w kolejności wysłania.
+      Command message;  // Polecenie pobrane z kanału, ale jeszcze nieobsłużone; null oznacza brak. Używane tylko przez wątek gry.
+      int checkBudget;  // Ile jeszcze położonych klocków do następnego sprawdzenia poleceń (patrz checkMessages).
       
       int[][] pieces;  // Pieces to położone kawałki, które mogą być albo bezpośrednią kopią danych o kawałkach, albo kopią z losowym porządkiem.
 
       volatile boolean randomizePieces;  // Jeśli wartość jest równa „true”, tablica kawałków jest losowo zamieniana na początku rozgrywki.
-      volatile boolean checkForBlocks;   // Jeśli wartość jest równa „true”, sprawdzane jest oczywiste blokowanie.
+      volatile boolean checkForBlocks = true;   // Jeśli wartość jest równa „true”, sprawdzane jest oczywiste blokowanie.
       volatile boolean symmetryCheck;    // Jeśli wartość jest równa „true”, to sprawdzana jest symetria planszy, a jeśli ma jakąkolwiek symetrię,
-// niektóre elementy są usuwane z listy, aby uniknąć zbędnych rozwiązań.
+// rozwiązania, które są tylko jej obrotami lub odbiciami, są pomijane (przez SymmetryGroup w silnikach).
       volatile boolean useOneSidedPieces;// Jeśli wartość jest równa „true”, to używana jest tylko jedna strona dwustronnych elementów.
+      SymmetryGroup symmetry;  // Symetrie planszy, gdy symmetryCheck jest true; w przeciwnym razie null.
       
+      volatile boolean countOnly;  // Jeśli wartość jest równa „true”, rozwiązania są tylko liczone, bez rysowania planszy i bez opóźnień.
+      volatile boolean mostConstrained;  // Jeśli wartość jest równa „true”, PentominoSolver zaczyna od kwadratu z najmniejszą liczbą pasujących pozycji (mniej ruchów, ale wolniej).
+      volatile boolean useParallelSearch;  // Jeśli wartość jest równa „true”, wszystkie rozwiązania są szukane równolegle przez ParallelSolver, bez animacji.
+      volatile boolean useDancingLinks;  // Jeśli wartość jest równa „true”, łamigłówka jest rozwiązywana przez DancingLinksSolver zamiast przez przeszukiwanie kwadrat po kwadracie.
+
        volatile boolean[] useSideA;  //Kiedy useOneSidedPieces jest ustawione na true, ta tablica określa, która strona ma być używana dla każdego elementu dwustronnego.
-//Dane dotyczące dwóch stron każdego elementu przechowywane są w side_info.
+//Elementy dwustronne są wymienione w two_sided, a ich strony zwraca PolyominoSet.getSide().
       
       int[][] blockCheck;  // To jest używane do sprawdzania blokady.
       int blockCheckCt;  // Liczba razy, jakie sprawdzenie blokady zostało uruchomione - używane do kontroli rekurencyjnego zliczania zamiast używania tylko tablicy boolowskiej.
       int emptySpaces; // spareSpaces - (liczba czarnych pól); liczba pól, które będą puste w rozwiązaniu.
-      
-      int squaresLeftEmpty;  // Kwadraty, które są rzeczywiście pozostawione puste w rozwiązaniu do tej pory.
-      
-      boolean putPiece(int p, int row, int col) {  // Spróbuj umieścić kawałek na planszy i zwróć true, jeśli pasuje.
-         if (board.getColor(row,col) != null)
-            return false;
-         for (int i = 1; i < 8; i += 2) {
-            if (row+pieces[p][i] < 0 || row+pieces[p][i] >= rows || col+pieces[p][i+1] < 0 || col+pieces[p][i+1] >= cols)
-               return false;
-            else if (board.getColor(row+pieces[p][i],col+pieces[p][i+1]) != null)  // Jedno z potrzebnych pól jest już zajęte.
+
+      boolean stepping;  // Prawda, gdy po ostatnio położonym kawałku należy zrobić pauzę (polecenie "Pause" lub "Step").
+
+      boolean checkMessages() { // Obsługuje wiadomości od użytkownika po położeniu kawałka; zwraca false, jeśli rozwiązywanie zostało przerwane przez "restart".
+         // Przy pełnej prędkości kanał jest sprawdzany co CHECK_BUDGET klocków (to kilkaset mikrosekund), a nie po każdym klocku.
+         stepping = false;
+         if (--checkBudget > 0)
+            return true;
+         checkBudget = (delay == 0)? CHECK_BUDGET : 1;
+         if (nextMessage() != null) {  // Test na "wiadomości" generowane przez działania użytkownika.
+            if (message == Command.PAUSE || message == Command.STEP) {
+               stepping = true;
+               renderer.flush();  // Na ekranie ma być dokładnie stan, w którym nastąpiła pauza.
+               running = false;
+               saveAction.setEnabled(true);
+               message = null;
+            }
+            else if (message.compareTo(Command.RESTART) >= 0) {
+               aborted = true;
                return false;
+            }
+            else if (message == Command.SPEED)
+               message = null;  // Nowa prędkość jest już w polu delay.
+            else {
+               running = true;
+               saveAction.setEnabled(false);
+               comment.setText("Solving...");
+               message = null;
+            }
          }
-         board.setColor(row,col,pieceColor[pieces[p][0]]);
-         for (int i = 1; i < 8; i += 2)
-            board.setColor(row + pieces[p][i], col + pieces[p][i+1], pieceColor[pieces[p][0]]);
          return true;
       }
-      
-      void removePiece(int p, int row, int col) { // usuń p z planszy, na pozycji (row,col)
-         board.setColor(row,col,null);
-         for (int i = 1; i < 9; i += 2) {
-            board.setColor(row + pieces[p][i], col + pieces[p][i+1], null);
+
+      void showSolution() { // Pokazuje znalezione rozwiązanie i, zależnie od prędkości, czeka na polecenie użytkownika.
+         renderer.flush();  // Rozwiązanie jest pokazywane, nawet jeśli EDT nie pobrał jeszcze poprzedniej klatki.
+         if (selectedSpeed == 0) {
+            comment.setText("Solution #" + solutionCount + "...  (" + moveCount + " moves)");
+            doDelay(50);  // W prędkości 0, zatrzymaj się tylko na chwilę, gdy rozwiązanie zostanie znalezione.
+         }
+         else {
+            stepAction.setEnabled(true);
+            pauseAction.setEnabled(false);
+            running = false;
+            saveAction.setEnabled(true);
+            comment.setText("Solution #" + solutionCount + "  (" + moveCount + " moves)");
+            doDelay(-1);  // Czekaj czas nieokreślony na polecenie użytkownika w celu ponownego uruchomienia rozwiązania, kroku itp.
+            running = true;
+            saveAction.setEnabled(false);
+            comment.setText(stepping? "Paused." : "Solving...");
          }
       }
-      
-      void play(int row, int col) {   //Rekurencyjna procedura, która próbuje rozwiązać łamigłówkę. 
-          //Parametr "square" to numer kolejnego pustego pola do wypełnienia. 
-          //Ta procedura obsługuje wszystkie szczegóły dotyczące prędkości, pauzy i kroków rozwiązywania łamigłówki.
-         for (int p=0; p<pieces.length; p++) {
-            if (!aborted && (used[pieces[p][0]] == false)) {
-               if (!putPiece(p,row,col))
-                  continue;
-               if (checkForBlocks && obviousBlockExists()) {
-                  removePiece(p,row,col);
-                  continue;
+
+      void pauseOrDelay() { // Pauza lub opóźnienie po położeniu kawałka, który nie kończy rozwiązania.
+         if (stepping) {  // Pauza po umieszczeniu kawałka.
+            comment.setText("Paused.");
+            doDelay(-1);  // Czekaj nieskończoność czasu na polecenie.
+         }
+         else if (delay > 0)
+            doDelay(delay);
+      }
+
+      void solveWithEngine() { // Rozwiązuje łamigłówkę za pomocą PentominoSolver; plansza na ekranie jedynie obserwuje silnik.
+         PentominoSolver solver = new PentominoSolver(rows, cols, pieces);
+         solver.setHoles(holeMask());
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setCheckForBlocks(checkForBlocks);
+         solver.setSymmetry(symmetry);
+         solver.setMostConstrained(mostConstrained);
+         solver.setListener(new BoardObserver());
+         SolverMonitor monitor = SolverMonitor.register(solver, rows + "x" + cols);
+         renderer.begin(boardState(), cols);
+         try {
+            solver.solve();
+         }
+         finally {
+            renderer.end();
+            monitor.unregister();
+         }
+         if (solver.wasAborted())
+            aborted = true;
+      }
+
+      void solveLargeBoard() { // Rozwiązuje łamigłówkę za pomocą LargeBoardSolver: plansza większa niż 64 kwadraty albo kilka kompletów klocków.
+         LargeBoardSolver solver = new LargeBoardSolver(rows, cols, pieces);
+         solver.setHoles(holeArray());
+         solver.setCopies(pieceSets);
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setCheckForBlocks(checkForBlocks);
+         solver.setSymmetry(symmetry);
+         solver.setListener(new BoardObserver());
+         renderer.begin(boardState(), cols);
+         try {
+            solver.solve();
+         }
+         finally {
+            renderer.end();
+         }
+         if (solver.wasAborted())
+            aborted = true;
+      }
+
+      long holeMask() { // Zwraca maskę bitową zajętych kwadratów planszy (bit row*cols+col); tylko dla plansz o co najwyżej 64 kwadratach.
+         long holes = 0;
+         for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+               if (board.getColor(r,c) != null)
+                  holes |= 1L << (r*cols + c);
+         return holes;
+      }
+
+      void runInBackground(Runnable search, Runnable abort) { // Uruchamia wyszukiwanie w osobnym wątku i czeka na jego koniec, reagując na "restart".
+         runInBackground(search, abort, null);
+      }
+
+      void runInBackground(final Runnable search, Runnable abort, Runnable progress) { // Jak wyżej; progress (jeśli nie null) jest wywoływane mniej więcej co sekundę.
+         // Wątek gry śpi w kanale poleceń, więc "restart" przerywa wyszukiwanie od razu, a koniec wyszukiwania budzi wątek gry.
+         final AtomicBoolean done = new AtomicBoolean();
+         Thread worker = new Thread(new Runnable() {
+            public void run() {
+               try {
+                  search.run();
                }
-               used[pieces[p][0]] = true;  //Blokuje ponowne użycie tej części na planszy.
-               numused++;
-               moveCount++;
-               movesSinceCheck++;
-               boolean stepping = false;
-               if (message > 0) {  // Test na "wiadomości" generowane przez działania użytkownika.
-                  if (message == PAUSE_MESSAGE || message == STEP_MESSAGE) {
-                     stepping = true;
-                     if (running && delay == 0)
-                        board.forceRedraw();
-                     running = false;
-                     saveAction.setEnabled(true);
-                     setMessage(0);
-                  }
-                  else if (message >=  RESTART_MESSAGE) {
-                     aborted = true;
-                     return;  
-                  }
-                  else { 
-                     running = true;
-                     saveAction.setEnabled(false);
-                     board.setAutopaint( selectedSpeed > 1 );
-                     comment.setText("Solving...");
-                     setMessage(0);
-                  }
+               finally {
+                  done.set(true);
+                  channel.wake();
                }
-               if (numused == piecesNeeded) {  // Znaleziono rozwiązanie
-                  solutionCount++;
-                  if (delay == 0)
-                     board.forceRedraw();  // Jeśli board.autopaint jest wyłączony w tym przypadku, to wymuś pokazanie planszy na ekranie.
-                  if (selectedSpeed == 0) {
-                     comment.setText("Solution #" + solutionCount + "...  (" + moveCount + " moves)");
-                     doDelay(50);  // W prędkości 0, zatrzymaj się tylko na chwilę, gdy rozwiązanie zostanie znalezione.
+            }
+         });
+         worker.start();
+         boolean abortSent = false;
+         long nextProgress = System.nanoTime() + 1000000000L;
+         while (!done.get()) {
+            channel.await(nextProgress - System.nanoTime());
+            if (nextMessage() != null && message.compareTo(Command.RESTART) >= 0) {
+               if (!abortSent)
+                  abort.run();
+               abortSent = true;
+            }
+            else if (message != null)
+               message = null;  // Wyszukiwania bez animacji nie można wstrzymać.
+            if (progress != null && System.nanoTime() - nextProgress >= 0 && !done.get()) {
+               progress.run();
+               nextProgress = System.nanoTime() + 1000000000L;
+            }
+         }
+         try {
+            worker.join();
+         }
+         catch (InterruptedException e) {
+         }
+      }
+
+      void countSolutions() { // Tryb "Count Solutions Only": silnik działa bez obserwatora, więc nic nie jest rysowane ani alokowane w trakcie wyszukiwania.
+         comment.setText("Counting solutions...");
+         long startTime = System.nanoTime();
+         if (symmetry == null && Math.min(rows,cols) <= StripCounter.STRIP_WIDTH && (!useParallelSearch || largeBoard())) {
+            final StripCounter counter = new StripCounter(rows, cols, pieces);  // Programowanie dynamiczne zamiast przeszukiwania.
+            counter.setHoles(holeArray());
+            counter.setCopies(pieceSets);
+            counter.setPiecesNeeded(piecesNeeded, emptySpaces);
+            final long[] result = new long[1];
+            final boolean[] tooMany = new boolean[1];
+            runInBackground(new Runnable() {
+               public void run() {
+                  try {
+                     result[0] = counter.count();
                   }
-                  else {
-                     stepAction.setEnabled(true);
-                     pauseAction.setEnabled(false);
-                     running = false;
-                     saveAction.setEnabled(true);
-                     comment.setText("Solution #" + solutionCount + "  (" + moveCount + " moves)");
-                     doDelay(-1);  // Czekaj czas nieokreślony na polecenie użytkownika w celu ponownego uruchomienia rozwiązania, kroku itp.
-                     running = true;
-                     board.setAutopaint( selectedSpeed > 1 );
-                     saveAction.setEnabled(false);
-                     comment.setText(stepping? "Paused." : "Solving...");
+                  catch (ArithmeticException e) {
+                     tooMany[0] = true;  // Liczba rozwiązań przekracza Long.MAX_VALUE; żaden inny silnik nie policzy jej w rozsądnym czasie.
                   }
                }
-               else {
-                  if (stepping) {  // Pauza po umieszczeniu kawałka.
-                     comment.setText("Paused.");
-                     if (delay == 0)
-                        board.forceRedraw();
-                     doDelay(-1);  // Czekaj nieskończoność czasu na polecenie.
-                  }
-                  else if (delay > 0)
-                     doDelay(delay);
-                  if (movesSinceCheck >= 1000 && !stepping) {
-                     if (selectedSpeed == 1) {
-                        board.forceRedraw();  // W prędkości 1, ustawienie board.autopaint na false; wymuś ponowne odrysowanie co 1000 ruchów.
-                        doDelay(20);
-                     }
-                     movesSinceCheck = 0;
-                  }
-                  int nextRow = row;  // Znajdź następne puste miejsce, przechodząc z lewej na prawą, a następnie z góry na dół.
-                  int nextCol = col;
-                  while (board.getColor(nextRow,nextCol) != null) { // Znajdź następny pusty kwadrat.
-                     nextCol++;
-                     if (nextCol == cols) {
-                        nextCol = 0;
-                        nextRow++;
-                        if (nextRow == row)  // Przekroczyliśmy koniec planszy!
-                           throw new IllegalStateException("Internal Error -- moved beyond end of board!");
-                     }
+            }, new Runnable() {
+               public void run() {
+                  counter.abort();
+               }
+            });
+            aborted = counter.wasAborted();
+            moveCount = counter.getStateCount();
+            solutionCount = Math.max(0, result[0]);
+            overflow = tooMany[0] && !aborted;
+         }
+         else if (largeBoard()) {
+            final LargeBoardSolver solver = new LargeBoardSolver(rows, cols, pieces);
+            solver.setHoles(holeArray());
+            solver.setCopies(pieceSets);
+            solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+            solver.setCheckForBlocks(checkForBlocks);
+            solver.setSymmetry(symmetry);
+            runInBackground(new Runnable() {
+               public void run() {
+                  solver.solve();
+               }
+            }, new Runnable() {
+               public void run() {
+                  solver.abort();
+               }
+            });
+            aborted = solver.wasAborted();
+            moveCount = solver.getNodeCount();
+            solutionCount = solver.getSolutionCount();
+         }
+         else if (useParallelSearch) {
+            final ParallelSolver solver = new ParallelSolver(rows, cols, pieces);
+            solver.setHoles(holeMask());
+            solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+            solver.setCheckForBlocks(checkForBlocks);
+            solver.setSymmetry(symmetry);
+            runInBackground(new Runnable() {
+               public void run() {
+                  solver.solve();
+               }
+            }, new Runnable() {
+               public void run() {
+                  solver.abort();
+               }
+            });
+            aborted = solver.wasAborted();
+            moveCount = solver.getNodeCount();
+            solutionCount = solver.getSolutionCount();
+         }
+         else {
+            final PentominoSolver solver = new PentominoSolver(rows, cols, pieces);
+            solver.setHoles(holeMask());
+            solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+            solver.setCheckForBlocks(checkForBlocks);
+            solver.setSymmetry(symmetry);
+            solver.setMostConstrained(mostConstrained);
+            solver.setCheckpoint(checkpointFile(), CHECKPOINT_INTERVAL);  // Długie liczenie przetrwa zamknięcie programu.
+            final long[] first = { -1, 0 };  // Liczba węzłów i czas przy pierwszym pokazaniu postępu, do obliczenia tempa.
+            SolverMonitor monitor = SolverMonitor.register(solver, rows + "x" + cols);  // Długie liczenie można obserwować i sterować nim przez JMX.
+            runInBackground(new Runnable() {
+               public void run() {
+                  solver.solve();
+               }
+            }, new Runnable() {
+               public void run() {
+                  solver.abort();
+               }
+            }, new Runnable() {
+               public void run() {
+                  long nodes = solver.getNodeCount();
+                  long now = System.nanoTime();
+                  if (first[0] < 0) {
+                     first[0] = nodes;
+                     first[1] = now;
                   }
-                  play(nextRow, nextCol);  // spróbuj ukończyć rozwiązanie
-                  if (aborted)
-                     return;
+                  showProgress(nodes, solver.getEstimatedRemainingNodes(), (nodes - first[0]) / Math.max(1e-9, (now - first[1]) / 1e9));
                }
-               removePiece(p,row,col);  // backtrack
-               numused--;
-               used[pieces[p][0]] = false;
+            });
+            monitor.unregister();
+            aborted = solver.wasAborted();
+            moveCount = solver.getNodeCount();
+            solutionCount = solver.getSolutionCount();
+            if (solver.wasResumed())
+               startTime = Long.MIN_VALUE;  // Czas obejmuje tylko część wyszukiwania, więc nie jest pokazywany.
+         }
+         elapsedTime = (startTime == Long.MIN_VALUE)? -1 : (System.nanoTime() - startTime) / 1000000;
+      }
+
+      void solveInParallel() { // Rozwiązuje łamigłówkę za pomocą ParallelSolver, bez animacji; na końcu pokazuje pierwsze znalezione rozwiązanie.
+         final ParallelSolver solver = new ParallelSolver(rows, cols, pieces);
+         solver.setHoles(holeMask());
+         solver.setPiecesNeeded(piecesNeeded, emptySpaces);
+         solver.setCheckForBlocks(checkForBlocks);
+         solver.setSymmetry(symmetry);
+         solver.setCollectSolutions(true);
+         comment.setText("Solving in parallel on " + ForkJoinPool.commonPool().getParallelism() + " threads...");
+         runInBackground(new Runnable() {
+            public void run() {
+               solver.solve();
+            }
+         }, new Runnable() {
+            public void run() {
+               solver.abort();
             }
+         });
+         if (solver.wasAborted()) {
+            aborted = true;
+            return;
          }
-         // Nie można położyć kawałka na (wiersz, kolumna), ale być może można go zostawić puste.
-         if (squaresLeftEmpty < emptySpaces) { 
-            if (aborted)
-               return;
-            squaresLeftEmpty++;
-            int nextRow = row;  // Szukaj kolejnego pustego miejsca, idąc od lewej do prawej, a następnie od góry do dołu.
-            int nextCol = col;
-            do { // Znajdź kolejny pusty kwadrat.
-               nextCol++;
-               if (nextCol == cols) {
-                  nextCol = 0;
-                  nextRow++;
-                  if (nextRow == row)  // Przekroczyliśmy koniec planszy!
-                     return;
-               }
-            } while (board.getColor(nextRow,nextCol) != null);
-            play(nextRow, nextCol);  // spróbuj ukończyć rozwiązanie
-            squaresLeftEmpty--;
+         moveCount = solver.getNodeCount();
+         solutionCount = solver.getSolutionCount();
+         List<int[]> solutions = solver.getSolutions();
+         if (solutions.size() > 0) {
+            int[] first = solutions.get(0);
+            for (int i = 0; i < first.length; i++)
+               if (first[i] > 0)
+                  board.setColor(i / cols, i % cols, pieceColor[first[i]]);
          }
       }
-      
+
+      void showProgress(long nodes, double remaining, double rate) { // Pokazuje postęp liczenia: węzły, szacowaną resztę i czas do końca.
+         String text = "Counting solutions... " + nodes + " moves";
+         if (remaining >= 0) {
+            text += ", about " + String.format("%.2g", remaining) + " remaining";
+            if (rate > 0)
+               text += ", ETA " + formatDuration(remaining / rate);
+         }
+         comment.setText(text + ".");
+      }
+
+      String formatDuration(double seconds) { // Czas w czytelnej postaci, np. "3 min 20 s" albo "2 d 5 h".
+         long s = (long)Math.min(seconds, Long.MAX_VALUE / 2);
+         if (s < 60)
+            return s + " s";
+         if (s < 3600)
+            return (s / 60) + " min " + (s % 60) + " s";
+         if (s < 86400)
+            return (s / 3600) + " h " + (s % 3600 / 60) + " min";
+         return (s / 86400) + " d " + (s % 86400 / 3600) + " h";
+      }
+
+      File checkpointFile() { // Plik punktu kontrolnego dla "Count Solutions Only" na planszy tego rozmiaru, albo null.
+         File dir = new File(System.getProperty("user.home"), ".pentominos");
+         if (!dir.isDirectory() && !dir.mkdirs())
+            return null;
+         return new File(dir, "search-" + rows + "x" + cols + ".ckpt");
+      }
+
+      boolean largeBoard() { // Prawda, jeśli planszy nie rozwiąże PentominoSolver: więcej niż 64 kwadraty albo kilka kompletów klocków.
+         return rows*cols > PentominoSolver.MAX_CELLS || pieceSets > 1;
+      }
+
+      boolean[] holeArray() { // Zwraca tablicę zajętych kwadratów planszy (element row*cols+col); dla plansz dowolnego rozmiaru.
+         boolean[] holes = new boolean[rows*cols];
+         for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+               holes[r*cols + c] = board.getColor(r,c) != null;
+         return holes;
+      }
+
+      int[] boardState() { // Stan planszy dla renderer: -1 dla zajętych kwadratów (renderer ich nie zmienia), 0 dla pustych.
+         int[] state = new int[rows*cols];
+         for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+               state[r*cols + c] = (board.getColor(r,c) != null)? -1 : 0;
+         return state;
+      }
+
+      void solveWithDancingLinks() { // Rozwiązuje łamigłówkę za pomocą DancingLinksSolver; plansza na ekranie jedynie obserwuje silnik.
+         DancingLinksSolver solver = new DancingLinksSolver(rows, cols, pieces, holeArray(), piecesNeeded, emptySpaces);
+         solver.setSymmetry(symmetry);
+         solver.setListener(new BoardObserver());
+         renderer.begin(boardState(), cols);
+         try {
+            solver.solve();
+         }
+         finally {
+            renderer.end();
+         }
+         if (solver.wasAborted())
+            aborted = true;
+      }
+
+      private class BoardObserver implements PentominoSolver.Listener { // Przekazuje ruchy silnika do renderer i obsługuje prędkość, pauzę i kroki.
+
+         public boolean piecePlaced(int piece, int[] cells) {
+            renderer.place(piece, cells);
+            used[piece]++;
+            numused++;
+            moveCount++;
+            if (!checkMessages())
+               return false;
+            if (numused < piecesNeeded)
+               pauseOrDelay();
+            return true;
+         }
+
+         public void pieceRemoved(int piece, int[] cells) {
+            renderer.remove(cells);
+            numused--;
+            used[piece]--;
+         }
+
+         public boolean solutionFound(long count) {
+            solutionCount = count;
+            showSolution();
+            return true;
+         }
+      }
+
       boolean obviousBlockExists() { // Sprawdź, czy plansza ma obszar, który nigdy nie może być wypełniony ze względu na ilość kwadratów, które zawiera.
          blockCheckCt++;
          int forcedEmptyCt = 0;
          for (int r = 0; r < rows; r++)
             for (int c = 0; c < cols; c++) {
                int blockSize = countEmptyBlock(r,c);
-               if (blockSize % 5 == 0)
+               if (blockSize % piece_size == 0)
                   continue;
-               forcedEmptyCt += blockSize % 5;
+               forcedEmptyCt += blockSize % piece_size;
                if (forcedEmptyCt > emptySpaces)
                   return true;
             }
@@ -899,125 +1107,36 @@ public class PentominosPanel extends JPanel {
          }
       }
       
-      private int checkSymmetries(boolean allowFlip) {  // Zwróć kod typu symetrii wyświetlanej na planszy.
-         boolean H, V, D1, D2, R90, R180;
-         boolean[][] empty = new boolean[rows][cols];
-         for (int i = 0; i < rows; i++)
-            for (int j = 0; j < cols; j++)
-               empty[i][j] = (board.getColor(i,j) == null);
-         if (!allowFlip)
-            V = false;
-         else {
-            V = true;
-            VLOOP: for (int i = 0; i < rows; i++)
-               for (int j = 0; j < cols/2; j++)
-                  if (empty[i][j] != empty[i][cols-j-1]) {
-                     V = false;
-                     break VLOOP;
-                  }
-         }
-         if (rows != cols)
-            R90 = false;
-         else {
-            R90 = true;
-            R90LOOP: for (int i = 0; i < rows-1; i++)
-               for (int j = 0; j < cols; j++)
-                  if (empty[i][j] != empty[rows-j-1][i]) {
-                     R90 = false;
-                     break R90LOOP;
-                  }
-         }
-         if (R90) { // Jeśli plansza jest symetryczna względem obrotu o 90 stopni, to jedynymi możliwościami są symetria 8-kierunkowa lub czysta symetria obrotowa.
-            if (V)
-               return SYMMETRY_ALL;
-            else
-               return SYMMETRY_R90;
-         }
-         if (!allowFlip)
-            H = false;
-         else {
-            H = true;
-            HLOOP: for (int i = 0; i < rows/2; i++)
-               for (int j = 0; j < cols; j++)
-                  if (empty[i][j] != empty[rows-i-1][j]) {
-                     H = false;
-                     break HLOOP;
-                  }
-         }
-         R180 = true;
-         R180LOOP: for (int i = 0; i < rows; i++)
-            for (int j = 0; j < (cols+1)/2; j++)
-               if (empty[i][j] != empty[rows-i-1][cols-j-1]) {
-                  R180 = false;
-                  break R180LOOP;
-               }
-         if (!allowFlip || (rows != cols)) 
-            D1 = D2 = false;
-         else {
-            D1 = true;
-            D1LOOP: for (int i = 1; i < rows; i++)
-               for (int j = 0; j < i; j++)
-                  if (empty[i][j] != empty[j][i]) {
-                     D1 = false;
-                     break D1LOOP;
-                  }
-            D2 = true;
-            D2LOOP: for (int i = 0; i < rows-1; i++)
-               for (int j = 0; j < rows-i-1; j++)
-                  if (empty[i][j] != empty[rows-j-1][rows-i-1]) {
-                     D2 = false;
-                     break D2LOOP;
-                  }
-         }
-         if (D1) { // Jeśli plansza jest symetryczna względem 90-stopniowego obrotu, to nie może również posiadać symetrii horyzontalnej (H) ani wertykalnej (V), 
-             //ponieważ wtedy symetria obrotowa o 90 stopni (R90) również byłaby prawdziwa.
-            if (D2)
-               return SYMMETRY_D1D2;
-            else
-               return SYMMETRY_D1;
-         }
-         else if (H) { // nie możę też być D2, ponieważ wtedy symetria obrotowa o 90 stopni (R90) również byłaby prawdziwa.
-            if (V)
-               return SYMMETRY_HV;
-            else
-               return SYMMETRY_H;
-         }
-         else if (D2)
-            return SYMMETRY_D2;
-         else if (V)
-            return SYMMETRY_V;
-         else if (R180)
-            return SYMMETRY_R180;
-         else
-            return SYMMETRY_NONE;
-      }
-      
-      synchronized void doDelay(int milliseconds) {
+      void doDelay(int milliseconds) {
 //Ta funkcja czeka przez określony czas, który jest podany w milisekundach. 
 //Jeśli czas jest ujemny (mniejszy od zera), to oznacza, że oczekiwanie będzie trwać bez określonego limitu czasowego, 
-//aż zostanie wysłana wiadomość kontrolna za pomocą funkcji setMessage(). 
-//Jeśli czas jest dodatni, to oczekiwanie będzie trwać przez ten określony czas, chyba że zostanie wysłana wiadomość kontrolna wcześniej.
-         if (milliseconds < 0) {
-            try {
-               wait();
-            }
-            catch (InterruptedException e) {
-            }
-         }
-         else {
-            try {
-               wait(milliseconds);
-            }
-            catch (InterruptedException e) {
+//aż zostanie wysłane polecenie za pomocą funkcji send(); samo SPEED nie kończy takiego czekania.
+//Jeśli czas jest dodatni, to oczekiwanie będzie trwać przez ten określony czas, chyba że polecenie zostanie wysłane wcześniej.
+//Tylko dla wątku gry.
+         long deadline = System.nanoTime() + milliseconds*1000000L;
+         while (true) {
+            if (nextMessage() == Command.SPEED && milliseconds < 0)
+               message = null;  // Zmiana prędkości nie kończy pauzy.
+            else if (message != null) {
+               checkBudget = 0;  // Polecenie zostanie obsłużone po następnym klocku.
+               return;
             }
+            long left = deadline - System.nanoTime();
+            if (milliseconds >= 0 && left <= 0)
+               return;
+            channel.await(milliseconds < 0? -1 : left);
          }
       }
       
       
-      synchronized void setMessage(int message) {  // Wysyła wiadomość kontrolną do wątku gry.
-         this.message = message;
-         if (message > 0)
-            notify();  // Wybudza wątek gry, jeśli jest zatrzymany lub oczekuje na wiadomość (w metodzie doDelay).
+      void send(Command command) {  // Wysyła polecenie do wątku gry; z dowolnego wątku, bez blokowania.
+         channel.send(command);
+      }
+
+      Command nextMessage() { // Zwraca bieżące polecenie, a jeśli zostało już obsłużone, pobiera następne z kanału (null, jeśli nie ma).
+         if (message == null)
+            message = channel.poll();
+         return message;
       }
 
       
@@ -1030,21 +1149,23 @@ public class PentominosPanel extends JPanel {
                running = false;
                saveAction.setEnabled(true);
                board.repaint();
-               while (message != GO_MESSAGE && message != TERMINATE_MESSAGE) {  // Czekaj na konfigurację gry.
-                  if (message == RESTART_RANDOM_MESSAGE) {
+               while (nextMessage() != Command.GO && message != Command.TERMINATE) {  // Czekaj na konfigurację gry.
+                  if (message == Command.RESTART_RANDOM) {
                      setUpRandomBoard();
                      comment.setText("Solving...");
                      creatingBoard = false;
-                     setMessage(GO_MESSAGE);
+                     message = null;
                      doDelay(1000);  // Udziel użytkownikowi szansy na zmianę wyboru
+                     if (message == null || message == Command.SPEED)
+                        message = Command.GO;
                   }
-                  else if (message == RESTART_CLEAR_MESSAGE || message == RESTART_MESSAGE) {
+                  else if (message == Command.RESTART_CLEAR || message == Command.RESTART) {
                      clickCt = 0;
                      creatingBoard = spareSpaces > 0;
-                     if (message == RESTART_MESSAGE && spareSpaces > 0) {
+                     if (message == Command.RESTART && spareSpaces > 0) {
                         for (int r = 0; r < rows; r++)
                            for (int c = 0; c < cols; c++)
-                              if (board.getColor(r,c) != emptyColor)
+                              if (!emptyColor.equals(board.getColor(r,c)))
                                  board.setColor(r,c,null);
                               else
                                  clickCt++;
@@ -1060,64 +1181,38 @@ public class PentominosPanel extends JPanel {
                         else
                            comment.setText("Use \"Go\" to Start");
                      }
-                     setMessage(0);
+                     message = null;
                      doDelay(-1);  // Czekaj(na wiadomość kontrolną rozpoczęcia gry).
                   }
+                  else {
+                     message = null;  // Pauza, krok albo zmiana prędkości przed rozpoczęciem gry nic nie zmieniają.
+                     doDelay(-1);
+                  }
                }
-               if (message == TERMINATE_MESSAGE)
+               if (message == Command.TERMINATE)
                   break;
                creatingBoard = false;
                running = true;
                saveAction.setEnabled(false);
-               board.setAutopaint(delay > 0);
                board.repaint();
+               message = null;  // Polecenie GO zostało obsłużone; polecenia wysłane od teraz przerwą już nową grę.
                doDelay(25);
                // begin next game
                pauseAction.setEnabled(true);
                stepAction.setEnabled(false);
                comment.setText("Solving...");
-               message = 0;
+               checkBudget = 0;
                for (int i=1; i<=12; i++)
-                  used[i] = false;
+                  used[i] = 0;
                numused = 0;
-               int startRow = 0;  // Reprezentuje lewy górny róg planszy
-               int startCol = 0;
-               while (board.getColor(startRow,startCol) != null) {
-                  startCol++;  // Przesuń wypełnione kwadraty, ponieważ Play(square) zakłada, że kwadrat jest pusty.
-                  if (startCol == cols) {
-                     startCol = 0;
-                     startRow++;
-                  }
-               }
-               moveCount = movesSinceCheck = solutionCount = 0;
+               moveCount = solutionCount = 0;
                int[][] pieces2use = piece_data;
-               if (symmetryCheck || useOneSidedPieces) {
-                  long removeMask = 0;
-                  if (symmetryCheck) {
-                     int symmetryType = checkSymmetries(!useOneSidedPieces);
-                     if (symmetryType != SYMMETRY_NONE) {
-                        for (int p = 0; p < remove_for_symmetry[symmetryType].length; p++)
-                           removeMask = removeMask | (1L << remove_for_symmetry[symmetryType][p]);
-                     }
-                  }
-                  if (useOneSidedPieces) {
-                     for (int p = 0; p < 6; p++) {
-                        int[] remove_for_one_sided = side_info[p][ useSideA[p]? 1 : 0 ];
-                        for (int j = 0; j < remove_for_one_sided.length; j++)
-                           removeMask = removeMask | (1L << remove_for_one_sided[j]);
-                     }
-                  }
-                  if (removeMask != 0) {
-                     int ct = 0;
-                     for (int p = 0; p < 63; p++)
-                        if ((removeMask & (1L << p)) != 0)
-                           ct++;
-                     pieces2use = new int[63-ct][];
-                     int j = 0;
-                     for (int p = 0; p < piece_data.length; p++)
-                        if ((removeMask & (1L << p)) == 0)
-                           pieces2use[j++] = piece_data[p];
-                  }
+               symmetry = symmetryCheck? new SymmetryGroup(rows, cols, holeArray(), !useOneSidedPieces) : null;
+               if (useOneSidedPieces) {
+                  boolean[] sideA = new boolean[13];
+                  for (int i = 0; i < two_sided.length; i++)
+                     sideA[two_sided[i]] = useSideA[i];
+                  pieces2use = PolyominoSet.pentominoes().getOneSided(sideA);
                }
                pieces = pieces2use;
                if (randomizePieces) {
@@ -1133,54 +1228,90 @@ public class PentominosPanel extends JPanel {
                      pieces[i] = temp;
                   }
                }
-               board.setAutopaint( selectedSpeed > 1 );
                randomizePiecesChoice.setEnabled(false);
                symmetryCheckChoice.setEnabled(false);
                oneSidedAction.setEnabled(false);
+               dancingLinksChoice.setEnabled(false);
+               parallelChoice.setEnabled(false);
+               countOnlyChoice.setEnabled(false);
+               mostConstrainedChoice.setEnabled(false);
                blockCheck = new int[rows][cols];
                blockCheckCt = 0;
                emptySpaces = spareSpaces - clickCt;
-               squaresLeftEmpty = 0;
                aborted = false;
+               overflow = false;
+               elapsedTime = -1;
                boolean blocked = false;
+               ResultCache cache = ResultCache.getDefault();
+               ResultCache.Key cacheKey = (cache == null)? null : ResultCache.Key.of(rows, cols, holeArray(), pieces,
+                     !useOneSidedPieces, pieceSets, piecesNeeded, emptySpaces, symmetryCheck);
+               ResultCache.Entry cached = (cache == null)? null : cache.get(cacheKey);
+               boolean fromCache = false;
                if (checkForBlocks && obviousBlockExists())
                   blocked = true;
+               else if (cached != null && cached.complete && (countOnly || cached.solutionCount == 0)) {
+                  solutionCount = cached.solutionCount;  // Liczba jest już znana; bez animacji nie ma czego pokazywać.
+                  fromCache = true;
+               }
+               else if (countOnly)
+                  countSolutions();   // Bez planszy, komunikatów i opóźnień; tylko liczba rozwiązań i czas.
+               else if (useParallelSearch && !largeBoard())
+                  solveInParallel();   // Bez animacji; wszystkie rdzenie procesora przeszukują drzewo.
+               else if (useDancingLinks && pieceSets == 1)
+                  solveWithDancingLinks();   // Algorytm X, do porównania z przeszukiwaniem kwadrat po kwadracie.
+               else if (!largeBoard())
+                  solveWithEngine();   // Plansza mieści się w masce bitowej, więc rozwiązuje ją szybki silnik.
                else
-                  play(startRow,startCol);   // Wykonuhe rekurencyjny algorytm, który rozwiąże zagadkę.
-               if (message == TERMINATE_MESSAGE)
+                  solveLargeBoard();   // Plansza w wielu słowach i liczniki egzemplarzy klocków.
+               if (nextMessage() == Command.TERMINATE)
                   break;
+               if (cache != null && !aborted && !blocked && !fromCache && !overflow) {
+                  try {
+                     cache.put(cacheKey, solutionCount, true, null);
+                  }
+                  catch (IOException e) {
+                  }
+               }
                randomizePiecesChoice.setEnabled(true);
                symmetryCheckChoice.setEnabled(true);
                oneSidedAction.setEnabled(true);
+               dancingLinksChoice.setEnabled(true);
+               parallelChoice.setEnabled(true);
+               countOnlyChoice.setEnabled(true);
+               mostConstrainedChoice.setEnabled(true);
                running = false;
                saveAction.setEnabled(true);
-               board.setAutopaint(true);
                board.repaint();
                if (!aborted) {
                   pauseAction.setEnabled(false);
                   stepAction.setEnabled(false);
                   if (blocked)
                      comment.setText("Unsolvable because of obvious blocking.");
+                  else if (overflow)
+                     comment.setText("Done. More than " + Long.MAX_VALUE + " solutions; too many to count. " + moveCount + " moves.");
+                  else if (fromCache)
+                     comment.setText("Done. " + solutionCount + (solutionCount == 1? " solution" : " solutions") + " (from cache).");
                   else if (solutionCount == 0)
                      comment.setText("Done. No soutions. " + moveCount + " moves.");
                   else if (solutionCount == 1)
                      comment.setText("Done. 1 solution. " + moveCount + " moves.");
                   else
                      comment.setText("Done. " + solutionCount + " solutions. "+ moveCount + " moves.");
+                  if (elapsedTime >= 0 && !blocked)
+                     comment.setText(comment.getText() + " " + elapsedTime + " ms.");
                   if (spareSpaces > 0)
                      creatingBoard = true;
                   doDelay(-1);
                }
-               if (message == TERMINATE_MESSAGE)
+               if (nextMessage() == Command.TERMINATE)
                   break;
             }
             catch (Exception e) {
                JOptionPane.showMessageDialog(PentominosPanel.this,"An internal error has occurred:\n"+ e + "\n\nRESTARTING.");
                e.printStackTrace();
-               board.setAutopaint(true);
                pauseAction.setEnabled(true);
                stepAction.setEnabled(false);
-               message = RESTART_MESSAGE;
+               message = Command.RESTART;
             }
          } 
       }
@@ -0,0 +1,271 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Skompilowana lista wszystkich pozycji klocków, które mieszczą się na planszy o danym rozmiarze.
+ * Pozycje są pogrupowane według kwadratu zaczepienia (pierwszego kwadratu klocka w kolejności od lewej do prawej
+ * i od góry do dołu): pozycje zaczepione w kwadracie cell mają numery od start[cell] do start[cell+1]-1.
+ * Wewnątrz grupy pozycje mają tę samą kolejność, co wiersze tablicy pieces, więc kolejność przeszukiwania się nie zmienia.
+ * Pozycje, które nigdy się nie zmieszczą (na przykład poziome "I" na planszy o szerokości 3), w ogóle nie trafiają do tablicy.
+ * Tablice dla danego rozmiaru planszy i zestawu klocków są zapamiętywane, więc kolejne uruchomienia na tej samej planszy
+ * używają ich ponownie; dziury są usuwane przez withHoles(), co jest tanie.
+ */
+public final class PlacementTable {
+
+   public final int rows, cols;   // Rozmiar planszy.
+   public final int cellCount;    // rows*cols
+   public final int[][] pieces;   // Pozycje klocków, w formacie PentominosPanel.piece_data.
+   public final int pieceSize;    // Liczba kwadratów każdego klocka (5 dla pentomin).
+   public final int pieceCount;   // Największy numer klocka w tablicy pieces (12 dla pentomin).
+
+   final int[] start;       // Pozycje zaczepione w kwadracie cell to start[cell] .. start[cell+1]-1.
+   final int[] piece;       // Numer klocka (1 do pieceCount) każdej pozycji.
+   final int[] orientation; // Indeks wiersza w tablicy pieces dla każdej pozycji.
+   final long[] mask;       // Maska kwadratów każdej pozycji; tylko dla plansz o co najwyżej 64 kwadratach, w przeciwnym razie null.
+   final int[] cells;       // Kwadraty pozycji i to cells[n*i] .. cells[n*i+n-1], gdzie n = pieceSize; pierwszy z nich jest kwadratem zaczepienia.
+   final int[][] cellList;  // Te same kwadraty jako osobne tablice, przekazywane do PentominoSolver.Listener.
+   final int[] coverStart;  // Pozycje, które zajmują kwadrat cell (nie tylko zaczepione w nim), to cover[coverStart[cell]] .. cover[coverStart[cell+1]-1].
+   final int[] cover;
+
+   private static final HashMap<Key,PlacementTable> cache = new HashMap<Key,PlacementTable>();  // Tablice skompilowane do tej pory.
+
+   /**
+    * Zwraca tablicę pozycji dla planszy o podanym rozmiarze i podanym zestawie pozycji klocków.
+    * Jeśli taka tablica była już skompilowana, zwracana jest zapamiętana kopia.
+    */
+   public static PlacementTable get(int rows, int cols, int[][] pieces) {
+      Key key = new Key(rows, cols, pieces);
+      synchronized (cache) {
+         PlacementTable table = cache.get(key);
+         if (table == null) {
+            table = new PlacementTable(rows, cols, pieces);
+            if (cache.size() > 64)
+               cache.clear();  // Nie pozwól, aby pamięć podręczna rosła bez końca.
+            cache.put(key, table);
+         }
+         return table;
+      }
+   }
+
+   private PlacementTable(int rows, int cols, int[][] pieces) {
+      this.rows = rows;
+      this.cols = cols;
+      this.cellCount = rows*cols;
+      this.pieces = pieces;
+      pieceSize = sizeOf(pieces);
+      pieceCount = countOf(pieces);
+      int n = pieceSize;
+      int max = cellCount*pieces.length;
+      int[] foundPiece = new int[max];
+      int[] foundOrientation = new int[max];
+      int[] foundCells = new int[n*max];
+      start = new int[cellCount+1];
+      int ct = 0;
+      for (int row = 0; row < rows; row++)
+         for (int col = 0; col < cols; col++) {
+            start[row*cols + col] = ct;
+            PIECES: for (int p = 0; p < pieces.length; p++) {
+               for (int i = 1; i < 2*n-1; i += 2) {
+                  int r = row + pieces[p][i];
+                  int c = col + pieces[p][i+1];
+                  if (r < 0 || r >= rows || c < 0 || c >= cols)
+                     continue PIECES;  // Ta pozycja nigdy się tu nie zmieści.
+               }
+               foundPiece[ct] = pieces[p][0];
+               foundOrientation[ct] = p;
+               foundCells[n*ct] = row*cols + col;
+               for (int i = 1; i < 2*n-1; i += 2)
+                  foundCells[n*ct + (i+1)/2] = (row + pieces[p][i])*cols + col + pieces[p][i+1];
+               ct++;
+            }
+         }
+      start[cellCount] = ct;
+      piece = Arrays.copyOf(foundPiece, ct);
+      orientation = Arrays.copyOf(foundOrientation, ct);
+      cells = Arrays.copyOf(foundCells, n*ct);
+      cellList = new int[ct][];
+      for (int i = 0; i < ct; i++)
+         cellList[i] = Arrays.copyOfRange(cells, n*i, n*i+n);
+      mask = (cellCount <= 64)? makeMasks(cells, ct, n) : null;
+      coverStart = new int[cellCount+1];
+      cover = makeCover(cells, ct, n, cellCount, coverStart);
+   }
+
+   private static int sizeOf(int[][] pieces) { // Liczba kwadratów klocka; wszystkie wiersze tablicy pieces muszą ją mieć taką samą.
+      if (pieces.length == 0)
+         throw new IllegalArgumentException("At least one piece position is required.");
+      for (int p = 0; p < pieces.length; p++)
+         if (pieces[p].length % 2 == 0 || pieces[p].length != pieces[0].length)
+            throw new IllegalArgumentException("All pieces must have the same number of squares.");
+      return (pieces[0].length + 1) / 2;
+   }
+
+   private static int countOf(int[][] pieces) { // Największy numer klocka.
+      int count = 0;
+      for (int p = 0; p < pieces.length; p++) {
+         if (pieces[p][0] < 1)
+            throw new IllegalArgumentException("Piece numbers must be positive.");
+         count = Math.max(count, pieces[p][0]);
+      }
+      return count;
+   }
+
+   private PlacementTable(PlacementTable source, boolean[] holes) { // Kopia tablicy source bez pozycji, które zajmują dziury.
+      rows = source.rows;
+      cols = source.cols;
+      cellCount = source.cellCount;
+      pieces = source.pieces;
+      pieceSize = source.pieceSize;
+      pieceCount = source.pieceCount;
+      int n = pieceSize;
+      int total = source.size();
+      boolean[] keep = new boolean[total];
+      int ct = 0;
+      for (int i = 0; i < total; i++) {
+         keep[i] = true;
+         for (int j = n*i; j < n*i+n; j++)
+            if (holes[source.cells[j]]) {
+               keep[i] = false;
+               break;
+            }
+         if (keep[i])
+            ct++;
+      }
+      start = new int[cellCount+1];
+      piece = new int[ct];
+      orientation = new int[ct];
+      cells = new int[n*ct];
+      cellList = new int[ct][];
+      int k = 0;
+      for (int cell = 0; cell < cellCount; cell++) {
+         start[cell] = k;
+         for (int i = source.start[cell]; i < source.start[cell+1]; i++)
+            if (keep[i]) {
+               piece[k] = source.piece[i];
+               orientation[k] = source.orientation[i];
+               System.arraycopy(source.cells, n*i, cells, n*k, n);
+               cellList[k] = source.cellList[i];
+               k++;
+            }
+      }
+      start[cellCount] = ct;
+      mask = (cellCount <= 64)? makeMasks(cells, ct, n) : null;
+      coverStart = new int[cellCount+1];
+      cover = makeCover(cells, ct, n, cellCount, coverStart);
+   }
+
+   private static int[] makeCover(int[] cells, int ct, int n, int cellCount, int[] coverStart) { // Grupuje pozycje według kwadratów, które zajmują.
+      for (int j = 0; j < n*ct; j++)
+         coverStart[cells[j]+1]++;
+      for (int cell = 0; cell < cellCount; cell++)
+         coverStart[cell+1] += coverStart[cell];
+      int[] next = Arrays.copyOf(coverStart, cellCount);
+      int[] cover = new int[n*ct];
+      for (int j = 0; j < n*ct; j++)
+         cover[next[cells[j]]++] = j/n;
+      return cover;
+   }
+
+   /**
+    * Zwraca pozycje klocków z tablicy pieces (w formacie PentominosPanel.piece_data) dla planszy transponowanej,
+    * czyli odbitej względem przekątnej: wiersze stają się kolumnami. Każdy klocek jest opisany od nowa względem
+    * swojego pierwszego kwadratu w kolejności od lewej do prawej i od góry do dołu, a kolejność wierszy się nie zmienia.
+    */
+   public static int[][] transpose(int[][] pieces) {
+      int n = sizeOf(pieces);
+      int[][] result = new int[pieces.length][2*n-1];
+      for (int p = 0; p < pieces.length; p++) {
+         int[] r = new int[n];
+         int[] c = new int[n];
+         for (int i = 1; i < 2*n-1; i += 2) {
+            r[(i+1)/2] = pieces[p][i+1];
+            c[(i+1)/2] = pieces[p][i];
+         }
+         int anchor = 0;
+         for (int j = 1; j < n; j++)
+            if (r[j] < r[anchor] || (r[j] == r[anchor] && c[j] < c[anchor]))
+               anchor = j;
+         result[p][0] = pieces[p][0];
+         int k = 1;
+         for (int j = 0; j < n; j++)
+            if (j != anchor) {
+               result[p][k++] = r[j] - r[anchor];
+               result[p][k++] = c[j] - c[anchor];
+            }
+      }
+      return result;
+   }
+
+   private static long[] makeMasks(int[] cells, int ct, int n) {
+      long[] masks = new long[ct];
+      for (int i = 0; i < ct; i++)
+         for (int j = n*i; j < n*i+n; j++)
+            masks[i] |= 1L << cells[j];
+      return masks;
+   }
+
+   /**
+    * Zwraca tablicę bez pozycji, które zajmują któryś z kwadratów oznaczonych jako dziury.
+    * Jeśli holes jest null lub nie zawiera żadnej dziury, zwracana jest ta sama tablica.
+    */
+   public PlacementTable withHoles(boolean[] holes) {
+      if (holes == null)
+         return this;
+      for (int i = 0; i < holes.length; i++)
+         if (holes[i])
+            return new PlacementTable(this, holes);
+      return this;
+   }
+
+   /**
+    * Jak withHoles(boolean[]), ale dziury są podane jako maska bitowa (tylko dla plansz o co najwyżej 64 kwadratach).
+    */
+   public PlacementTable withHoles(long holes) {
+      if (holes == 0)
+         return this;
+      boolean[] h = new boolean[cellCount];
+      for (int i = 0; i < cellCount; i++)
+         h[i] = (holes & (1L << i)) != 0;
+      return new PlacementTable(this, h);
+   }
+
+   /**
+    * Zwraca liczbę pozycji w tablicy.
+    */
+   public int size() {
+      return piece.length;
+   }
+
+   private static final class Key { // Klucz pamięci podręcznej: rozmiar planszy i zawartość tablicy klocków.
+      final int rows, cols;
+      final int[][] pieces;
+      final int hash;
+      Key(int rows, int cols, int[][] pieces) {
+         this.rows = rows;
+         this.cols = cols;
+         this.pieces = pieces;
+         this.hash = (rows*31 + cols)*31 + Arrays.deepHashCode(pieces);
+      }
+      public int hashCode() {
+         return hash;
+      }
+      public boolean equals(Object obj) {
+         if (!(obj instanceof Key))
+            return false;
+         Key other = (Key)obj;
+         return rows == other.rows && cols == other.cols && Arrays.deepEquals(pieces, other.pieces);
+      }
+   }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * Zestaw klocków (dowolnych poliomin o tej samej liczbie kwadratów) wraz ze wszystkimi ich pozycjami,
+ * obliczonymi automatycznie zamiast wpisywania ich ręcznie jak PentominosPanel.piece_data.
+ * Dla każdego klocka obliczane są różne obroty i odbicia; każda pozycja jest opisana względem swojego pierwszego kwadratu
+ * w kolejności od lewej do prawej i od góry do dołu, czyli w kolejności, w jakiej silniki wypełniają planszę.
+ * Wynik, getPieceData(), ma format PentominosPanel.piece_data (numer klocka, a potem przesunięcia pozostałych kwadratów),
+ * więc można go przekazać bezpośrednio do PentominoSolver, LargeBoardSolver, ParallelSolver i DancingLinksSolver.
+ * Klocki, których odbicie nie jest obrotem (jak "L" albo "N" wśród pentomin), mają dwie strony: pozycje strony A to obroty
+ * klocka w podanej postaci, a strony B to obroty jego odbicia; getOneSided() zwraca tablicę z jedną stroną każdego z nich.
+ * Zestawy są zapamiętywane według zawartości, więc kolejne wywołania get() dla tych samych klocków zwracają ten sam obiekt.
+ */
+public final class PolyominoSet {
+
+   private static final String[] PENTOMINO_SHAPES = { // Pentomina w kolejności numerów klocków PentominosPanel, w postaci strony A z okna "One Sided".
+      "XXXXX",            // 1: I
+      ".X./XXX/.X.",      // 2: X
+      ".XX/.X./XX.",      // 3: Z
+      "X../X../XXX",      // 4: V
+      "XXX/.X./.X.",      // 5: T
+      "X../XX./.XX",      // 6: W
+      "X.X/XXX",          // 7: U
+      "...X/XXXX",        // 8: L
+      "XX../.XXX",        // 9: N
+      "XXXX/..X.",        // 10: Y
+      ".XX/XX./.X.",      // 11: F
+      "XX/XX/X."          // 12: P
+   };
+
+   private static final int OFFSET = 1 << 20;  // Dodawane do współrzędnych przy sortowaniu, aby nie były ujemne.
+
+   private static final HashMap<Key,PolyominoSet> cache = new HashMap<Key,PolyominoSet>();  // Zestawy obliczone do tej pory.
+
+   private final int pieceSize;     // Liczba kwadratów każdego klocka.
+   private final int[][] shapes;    // shapes[p-1] to kwadraty klocka p w podanej postaci: pary (wiersz, kolumna).
+   private final int[][] pieceData; // Wszystkie pozycje, w formacie PentominosPanel.piece_data.
+   private final int[][][] sides;   // sides[p] to numery wierszy pieceData dla strony A i B klocka p, albo null dla klocka symetrycznego.
+
+   /**
+    * Zwraca zestaw klocków opisanych rysunkami: wiersze rysunku są oddzielone znakiem '/' albo nowym wierszem,
+    * '.' albo spacja oznacza puste miejsce, a każdy inny znak kwadrat klocka. Klocek numer p (od 1) to shapes[p-1].
+    * Wszystkie klocki muszą mieć tę samą liczbę kwadratów i muszą być spójne.
+    */
+   public static PolyominoSet get(String... shapes) {
+      int[][] cells = new int[shapes.length][];
+      for (int p = 0; p < shapes.length; p++)
+         cells[p] = parse(shapes[p]);
+      return get(cells);
+   }
+
+   /**
+    * Jak get(String...), ale klocek numer p (od 1) jest podany jako tablica par (wiersz, kolumna) swoich kwadratów.
+    */
+   public static PolyominoSet get(int[][] shapes) {
+      if (shapes.length == 0)
+         throw new IllegalArgumentException("A piece set must contain at least one piece.");
+      int[][] normal = new int[shapes.length][];
+      for (int p = 0; p < shapes.length; p++) {
+         if (shapes[p].length == 0 || shapes[p].length % 2 != 0 || shapes[p].length != shapes[0].length)
+            throw new IllegalArgumentException("All pieces must have the same, positive number of squares.");
+         normal[p] = normalize(shapes[p]);
+         if (!connected(normal[p]))
+            throw new IllegalArgumentException("Piece " + (p+1) + " is not connected.");
+      }
+      Key key = new Key(normal);
+      synchronized (cache) {
+         PolyominoSet set = cache.get(key);
+         if (set == null) {
+            set = new PolyominoSet(normal);
+            if (cache.size() > 64)
+               cache.clear();  // Nie pozwól, aby pamięć podręczna rosła bez końca.
+            cache.put(key, set);
+         }
+         return set;
+      }
+   }
+
+   /**
+    * Zwraca zestaw wszystkich różnych (z dokładnością do obrotów i odbić) poliomin o size kwadratach,
+    * na przykład 5 tetromin dla size = 4 albo 35 heksomin dla size = 6.
+    * Klocki są uporządkowane według swojej postaci kanonicznej, więc numeracja jest zawsze taka sama.
+    */
+   public static PolyominoSet all(int size) {
+      if (size < 1 || size > 10)
+         throw new IllegalArgumentException("Polyomino size must be between 1 and 10.");
+      ArrayList<int[]> found = new ArrayList<int[]>();
+      found.add(new int[] { 0, 0 });
+      for (int n = 1; n < size; n++) {
+         LinkedHashMap<String,int[]> next = new LinkedHashMap<String,int[]>();
+         for (int[] shape : found)
+            for (int i = 0; i < shape.length; i += 2)
+               for (int dir = 0; dir < 4; dir++) {
+                  int r = shape[i] + (dir == 0? -1 : dir == 1? 1 : 0);
+                  int c = shape[i+1] + (dir == 2? -1 : dir == 3? 1 : 0);
+                  if (contains(shape, r, c))
+                     continue;
+                  int[] grown = Arrays.copyOf(shape, shape.length + 2);
+                  grown[shape.length] = r;
+                  grown[shape.length+1] = c;
+                  int[] canonical = canonical(grown);
+                  next.put(Arrays.toString(canonical), canonical);
+               }
+         found = new ArrayList<int[]>(next.values());
+      }
+      int[][] shapes = found.toArray(new int[found.size()][]);
+      Arrays.sort(shapes, new Comparator<int[]>() {
+         public int compare(int[] a, int[] b) {
+            return Arrays.compare(a, b);
+         }
+      });
+      return get(shapes);
+   }
+
+   /**
+    * Zwraca 12 pentomin z numeracją klocków używaną przez PentominosPanel; z tego zestawu PentominosPanel bierze
+    * swoje tablice piece_data i strony klocków dla polecenia "One Sided".
+    */
+   public static PolyominoSet pentominoes() {
+      return get(PENTOMINO_SHAPES);
+   }
+
+   private PolyominoSet(int[][] shapes) {
+      this.shapes = shapes;
+      pieceSize = shapes[0].length / 2;
+      ArrayList<int[]> rows = new ArrayList<int[]>();
+      sides = new int[shapes.length + 1][][];
+      for (int p = 1; p <= shapes.length; p++) {
+         ArrayList<int[]> rotations = new ArrayList<int[]>();
+         ArrayList<int[]> reflections = new ArrayList<int[]>();
+         for (int g = 0; g < 8; g++) {
+            int[] image = normalize(transform(shapes[p-1], g));
+            ArrayList<int[]> list = (g < 4)? rotations : reflections;
+            if (!containsShape(rotations, image) && !containsShape(reflections, image))
+               list.add(image);
+         }
+         boolean chiral = !reflections.isEmpty();  // Odbicie nie jest żadnym z obrotów.
+         int first = rows.size();
+         for (int[] image : rotations)
+            rows.add(toRow(p, image));
+         for (int[] image : reflections)
+            rows.add(toRow(p, image));
+         if (chiral) {
+            sides[p] = new int[2][rotations.size()];
+            for (int k = 0; k < rotations.size(); k++) {
+               sides[p][0][k] = first + k;
+               sides[p][1][k] = first + rotations.size() + k;
+            }
+         }
+      }
+      pieceData = rows.toArray(new int[rows.size()][]);
+   }
+
+   private static int[] parse(String picture) { // Zamienia rysunek klocka na pary (wiersz, kolumna).
+      int[] cells = new int[2*picture.length()];
+      int ct = 0;
+      int row = 0, col = 0;
+      for (int i = 0; i < picture.length(); i++) {
+         char ch = picture.charAt(i);
+         if (ch == '/' || ch == '\n') {
+            row++;
+            col = 0;
+            continue;
+         }
+         if (ch != '.' && ch != ' ' && ch != '\r') {
+            cells[ct++] = row;
+            cells[ct++] = col;
+         }
+         if (ch != '\r')
+            col++;
+      }
+      return Arrays.copyOf(cells, ct);
+   }
+
+   private static int[] transform(int[] shape, int g) { // Obraz klocka w jednym z 8 obrotów i odbić; g < 4 to obroty.
+      int[] image = new int[shape.length];
+      for (int i = 0; i < shape.length; i += 2) {
+         int r = shape[i], c = shape[i+1];
+         if (g >= 4)
+            c = -c;  // Najpierw odbicie, potem obrót.
+         for (int k = 0; k < g % 4; k++) {
+            int t = r;
+            r = c;
+            c = -t;
+         }
+         image[i] = r;
+         image[i+1] = c;
+      }
+      return image;
+   }
+
+   private static int[] normalize(int[] shape) { // Sortuje kwadraty od lewej do prawej i od góry do dołu i przesuwa pierwszy z nich do (0,0).
+      int n = shape.length / 2;
+      long[] order = new long[n];
+      for (int i = 0; i < n; i++)
+         order[i] = ((long)(shape[2*i] + OFFSET) << 32) | (shape[2*i+1] + OFFSET);  // Porządek: najpierw wiersz, potem kolumna.
+      Arrays.sort(order);
+      int[] result = new int[shape.length];
+      int r0 = (int)(order[0] >>> 32), c0 = (int)order[0];
+      for (int i = 0; i < n; i++) {
+         if (i > 0 && order[i] == order[i-1])
+            throw new IllegalArgumentException("A piece contains the same square twice.");
+         result[2*i] = (int)(order[i] >>> 32) - r0;
+         result[2*i+1] = (int)order[i] - c0;
+      }
+      return result;
+   }
+
+   private static int[] canonical(int[] shape) { // Najmniejsza leksykograficznie postać klocka wśród wszystkich obrotów i odbić.
+      int[] best = null;
+      for (int g = 0; g < 8; g++) {
+         int[] image = normalize(transform(shape, g));
+         if (best == null || Arrays.compare(image, best) < 0)
+            best = image;
+      }
+      return best;
+   }
+
+   private static boolean contains(int[] shape, int r, int c) {
+      for (int i = 0; i < shape.length; i += 2)
+         if (shape[i] == r && shape[i+1] == c)
+            return true;
+      return false;
+   }
+
+   private static boolean containsShape(ArrayList<int[]> list, int[] shape) {
+      for (int[] s : list)
+         if (Arrays.equals(s, shape))
+            return true;
+      return false;
+   }
+
+   private static boolean connected(int[] shape) { // Czy kwadraty klocka tworzą jeden spójny obszar?
+      int n = shape.length / 2;
+      boolean[] reached = new boolean[n];
+      int[] queue = new int[n];
+      int size = 1;
+      reached[0] = true;
+      for (int head = 0; head < size; head++) {
+         int a = queue[head];
+         for (int b = 0; b < n; b++)
+            if (!reached[b] && Math.abs(shape[2*a] - shape[2*b]) + Math.abs(shape[2*a+1] - shape[2*b+1]) == 1) {
+               reached[b] = true;
+               queue[size++] = b;
+            }
+      }
+      return size == n;
+   }
+
+   private static int[] toRow(int piece, int[] image) { // Wiersz w formacie piece_data: numer klocka i przesunięcia kwadratów poza (0,0).
+      int[] row = new int[image.length - 1];
+      row[0] = piece;
+      System.arraycopy(image, 2, row, 1, image.length - 2);
+      return row;
+   }
+
+   /**
+    * Liczba kwadratów każdego klocka.
+    */
+   public int getPieceSize() {
+      return pieceSize;
+   }
+
+   /**
+    * Liczba klocków w zestawie; klocki mają numery od 1 do getPieceCount().
+    */
+   public int getPieceCount() {
+      return shapes.length;
+   }
+
+   /**
+    * Zwraca wszystkie pozycje wszystkich klocków, w formacie PentominosPanel.piece_data. Pozycje każdego klocka są
+    * kolejno: obroty klocka w podanej postaci, a potem obroty jego odbicia. Tablica jest wspólna i nie może być modyfikowana.
+    */
+   public int[][] getPieceData() {
+      return pieceData;
+   }
+
+   /**
+    * Zwraca true, jeśli klocek numer piece ma dwie strony, czyli jego odbicia nie da się uzyskać obrotem.
+    */
+   public boolean isChiral(int piece) {
+      return sides[piece] != null;
+   }
+
+   /**
+    * Zwraca numery wierszy getPieceData() ze stroną A (obroty klocka w podanej postaci) albo stroną B (obroty odbicia)
+    * klocka numer piece. Dla klocka symetrycznego zwraca null.
+    */
+   public int[] getSide(int piece, boolean sideA) {
+      return sides[piece] == null? null : sides[piece][sideA? 0 : 1].clone();
+   }
+
+   /**
+    * Zwraca pozycje klocków jednostronnych: dla każdego klocka z dwiema stronami tylko strona A, jeśli useSideA[piece]
+    * jest true, a w przeciwnym razie tylko strona B. Jeśli useSideA jest null, zawsze używana jest strona A.
+    */
+   public int[][] getOneSided(boolean[] useSideA) {
+      boolean[] remove = new boolean[pieceData.length];
+      for (int p = 1; p <= shapes.length; p++)
+         if (sides[p] != null) {
+            boolean a = useSideA == null || useSideA[p];
+            for (int row : sides[p][a? 1 : 0])
+               remove[row] = true;
+         }
+      ArrayList<int[]> rows = new ArrayList<int[]>();
+      for (int i = 0; i < pieceData.length; i++)
+         if (!remove[i])
+            rows.add(pieceData[i]);
+      return rows.toArray(new int[rows.size()][]);
+   }
+
+   private static final class Key { // Klucz pamięci podręcznej: znormalizowane kształty klocków, w kolejności numerów.
+      final int[][] shapes;
+      final int hash;
+      Key(int[][] shapes) {
+         this.shapes = shapes;
+         this.hash = Arrays.deepHashCode(shapes);
+      }
+      public int hashCode() {
+         return hash;
+      }
+      public boolean equals(Object obj) {
+         return obj instanceof Key && Arrays.deepEquals(shapes, ((Key)obj).shapes);
+      }
+   }
+
+}
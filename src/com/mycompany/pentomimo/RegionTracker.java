@@ -0,0 +1,152 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Przyrostowe sprawdzanie oczywistego blokowania dla silników bitowych (zastępuje obviousBlockExists z PentominosPanel).
+ * Wyszukiwanie przechowuje liczbę "wymuszonych pustych" kwadratów: sumę reszt z dzielenia rozmiarów pustych obszarów
+ * przez rozmiar klocka (5 dla pentomin).
+ * Po położeniu klocka zmienić się może tylko obszar, w którym klocek leży, więc zalewanie (za pomocą przesunięć bitowych)
+ * zaczyna się od kwadratów sąsiadujących z klockiem. Jeśli wszystkie te kwadraty połączą się w jeden obszar,
+ * obszar się nie podzielił i liczba się nie zmienia, więc sprawdzenie kończy się po kilku krokach.
+ * Dodatkowo nowy obszar o rozmiarze dokładnie takim jak klocek jest sprawdzany, czy pasuje do niego któryś z nieużytych
+ * klocków; jeśli nie, wszystkie jego kwadraty muszą pozostać puste.
+ */
+final class RegionTracker {
+
+   private final int cols;            // Liczba kolumn planszy.
+   private final long firstColMask;   // Kwadraty w kolumnie 0.
+   private final long lastColMask;    // Kwadraty w kolumnie cols-1.
+   private final long firstRowMask;   // Kwadraty w wierszu 0.
+   private final long lastRowMask;    // Kwadraty w wierszu rows-1.
+   private int pieceSize = 5;         // Liczba kwadratów klocka.
+   private int[] start;               // Tablica pozycji (z PlacementTable) do sprawdzania kształtu obszarów o rozmiarze klocka.
+   private long[] masks;
+   private int[] piece;
+
+   RegionTracker(int rows, int cols) {
+      this.cols = cols;
+      long first = 0, last = 0;
+      for (int row = 0; row < rows; row++) {
+         first |= 1L << (row*cols);
+         last |= 1L << (row*cols + cols - 1);
+      }
+      firstColMask = first;
+      lastColMask = last;
+      firstRowMask = (cols == 64)? -1L : (1L << cols) - 1;
+      lastRowMask = firstRowMask << ((rows-1)*cols);
+   }
+
+   /**
+    * Ustawia tablicę pozycji używaną do sprawdzania, czy obszar o rozmiarze klocka może zostać wypełniony.
+    */
+   void setPlacements(PlacementTable table) {
+      pieceSize = table.pieceSize;
+      start = table.start;
+      masks = table.mask;
+      piece = table.piece;
+   }
+
+   private long grow(long region) { // Dodaje do obszaru wszystkich sąsiadów jego kwadratów (bez zawijania między wierszami).
+      return region
+            | ((region & ~lastColMask) << 1)
+            | ((region & ~firstColMask) >>> 1)
+            | (region << cols)
+            | (region >>> cols);
+   }
+
+   /**
+    * Zwraca puste kwadraty, które mają co najmniej trzech zajętych sąsiadów (brzeg planszy liczy się jako zajęty).
+    * Tylko wśród takich „ślepych zaułków” opłaca się szukać kwadratu z najmniejszą liczbą pasujących pozycji;
+    * przy dwóch sąsiadach kandydatów jest tak wielu, że liczenie pozycji kosztuje więcej, niż oszczędza.
+    */
+   long constrained(long filled) {
+      long left = firstColMask | (filled << 1);
+      long right = lastColMask | (filled >>> 1);
+      long up = firstRowMask | (filled << cols);
+      long down = lastRowMask | (filled >>> cols);
+      return ~filled & ((left & right & (up | down)) | (up & down & (left | right)));
+   }
+
+   private boolean fillable(long region, int usedMask) { // Czy któryś z nieużytych klocków ma dokładnie kształt obszaru o rozmiarze klocka?
+      int anchor = Long.numberOfTrailingZeros(region);
+      int end = start[anchor+1];
+      for (int i = start[anchor]; i < end; i++)
+         if (masks[i] == region && (usedMask & (1 << piece[i])) == 0)
+            return true;
+      return false;
+   }
+
+   /**
+    * Oblicza od zera liczbę wymuszonych pustych kwadratów dla planszy, na której zajęte kwadraty to bity równe 1 w filled.
+    * Zwraca -1, jeśli ta liczba (wraz z obszarami o rozmiarze klocka, których nie da się wypełnić) przekracza emptyAllowed.
+    */
+   int forcedEmpty(long filled, int usedMask, int emptyAllowed) {
+      int n = pieceSize;
+      long empty = ~filled;
+      int forced = 0;
+      int penalty = 0;
+      while (empty != 0) {
+         long region = empty & -empty;
+         long grown = region;
+         do {
+            region = grown;
+            grown = grow(region) & empty;
+         } while (grown != region);
+         empty &= ~region;
+         int size = Long.bitCount(region);
+         forced += size % n;
+         if (size == n && !fillable(region, usedMask))
+            penalty += n;
+         if (forced + penalty > emptyAllowed)
+            return -1;
+      }
+      return forced;
+   }
+
+   /**
+    * Aktualizuje liczbę wymuszonych pustych kwadratów po zajęciu kwadratów placed (klocek albo kwadrat zostawiony pusty).
+    * filled zawiera już placed, forced to liczba przed zmianą, a usedMask to klocki użyte po zmianie.
+    * Zwraca nową liczbę albo -1, jeśli plansza jest oczywiście zablokowana.
+    */
+   int update(long filled, long placed, int forced, int usedMask, int emptyAllowed) {
+      int n = pieceSize;
+      long empty = ~filled;
+      long seeds = grow(placed) & empty;  // Puste kwadraty sąsiadujące z nowo zajętymi kwadratami.
+      int placedCt = Long.bitCount(placed);
+      boolean sameResidue = placedCt % n == 0;
+      boolean first = true;
+      int total = 0;
+      int residues = 0;
+      int penalty = 0;
+      while (seeds != 0) {
+         long region = seeds & -seeds;
+         long grown = region;
+         do {
+            region = grown;
+            grown = grow(region) & empty;
+            if (first && sameResidue && (seeds & ~grown) == 0)
+               return forced;  // Wszyscy sąsiedzi są w jednym obszarze: obszar się nie podzielił, a jego rozmiar zmalał o wielokrotność n.
+         } while (grown != region);
+         first = false;
+         seeds &= ~region;
+         int size = Long.bitCount(region);
+         total += size;
+         residues += size % n;
+         if (size == n && !fillable(region, usedMask))
+            penalty += n;
+      }
+      int result = forced - (total + placedCt) % n + residues;
+      if (result + penalty > emptyAllowed)
+         return -1;
+      return result;
+   }
+
+}
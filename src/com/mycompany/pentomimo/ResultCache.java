@@ -0,0 +1,407 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.List;
+
+/**
+ * Trwała pamięć podręczna wyników w pliku odwzorowanym w pamięci (FileChannel/MappedByteBuffer), więc sprawdzenie,
+ * czy łamigłówka była już rozwiązana, trwa mikrosekundy i działa także po ponownym uruchomieniu programu.
+ * <p>
+ * Kluczem jest postać kanoniczna łamigłówki: rozmiar planszy i dziury sprowadzone przez obroty (i odbicia, jeśli klocki
+ * można odwracać) do najmniejszego obrazu, zestaw pozycji klocków (niezależnie od ich kolejności), liczba egzemplarzy,
+ * liczba klocków do położenia, liczba pustych kwadratów i to, czy liczone są tylko rozwiązania różne z dokładnością do symetrii.
+ * Z tych danych liczony jest 128-bitowy skrót. Wartością jest liczba rozwiązań (dokładna albo dolne ograniczenie, jeśli
+ * wyszukiwanie zakończyło się wcześniej) i opcjonalnie kilka rozwiązań, zapisanych w orientacji kanonicznej
+ * i obracanych z powrotem przy odczycie.
+ * <p>
+ * Plik składa się z nagłówka, tablicy mieszającej o stałym rozmiarze wpisów (adresowanie otwarte) i sterty z rozwiązaniami.
+ * Gdy tablica jest zapełniona w 3/4, jest powiększana na miejscu. To tylko pamięć podręczna: plik z niepoprawnym
+ * nagłówkiem jest zakładany od nowa. Z pliku może naraz korzystać tylko jeden proces (blokada pliku); wewnątrz procesu
+ * metody są synchronizowane, więc może go używać wiele wątków.
+ */
+public final class ResultCache implements Closeable {
+
+   private static final long MAGIC = 0x50454E544F434331L;  // "PENTOCC1"
+   private static final int VERSION = 1;
+   private static final int HEADER_SIZE = 64;
+   private static final int SLOT_SIZE = 40;
+   private static final int INITIAL_CAPACITY = 1 << 12;
+   private static final int FLAG_COMPLETE = 1;
+
+   // Nagłówek: MAGIC (long), VERSION (int), capacity (int), size (int), heapUsed (long).
+   private static final int H_CAPACITY = 12, H_SIZE = 16, H_HEAP = 24;
+   // Wpis: skrót (dwa longi, 0 oznacza pusty wpis), liczba rozwiązań, znaczniki, liczba zapisanych rozwiązań, położenie na stercie.
+   private static final int S_HI = 0, S_LO = 8, S_COUNT = 16, S_FLAGS = 24, S_STORED = 28, S_OFFSET = 32;
+
+   private static ResultCache defaultCache;
+   private static boolean defaultOpened;
+
+   private final RandomAccessFile file;
+   private final FileChannel channel;
+   private final FileLock lock;
+   private MappedByteBuffer map;
+   private int capacity;   // Liczba wpisów tablicy mieszającej, potęga dwójki.
+   private int size;       // Liczba zajętych wpisów.
+   private long heapUsed;  // Liczba zajętych bajtów sterty.
+
+   /**
+    * Klucz łamigłówki w postaci kanonicznej, tworzony przez of().
+    */
+   public static final class Key {
+      final long hi, lo;           // 128-bitowy skrót postaci kanonicznej.
+      final int rows, cols;        // Rozmiar planszy, dla której utworzono klucz.
+      final int imageRows, imageCols;  // Rozmiar planszy kanonicznej.
+      final int transform;         // Symetria, która przenosi planszę na planszę kanoniczną (numeracja jak w SymmetryGroup).
+
+      private Key(long hi, long lo, int rows, int cols, int transform) {
+         this.hi = hi;
+         this.lo = lo;
+         this.rows = rows;
+         this.cols = cols;
+         this.transform = transform;
+         boolean swapsAxes = swapsAxes(transform);
+         imageRows = swapsAxes? cols : rows;
+         imageCols = swapsAxes? rows : cols;
+      }
+
+      /**
+       * Tworzy klucz łamigłówki.
+       * @param holes holes[row*cols+col] jest true dla kwadratu, który musi pozostać pusty.
+       * @param pieces pozycje klocków w formacie PentominosPanel.piece_data; zestaw musi zawierać wszystkie obroty każdego
+       *    klocka, a jeśli allowFlip jest true, także odbicia.
+       * @param allowFlip false dla klocków jednostronnych; wtedy plansza jest sprowadzana do postaci kanonicznej tylko przez obroty.
+       * @param copies liczba egzemplarzy każdego klocka.
+       * @param symmetry true, jeśli liczone są tylko rozwiązania różne z dokładnością do symetrii planszy.
+       */
+      public static Key of(int rows, int cols, boolean[] holes, int[][] pieces, boolean allowFlip,
+                           int copies, int piecesNeeded, int emptySpaces, boolean symmetry) {
+         int cellCount = rows*cols;
+         boolean[] best = null;
+         int bestTransform = 0;
+         for (int g = 0; g < 8; g++) {
+            if (!allowFlip && g >= 4)
+               break;
+            int imageRows = swapsAxes(g)? cols : rows;
+            int imageCols = swapsAxes(g)? rows : cols;
+            if (imageRows > imageCols)
+               continue;  // Plansza kanoniczna nie jest wyższa niż szeroka.
+            boolean[] image = new boolean[cellCount];
+            for (int cell = 0; cell < cellCount; cell++)
+               image[transform(g, rows, cols, cell)] = holes[cell];
+            if (best == null || compare(image, best) < 0) {
+               best = image;
+               bestTransform = g;
+            }
+         }
+         long pieceHash = 0;
+         for (int[] orientation : pieces) {  // Suma skrótów nie zależy od kolejności pozycji (opcja "Randomize Order").
+            long h = 0x9E3779B97F4A7C15L;
+            for (int value : orientation)
+               h = mix(h + value);
+            pieceHash += h;
+         }
+         boolean swap = swapsAxes(bestTransform);
+         long[] data = new long[8 + (cellCount + 63) / 64];
+         data[0] = VERSION;
+         data[1] = swap? cols : rows;
+         data[2] = swap? rows : cols;
+         data[3] = copies;
+         data[4] = ((long)piecesNeeded << 32) | emptySpaces;
+         data[5] = (symmetry? 1 : 0) | (allowFlip? 2 : 0) | (symmetry && copies > 1? 4 : 0);  // 4: wpisy sprzed poprawki symetrii dla kilku kompletów są pomijane.
+         data[6] = pieceHash;
+         data[7] = pieces.length;
+         for (int cell = 0; cell < cellCount; cell++)
+            if (best[cell])
+               data[8 + cell/64] |= 1L << (cell % 64);
+         long hi = 0x243F6A8885A308D3L, lo = 0x13198A2E03707344L;
+         for (long d : data) {
+            hi = mix(hi ^ d);
+            lo = mix(lo + d * 0xC2B2AE3D27D4EB4FL);
+         }
+         if (hi == 0 && lo == 0)
+            lo = 1;  // 0 oznacza pusty wpis.
+         return new Key(hi, lo, rows, cols, bestTransform);
+      }
+
+      private static int compare(boolean[] a, boolean[] b) {
+         for (int i = 0; i < a.length; i++)
+            if (a[i] != b[i])
+               return a[i]? -1 : 1;
+         return 0;
+      }
+
+      int toImage(int cell) { // Numer kwadratu planszy kanonicznej dla kwadratu cell planszy oryginalnej.
+         return transform(transform, rows, cols, cell);
+      }
+   }
+
+   /**
+    * Wynik zapisany w pamięci podręcznej.
+    */
+   public static final class Entry {
+      public final long solutionCount;  // Dokładna liczba rozwiązań, jeśli complete; w przeciwnym razie dolne ograniczenie.
+      public final boolean complete;    // Prawda, jeśli przeszukano całe drzewo.
+      public final int[][] solutions;   // Zapisane rozwiązania w orientacji planszy z klucza (może być pusta).
+
+      Entry(long solutionCount, boolean complete, int[][] solutions) {
+         this.solutionCount = solutionCount;
+         this.complete = complete;
+         this.solutions = solutions;
+      }
+
+      /**
+       * Prawda, jeśli wiadomo, że łamigłówka ma rozwiązanie.
+       */
+      public boolean isSolvable() {
+         return solutionCount > 0;
+      }
+   }
+
+   private static boolean swapsAxes(int g) {
+      return g == 1 || g == 3 || g == 6 || g == 7;
+   }
+
+   private static int transform(int g, int rows, int cols, int cell) { // Jak SymmetryGroup.transform(), ale dla dowolnego prostokąta.
+      int row = cell / cols, col = cell % cols;
+      int r, c;
+      switch (g) {
+         case 1:  r = col;          c = rows-1-row;  break;
+         case 2:  r = rows-1-row;   c = cols-1-col;  break;
+         case 3:  r = cols-1-col;   c = row;         break;
+         case 4:  r = row;          c = cols-1-col;  break;
+         case 5:  r = rows-1-row;   c = col;         break;
+         case 6:  r = col;          c = row;         break;
+         case 7:  r = cols-1-col;   c = rows-1-row;  break;
+         default: r = row;          c = col;
+      }
+      return r*(swapsAxes(g)? rows : cols) + c;
+   }
+
+   private static long mix(long z) { // Funkcja mieszająca z generatora SplitMix64.
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+   }
+
+   /**
+    * Zwraca wspólną pamięć podręczną w pliku .pentominos/results.cache w katalogu domowym użytkownika,
+    * albo null, jeśli nie można jej otworzyć (na przykład gdy używa jej inny proces).
+    */
+   public static synchronized ResultCache getDefault() {
+      if (!defaultOpened) {
+         defaultOpened = true;
+         try {
+            File dir = new File(System.getProperty("user.home"), ".pentominos");
+            dir.mkdirs();
+            defaultCache = open(new File(dir, "results.cache"));
+         }
+         catch (IOException | SecurityException e) {
+            defaultCache = null;
+         }
+      }
+      return defaultCache;
+   }
+
+   /**
+    * Otwiera (albo tworzy) pamięć podręczną w podanym pliku.
+    */
+   public static ResultCache open(File path) throws IOException {
+      return new ResultCache(path);
+   }
+
+   private ResultCache(File path) throws IOException {
+      file = new RandomAccessFile(path, "rw");
+      channel = file.getChannel();
+      lock = channel.tryLock();
+      if (lock == null) {
+         file.close();
+         throw new IOException("Result cache " + path + " is in use by another process.");
+      }
+      boolean valid = false;
+      if (channel.size() >= HEADER_SIZE) {
+         map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+         capacity = map.getInt(H_CAPACITY);
+         size = map.getInt(H_SIZE);
+         heapUsed = map.getLong(H_HEAP);
+         valid = map.getLong(0) == MAGIC && map.getInt(8) == VERSION
+               && capacity >= INITIAL_CAPACITY && Integer.bitCount(capacity) == 1 && size >= 0 && size < capacity
+               && heapUsed >= 0 && heapStart() + heapUsed <= channel.size();
+      }
+      if (!valid) {
+         map = null;
+         channel.truncate(0);
+         capacity = INITIAL_CAPACITY;
+         size = 0;
+         heapUsed = 0;
+         remap(heapStart() + 4096);
+         map.putLong(0, MAGIC);
+         map.putInt(8, VERSION);
+         writeHeader();
+      }
+   }
+
+   private long heapStart() {
+      return HEADER_SIZE + (long)capacity*SLOT_SIZE;
+   }
+
+   private void remap(long length) throws IOException { // Odwzorowuje cały plik, powiększając go do co najmniej length bajtów.
+      if (length > Integer.MAX_VALUE)
+         throw new IOException("Result cache is full.");
+      map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(length, channel.size()));
+   }
+
+   private void writeHeader() {
+      map.putInt(H_CAPACITY, capacity);
+      map.putInt(H_SIZE, size);
+      map.putLong(H_HEAP, heapUsed);
+   }
+
+   private int find(long hi, long lo) { // Położenie wpisu o podanym skrócie albo pustego wpisu, w którym należy go zapisać.
+      int mask = capacity - 1;
+      int i = (int)(hi ^ (hi >>> 32)) & mask;
+      while (true) {
+         int slot = HEADER_SIZE + i*SLOT_SIZE;
+         long h = map.getLong(slot + S_HI), l = map.getLong(slot + S_LO);
+         if ((h == hi && l == lo) || (h == 0 && l == 0))
+            return slot;
+         i = (i + 1) & mask;
+      }
+   }
+
+   private static boolean isEmptySlot(MappedByteBuffer map, int slot) {
+      return map.getLong(slot + S_HI) == 0 && map.getLong(slot + S_LO) == 0;
+   }
+
+   /**
+    * Zwraca zapisany wynik dla klucza albo null, jeśli łamigłówka nie była jeszcze rozwiązywana.
+    */
+   public synchronized Entry get(Key key) {
+      if (map == null)
+         return null;
+      int slot = find(key.hi, key.lo);
+      if (isEmptySlot(map, slot))
+         return null;
+      int stored = map.getInt(slot + S_STORED);
+      long offset = heapStart() + map.getLong(slot + S_OFFSET);
+      int cellCount = key.rows*key.cols;
+      int[][] solutions = new int[stored][cellCount];
+      for (int s = 0; s < stored; s++)
+         for (int cell = 0; cell < cellCount; cell++)
+            solutions[s][cell] = map.getShort((int)(offset + 2L*(s*cellCount + key.toImage(cell)))) & 0xFFFF;
+      return new Entry(map.getLong(slot + S_COUNT), (map.getInt(slot + S_FLAGS) & FLAG_COMPLETE) != 0, solutions);
+   }
+
+   /**
+    * Zapisuje wynik. Wynik niepełny (complete == false) nie zastępuje wyniku pełnego.
+    * @param solutions rozwiązania do zapamiętania (w formacie PentominoSolver.getCurrentSolution()), albo null.
+    */
+   public synchronized void put(Key key, long solutionCount, boolean complete, List<int[]> solutions) throws IOException {
+      if (map == null)
+         throw new IOException("Result cache is closed.");
+      int slot = find(key.hi, key.lo);
+      boolean isNew = isEmptySlot(map, slot);
+      int newStored = (solutions == null)? 0 : solutions.size();
+      if (!isNew) {
+         boolean oldComplete = (map.getInt(slot + S_FLAGS) & FLAG_COMPLETE) != 0;
+         int oldStored = map.getInt(slot + S_STORED);
+         if (oldComplete && (!complete || newStored <= oldStored))
+            return;
+         if (!oldComplete && !complete && solutionCount <= map.getLong(slot + S_COUNT) && newStored <= oldStored)
+            return;
+      }
+      else if ((size + 1) * 4L > capacity * 3L) {
+         grow();
+         slot = find(key.hi, key.lo);
+      }
+      long offset = 0;
+      if (newStored > 0) {  // Rozwiązania trafiają na koniec sterty; poprzednie rozwiązania tego wpisu zostają jako nieużywane bajty.
+         int cellCount = key.rows*key.cols;
+         long bytes = 2L*newStored*cellCount;
+         if (heapStart() + heapUsed + bytes > map.capacity())
+            remap(Math.max(heapStart() + heapUsed + bytes, 2L*map.capacity()));
+         offset = heapUsed;
+         long base = heapStart() + offset;
+         for (int s = 0; s < newStored; s++) {
+            int[] solution = solutions.get(s);
+            for (int cell = 0; cell < cellCount; cell++)
+               map.putShort((int)(base + 2L*(s*cellCount + key.toImage(cell))), (short)solution[cell]);
+         }
+         heapUsed += bytes;
+      }
+      map.putLong(slot + S_COUNT, solutionCount);
+      map.putInt(slot + S_FLAGS, complete? FLAG_COMPLETE : 0);
+      map.putInt(slot + S_STORED, newStored);
+      map.putLong(slot + S_OFFSET, offset);
+      map.putLong(slot + S_LO, key.lo);
+      map.putLong(slot + S_HI, key.hi);  // Skrót jest zapisywany na końcu, więc wpis staje się widoczny dopiero kompletny.
+      if (isNew)
+         size++;
+      writeHeader();
+   }
+
+   private void grow() throws IOException { // Podwaja tablicę mieszającą: przesuwa stertę i wstawia wszystkie wpisy od nowa.
+      int oldCapacity = capacity;
+      long oldHeapStart = heapStart();
+      long[][] entries = new long[size][];
+      int n = 0;
+      for (int i = 0; i < oldCapacity; i++) {
+         int slot = HEADER_SIZE + i*SLOT_SIZE;
+         if (!isEmptySlot(map, slot))
+            entries[n++] = new long[] { map.getLong(slot + S_HI), map.getLong(slot + S_LO), map.getLong(slot + S_COUNT),
+                                        map.getInt(slot + S_FLAGS), map.getInt(slot + S_STORED), map.getLong(slot + S_OFFSET) };
+      }
+      byte[] heap = new byte[(int)heapUsed];
+      map.get((int)oldHeapStart, heap);
+      capacity = 2*oldCapacity;
+      remap(heapStart() + heapUsed + 4096);
+      map.put((int)heapStart(), heap);
+      for (int i = HEADER_SIZE; i < heapStart(); i += 8)
+         map.putLong(i, 0);
+      for (int e = 0; e < n; e++) {
+         long[] entry = entries[e];
+         int slot = find(entry[0], entry[1]);
+         map.putLong(slot + S_COUNT, entry[2]);
+         map.putInt(slot + S_FLAGS, (int)entry[3]);
+         map.putInt(slot + S_STORED, (int)entry[4]);
+         map.putLong(slot + S_OFFSET, entry[5]);
+         map.putLong(slot + S_LO, entry[1]);
+         map.putLong(slot + S_HI, entry[0]);
+      }
+      writeHeader();
+   }
+
+   /**
+    * Liczba zapisanych łamigłówek.
+    */
+   public synchronized int size() {
+      return size;
+   }
+
+   /**
+    * Zapisuje zmiany na dysk i zamyka plik.
+    */
+   public synchronized void close() throws IOException {
+      if (map == null)
+         return;
+      map.force();
+      map = null;
+      lock.release();
+      file.close();
+   }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.ImageIO;
+
+/**
+ * Zapisuje rozwiązania jako obrazy PNG bez ekranu (java.awt.headless=true): każde rozwiązanie w osobnym pliku
+ * albo po kilka na jednym arkuszu (contact sheet). Plansze są rysowane przez MosaicPanel, w tym samym stylu i tymi samymi
+ * kolorami klocków co w PentominosPanel. Rysowanie i kodowanie PNG odbywa się na puli wątków; każdy wątek ma własny
+ * MosaicPanel (z pamięcią sprite'ów) i własny arkusz, a kolejka zadań i strumień rozwiązań mają stałą pojemność,
+ * więc pamięć nie zależy od liczby rozwiązań.
+ * <p>
+ * Użycie: java com.mycompany.pentomimo.SolutionImages [-t wątki] [-n najwięcej_rozwiązań] [-size piksele] [-sheet KOLUMNYxWIERSZE]
+ *        [-gap piksele] [-d katalog] [-prefix nazwa] łamigłówka
+ * <p>
+ * Łamigłówka jest opisana tak jak wiersz wejścia PentominosBatch, na przykład: 6x10 symmetry albo 8x8 holes=3:3,3:4,4:3,4:4.
+ * Pliki nazywają się nazwa-000001.png (numer rozwiązania) albo, z opcją -sheet, nazwa-sheet-0001.png.
+ */
+public class SolutionImages {
+
+   private final int rows, cols;
+   private final boolean[] holes;   // holes[row*cols+col] jest true dla kwadratu, który musi pozostać pusty.
+   private int squareSize = 30;     // Rozmiar kwadratu w pikselach, jak w PentominosPanel.
+   private int sheetColumns = 1, sheetRows = 1;  // Liczba plansz na arkuszu; 1x1 oznacza osobny plik dla każdego rozwiązania.
+   private int gap = 10;            // Odstęp między planszami na arkuszu, w pikselach.
+   private Color sheetColor = Color.WHITE;  // Tło arkusza.
+
+   private final ThreadLocal<MosaicPanel> panels = new ThreadLocal<MosaicPanel>();   // Panel każdego wątku.
+   private final ThreadLocal<BufferedImage> sheets = new ThreadLocal<BufferedImage>(); // Arkusz każdego wątku.
+
+   /**
+    * Tworzy obiekt rysujący rozwiązania planszy o podanym rozmiarze. holes może być null (brak dziur).
+    */
+   public SolutionImages(int rows, int cols, boolean[] holes) {
+      this.rows = rows;
+      this.cols = cols;
+      this.holes = (holes == null)? new boolean[rows*cols] : holes.clone();
+   }
+
+   public void setSquareSize(int pixels) {
+      squareSize = Math.max(2, pixels);
+   }
+
+   /**
+    * Ustawia liczbę plansz na jednym arkuszu. Dla 1x1 (domyślnie) każde rozwiązanie jest osobnym obrazem.
+    */
+   public void setSheet(int columns, int rows) {
+      sheetColumns = Math.max(1, columns);
+      sheetRows = Math.max(1, rows);
+   }
+
+   public void setGap(int pixels) {
+      gap = Math.max(0, pixels);
+   }
+
+   public void setSheetColor(Color c) {
+      sheetColor = (c == null)? Color.WHITE : c;
+   }
+
+   /**
+    * Zwraca kolor klocka o numerze piece: kolory z PentominosPanel dla numerów 1 do 12, dla kolejnych
+    * (większe zestawy klocków) kolory rozłożone równomiernie na kole barw.
+    */
+   public static Color pieceColor(int piece) {
+      if (piece > 0 && piece < PentominosPanel.pieceColor.length)
+         return PentominosPanel.pieceColor[piece];
+      return MosaicPanel.makeHSBColor((piece * 0.618034) % 1, 0.5, 0.95);
+   }
+
+   /**
+    * Rysuje jedno rozwiązanie (w formacie PentominoSolver.getCurrentSolution()) i zwraca nowy obraz.
+    */
+   public BufferedImage render(int[] solution) {
+      BufferedImage image = draw(solution);
+      return new BufferedImage(image.getColorModel(), image.copyData(null), false, null);
+   }
+
+   /**
+    * Rysuje arkusz z podanymi rozwiązaniami (co najwyżej tyle, ile mieści się na arkuszu) i zwraca nowy obraz.
+    */
+   public BufferedImage renderSheet(List<int[]> solutions) {
+      BufferedImage image = drawSheet(solutions);
+      return new BufferedImage(image.getColorModel(), image.copyData(null), false, null);
+   }
+
+   private BufferedImage draw(int[] solution) { // Rysuje rozwiązanie w panelu bieżącego wątku; obraz należy do panelu.
+      MosaicPanel panel = panels.get();
+      if (panel == null) {
+         panel = new MosaicPanel(rows, cols, squareSize, squareSize);
+         panel.setAutopaint(false);  // Panel nie jest pokazywany; obraz powstaje w renderImage().
+         panels.set(panel);
+      }
+      if (panel.getWidth() != cols*squareSize || panel.getHeight() != rows*squareSize)
+         panel.setSize(cols*squareSize, rows*squareSize);
+      for (int r = 0; r < rows; r++)
+         for (int c = 0; c < cols; c++) {
+            int i = r*cols + c;
+            int piece = solution[i];
+            if (piece != 0)
+               panel.setColor(r, c, pieceColor(piece));
+            else
+               panel.setColor(r, c, holes[i]? PentominosPanel.emptyColor : null);
+         }
+      return panel.renderImage();
+   }
+
+   private BufferedImage drawSheet(List<int[]> solutions) { // Rysuje arkusz bieżącego wątku.
+      int boardWidth = cols*squareSize, boardHeight = rows*squareSize;
+      int width = sheetColumns*boardWidth + (sheetColumns+1)*gap;
+      int height = sheetRows*boardHeight + (sheetRows+1)*gap;
+      BufferedImage sheet = sheets.get();
+      if (sheet == null || sheet.getWidth() != width || sheet.getHeight() != height) {
+         sheet = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+         sheets.set(sheet);
+      }
+      Graphics g = sheet.getGraphics();
+      g.setColor(sheetColor);
+      g.fillRect(0, 0, width, height);
+      int count = Math.min(solutions.size(), sheetColumns*sheetRows);
+      for (int k = 0; k < count; k++) {
+         int x = gap + (k % sheetColumns) * (boardWidth + gap);
+         int y = gap + (k / sheetColumns) * (boardHeight + gap);
+         g.drawImage(draw(solutions.get(k)), x, y, null);
+      }
+      g.dispose();
+      return sheet;
+   }
+
+   /**
+    * Zapisuje co najwyżej limit rozwiązań z iteratora jako pliki PNG w katalogu dir, używając podanej liczby wątków,
+    * i zwraca liczbę zapisanych rozwiązań. Rozwiązania są pobierane w bieżącym wątku; gdy pula nie nadąża,
+    * bieżący wątek sam rysuje obraz, więc w pamięci jest najwyżej kilka obrazów na wątek.
+    * Pierwszy błąd zapisu przerywa pracę i jest zgłaszany jako IOException.
+    */
+   public long write(Iterator<int[]> solutions, File dir, final String prefix, int threads, long limit)
+         throws IOException, InterruptedException {
+      if (!dir.isDirectory() && !dir.mkdirs())
+         throw new IOException("Can't create directory " + dir);
+      ImageIO.setUseCache(false);  // Kodowanie w pamięci, bez plików tymczasowych.
+      threads = Math.max(1, threads);
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(2*threads), new ThreadPoolExecutor.CallerRunsPolicy());
+      final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+      final int perImage = sheetColumns*sheetRows;
+      long count = 0;
+      int imageNumber = 0;
+      try {
+         while (count < limit && failure.get() == null && solutions.hasNext()) {
+            final List<int[]> batch = new ArrayList<int[]>(perImage);
+            while (batch.size() < perImage && count < limit && solutions.hasNext()) {
+               batch.add(solutions.next());
+               count++;
+            }
+            imageNumber++;
+            final File file = new File(dir, (perImage == 1)? String.format("%s-%06d.png", prefix, count)
+                                                           : String.format("%s-sheet-%04d.png", prefix, imageNumber));
+            pool.execute(new Runnable() {
+               public void run() {
+                  if (failure.get() != null)
+                     return;
+                  try {
+                     BufferedImage image = (perImage == 1)? draw(batch.get(0)) : drawSheet(batch);
+                     if ( ! ImageIO.write(image, "PNG", file) )
+                        throw new IOException("PNG files are not supported.");
+                  }
+                  catch (IOException e) {
+                     failure.compareAndSet(null, e);
+                  }
+               }
+            });
+         }
+      }
+      finally {
+         pool.shutdown();
+         pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      }
+      if (failure.get() != null)
+         throw failure.get();
+      return count;
+   }
+
+   /**
+    * Tworzy leniwy strumień rozwiązań łamigłówki: PentominoSolver dla plansz o co najwyżej 64 kwadratach,
+    * w przeciwnym razie DancingLinksSolver. Zestawy z kilkoma egzemplarzami klocków (sets) nie są obsługiwane.
+    */
+   public static SolutionStream solutions(PentominosBatch.Puzzle puzzle, int capacity) {
+      if (puzzle.sets != 1)
+         throw new IllegalArgumentException("Images can only be made for puzzles with one set of pieces.");
+      int[][] pieces = puzzle.pieces();
+      int[] fit = PentominosBatch.fit(puzzle);
+      SymmetryGroup symmetry = puzzle.symmetry? new SymmetryGroup(puzzle.rows, puzzle.cols, puzzle.holes, puzzle.oneSided == null) : null;
+      int cellCount = puzzle.rows*puzzle.cols;
+      if (cellCount <= PentominoSolver.MAX_CELLS && puzzle.pieceSet.getPieceCount() <= 31) {
+         PentominoSolver solver = new PentominoSolver(puzzle.rows, puzzle.cols, pieces);
+         long holeMask = 0;
+         for (int cell = 0; cell < cellCount; cell++)
+            if (puzzle.holes[cell])
+               holeMask |= 1L << cell;
+         solver.setHoles(holeMask);
+         solver.setPiecesNeeded(fit[0], fit[1]);
+         solver.setCheckForBlocks(puzzle.checkForBlocks);
+         solver.setSymmetry(symmetry);
+         solver.setEstimate(false);
+         return new SolutionStream(solver, capacity);
+      }
+      DancingLinksSolver solver = new DancingLinksSolver(puzzle.rows, puzzle.cols, pieces, puzzle.holes, fit[0], fit[1]);
+      solver.setSymmetry(symmetry);
+      return new SolutionStream(solver, capacity);
+   }
+
+   public static void main(String[] args) throws IOException, InterruptedException {
+      if (System.getProperty("java.awt.headless") == null)
+         System.setProperty("java.awt.headless", "true");
+      int threads = Runtime.getRuntime().availableProcessors();
+      long limit = Long.MAX_VALUE;
+      int size = 30;
+      int sheetColumns = 1, sheetRows = 1;
+      int gap = 10;
+      String dirName = ".";
+      String prefix = null;
+      StringBuilder puzzleText = new StringBuilder();
+      for (int i = 0; i < args.length; i++) {
+         if (args[i].equals("-t") && i + 1 < args.length)
+            threads = Math.max(1, Integer.parseInt(args[++i]));
+         else if (args[i].equals("-n") && i + 1 < args.length)
+            limit = Long.parseLong(args[++i]);
+         else if (args[i].equals("-size") && i + 1 < args.length)
+            size = Integer.parseInt(args[++i]);
+         else if (args[i].equals("-sheet") && i + 1 < args.length) {
+            String[] sheet = args[++i].toLowerCase().split("x");
+            sheetColumns = Integer.parseInt(sheet[0]);
+            sheetRows = (sheet.length > 1)? Integer.parseInt(sheet[1]) : sheetColumns;
+         }
+         else if (args[i].equals("-gap") && i + 1 < args.length)
+            gap = Integer.parseInt(args[++i]);
+         else if (args[i].equals("-d") && i + 1 < args.length)
+            dirName = args[++i];
+         else if (args[i].equals("-prefix") && i + 1 < args.length)
+            prefix = args[++i];
+         else
+            puzzleText.append(args[i]).append(' ');
+      }
+      if (puzzleText.length() == 0) {
+         System.err.println("Usage: java com.mycompany.pentomimo.SolutionImages [-t threads] [-n max] [-size pixels] [-sheet COLSxROWS]"
+                            + " [-gap pixels] [-d directory] [-prefix name] puzzle");
+         System.exit(1);
+      }
+      PentominosBatch.Puzzle puzzle = PentominosBatch.parse(puzzleText.toString());
+      if (puzzle.firstOnly)
+         limit = Math.min(limit, 1);
+      if (prefix == null)
+         prefix = "pentominos_" + puzzle.rows + "x" + puzzle.cols;
+      SolutionImages images = new SolutionImages(puzzle.rows, puzzle.cols, puzzle.holes);
+      images.setSquareSize(size);
+      images.setSheet(sheetColumns, sheetRows);
+      images.setGap(gap);
+      long startTime = System.nanoTime();
+      long count;
+      SolutionStream stream = solutions(puzzle, 2*threads*sheetColumns*sheetRows);
+      try {
+         count = images.write(stream, new File(dirName), prefix, threads, limit);
+      }
+      finally {
+         stream.close();
+      }
+      double seconds = (System.nanoTime() - startTime) / 1e9;
+      int perImage = sheetColumns*sheetRows;
+      System.out.println("{\"summary\":true,\"solutions\":" + count + ",\"images\":" + (count + perImage - 1) / perImage
+            + ",\"threads\":" + threads
+            + ",\"seconds\":" + String.format(java.util.Locale.ROOT, "%.3f", seconds)
+            + ",\"imagesPerSecond\":" + String.format(java.util.Locale.ROOT, "%.1f", seconds > 0? count / (double)perImage / seconds : 0.0) + "}");
+   }
+
+}
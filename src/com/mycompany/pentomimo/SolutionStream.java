@@ -0,0 +1,295 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Leniwy strumień rozwiązań silnika PentominoSolver albo DancingLinksSolver, bez panelu graficznego.
+ * Silnik działa w osobnym wątku, który przekazuje rozwiązania przez kolejkę o stałej pojemności: gdy kolejka jest pełna,
+ * wątek silnika czeka wewnątrz Listener.solutionFound(), aż odbiorca pobierze kolejne rozwiązanie, więc pamięć
+ * jest ograniczona niezależnie od liczby rozwiązań. Wyszukiwanie zaczyna się przy pierwszym pobraniu rozwiązania.
+ * Rozwiązania można pobierać jako Iterator (ten obiekt), Stream (stream()) albo Flow.Publisher (publisher()).
+ * close() kończy wyszukiwanie w dowolnym momencie; obiekt należy zamknąć, jeśli nie pobrano wszystkich rozwiązań.
+ * Każde rozwiązanie to tablica w formacie PentominoSolver.getCurrentSolution().
+ */
+public class SolutionStream implements Iterator<int[]>, AutoCloseable {
+
+   private static final int[] END = new int[0];  // Znacznik końca wyszukiwania w kolejce.
+
+   private final Runnable search;     // Uruchamia silnik w wątku worker.
+   private final Runnable abort;      // Prosi silnik o przerwanie wyszukiwania.
+   private final ArrayBlockingQueue<int[]> queue;  // Rozwiązania czekające na odbiorcę.
+
+   private Thread worker;             // Wątek silnika; null przed pierwszym pobraniem.
+   private int[] next;                // Rozwiązanie pobrane z kolejki przez hasNext(), ale jeszcze nie zwrócone przez next().
+   private boolean finished;          // Prawda po odebraniu znacznika END.
+   private volatile boolean closed;   // Ustawiane przez close().
+   private volatile RuntimeException failure;  // Wyjątek zgłoszony przez silnik, przekazywany odbiorcy.
+
+   /**
+    * Tworzy strumień rozwiązań silnika solver, który musi być już skonfigurowany (dziury, liczba klocków itd.).
+    * Obserwator silnika zostaje zastąpiony. capacity to liczba rozwiązań, które silnik może znaleźć przed odbiorcą.
+    */
+   public SolutionStream(final PentominoSolver solver, int capacity) {
+      queue = new ArrayBlockingQueue<int[]>(Math.max(1, capacity));
+      solver.setListener(new Handoff() {
+         int[] solution() {
+            return solver.getCurrentSolution();
+         }
+      });
+      search = new Runnable() {
+         public void run() {
+            solver.solve();
+         }
+      };
+      abort = new Runnable() {
+         public void run() {
+            solver.abort();
+         }
+      };
+   }
+
+   /**
+    * Jak SolutionStream(PentominoSolver,int), ale dla silnika DancingLinksSolver.
+    */
+   public SolutionStream(final DancingLinksSolver solver, int capacity) {
+      queue = new ArrayBlockingQueue<int[]>(Math.max(1, capacity));
+      solver.setListener(new Handoff() {
+         int[] solution() {
+            return solver.getCurrentSolution();
+         }
+      });
+      search = new Runnable() {
+         public void run() {
+            solver.solve();
+         }
+      };
+      abort = new Runnable() {
+         public void run() {
+            solver.abort();
+         }
+      };
+   }
+
+   private abstract class Handoff implements PentominoSolver.Listener { // Obserwator, który przekazuje rozwiązania do kolejki.
+
+      abstract int[] solution();
+
+      public boolean piecePlaced(int piece, int[] cells) {
+         return !closed;
+      }
+
+      public void pieceRemoved(int piece, int[] cells) {
+      }
+
+      public boolean solutionFound(long solutionCount) {
+         try {
+            queue.put(solution());  // Czeka, jeśli odbiorca nie nadąża.
+         }
+         catch (InterruptedException e) {
+            return false;  // close() przerywa czekanie.
+         }
+         return !closed;
+      }
+   }
+
+   private synchronized void start() { // Uruchamia wątek silnika przy pierwszym pobraniu.
+      if (worker != null)
+         return;
+      worker = new Thread(new Runnable() {
+         public void run() {
+            try {
+               search.run();
+            }
+            catch (RuntimeException e) {
+               failure = e;
+            }
+            finally {
+               try {
+                  if (closed)
+                     queue.offer(END);  // close() zwolniło miejsce w kolejce; odbiorca nie może czekać w nieskończoność.
+                  else
+                     queue.put(END);
+               }
+               catch (InterruptedException e) {
+                  queue.offer(END);  // Przerwane przez close(), które też wstawia END.
+               }
+            }
+         }
+      }, "SolutionStream");
+      worker.setDaemon(true);
+      worker.start();
+   }
+
+   /**
+    * Czeka na kolejne rozwiązanie i zwraca true, jeśli jest; false, jeśli wyszukiwanie się zakończyło albo strumień został zamknięty.
+    */
+   public boolean hasNext() {
+      if (next != null)
+         return true;
+      if (finished || closed)
+         return false;
+      start();
+      try {
+         next = queue.take();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         close();
+         return false;
+      }
+      if (closed) {  // Obudzony przez close() z innego wątku.
+         next = null;
+         return false;
+      }
+      if (next == END) {
+         next = null;
+         finished = true;
+         if (failure != null)
+            throw failure;
+         return false;
+      }
+      return true;
+   }
+
+   public int[] next() {
+      if (!hasNext())
+         throw new NoSuchElementException();
+      int[] solution = next;
+      next = null;
+      return solution;
+   }
+
+   /**
+    * Kończy wyszukiwanie i zwalnia wątek silnika. Można wywołać wielokrotnie, z dowolnego wątku; odbiorca czekający
+    * w hasNext() dostaje wtedy false.
+    */
+   public void close() {
+      closed = true;
+      abort.run();
+      Thread w;
+      synchronized (this) {
+         w = worker;
+      }
+      if (w != null)
+         w.interrupt();  // Budzi wątek silnika, jeśli czeka na miejsce w kolejce.
+      queue.clear();
+      queue.offer(END);  // Budzi odbiorcę, jeśli czeka w hasNext().
+   }
+
+   /**
+    * Zwraca rozwiązania jako sekwencyjny Stream. Zamknięcie strumienia (na przykład w try-with-resources) wywołuje close(),
+    * a operacje takie jak limit() albo findFirst() kończą się po pobraniu potrzebnej liczby rozwiązań.
+    */
+   public Stream<int[]> stream() {
+      Spliterator<int[]> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+      return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+         public void run() {
+            close();
+         }
+      });
+   }
+
+   /**
+    * Zwraca rozwiązania jako Flow.Publisher dla jednego subskrybenta. Rozwiązania są dostarczane w osobnym wątku
+    * tylko wtedy, gdy subskrybent zgłosił zapotrzebowanie (Subscription.request); bez zapotrzebowania silnik czeka.
+    * Anulowanie subskrypcji wywołuje close().
+    */
+   public Flow.Publisher<int[]> publisher() {
+      return new Flow.Publisher<int[]>() {
+         private boolean subscribed;
+         public synchronized void subscribe(Flow.Subscriber<? super int[]> subscriber) {
+            if (subscribed) {
+               subscriber.onSubscribe(new Flow.Subscription() {
+                  public void request(long n) {
+                  }
+                  public void cancel() {
+                  }
+               });
+               subscriber.onError(new IllegalStateException("SolutionStream supports only one subscriber."));
+               return;
+            }
+            subscribed = true;
+            new Delivery(subscriber).start();
+         }
+      };
+   }
+
+   private class Delivery extends Thread implements Flow.Subscription { // Wątek, który przekazuje rozwiązania subskrybentowi zgodnie z zapotrzebowaniem.
+
+      private final Flow.Subscriber<? super int[]> subscriber;
+      private long demand;        // Liczba rozwiązań, o które prosił subskrybent, a które nie zostały jeszcze dostarczone.
+      private boolean cancelled;
+
+      Delivery(Flow.Subscriber<? super int[]> subscriber) {
+         super("SolutionStream publisher");
+         this.subscriber = subscriber;
+         setDaemon(true);
+      }
+
+      public synchronized void request(long n) {
+         if (n <= 0) {
+            cancelled = true;
+            close();
+            subscriber.onError(new IllegalArgumentException("Subscription.request must be positive."));
+         }
+         else
+            demand = (demand + n < 0)? Long.MAX_VALUE : demand + n;  // Zapotrzebowanie bez ograniczeń.
+         notifyAll();
+      }
+
+      public synchronized void cancel() {
+         cancelled = true;
+         close();
+         notifyAll();
+      }
+
+      private synchronized boolean awaitDemand() { // Czeka, aż subskrybent poprosi o rozwiązanie; zwraca false po anulowaniu.
+         while (demand == 0 && !cancelled) {
+            try {
+               wait();
+            }
+            catch (InterruptedException e) {
+               cancelled = true;
+            }
+         }
+         if (cancelled)
+            return false;
+         demand--;
+         return true;
+      }
+
+      public void run() {
+         subscriber.onSubscribe(this);
+         try {
+            while (hasNext()) {
+               if (!awaitDemand())
+                  return;
+               subscriber.onNext(next());
+            }
+            if (!closed)
+               subscriber.onComplete();
+         }
+         catch (RuntimeException e) {
+            close();
+            subscriber.onError(e);
+         }
+      }
+   }
+
+}
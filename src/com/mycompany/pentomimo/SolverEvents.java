@@ -0,0 +1,118 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Zdarzenia Java Flight Recorder wysyłane przez PentominoSolver, w kategorii "Pentominos". Pozwalają zestawić
+ * spowolnienia wyszukiwania z GC, safepointami i zastojami EDT w jednym nagraniu, np.
+ * java -XX:StartFlightRecording:filename=run.jfr ... albo jcmd PID JFR.start.
+ * Gdy nagrywanie nie jest aktywne, silnik nie tworzy obiektów zdarzeń Solution i Progress (sprawdza najpierw
+ * SOLUTION.isEnabled() i PROGRESS.isEnabled()) i nie mierzy czasu sprawdzeń.
+ */
+final class SolverEvents {
+
+   private SolverEvents() {
+   }
+
+   // Typy zdarzeń wysyłanych w pętli wyszukiwania. isEnabled() odczytuje bieżące ustawienia nagrywania bez tworzenia obiektów;
+   // obiekt zdarzenia tworzony przed sprawdzeniem nie jest usuwany przez analizę ucieczki w tej pętli.
+   static final EventType SOLUTION = EventType.getEventType(Solution.class);
+   static final EventType PROGRESS = EventType.getEventType(Progress.class);
+
+   @Name("com.mycompany.pentomimo.Search")
+   @Label("Search")
+   @Category("Pentominos")
+   @Description("One run of PentominoSolver.solve(), from start to end")
+   static final class Search extends Event {
+      @Label("Board")
+      String board;
+      @Label("Pieces Needed")
+      int piecesNeeded;
+      @Label("Empty Spaces")
+      int emptySpaces;
+      @Label("Check For Blocks")
+      boolean checkForBlocks;
+      @Label("Symmetry")
+      boolean symmetry;
+      @Label("Most Constrained")
+      boolean mostConstrained;
+      @Label("Resumed")
+      @Description("Search was resumed from a checkpoint")
+      boolean resumed;
+      @Label("Aborted")
+      boolean aborted;
+      @Label("Nodes")
+      long nodes;
+      @Label("Solutions")
+      long solutions;
+      @Label("Pruned")
+      @Description("Placements rejected by the obvious block check")
+      long pruned;
+   }
+
+   @Name("com.mycompany.pentomimo.Solution")
+   @Label("Solution Found")
+   @Category("Pentominos")
+   static final class Solution extends Event {
+      @Label("Solution Number")
+      long solutionNumber;
+      @Label("Nodes")
+      long nodes;
+   }
+
+   @Name("com.mycompany.pentomimo.Abort")
+   @Label("Search Aborted")
+   @Category("Pentominos")
+   @Description("Search stopped by abort() (restart or close in the UI) or by the listener")
+   static final class Abort extends Event {
+      @Label("Reason")
+      String reason;
+      @Label("Depth")
+      int depth;
+      @Label("Nodes")
+      long nodes;
+      @Label("Solutions")
+      long solutions;
+   }
+
+   @Name("com.mycompany.pentomimo.Progress")
+   @Label("Search Progress")
+   @Category("Pentominos")
+   @Description("Sampled every 65536 nodes; times are since the previous sample")
+   static final class Progress extends Event {
+      @Label("Depth")
+      int depth;
+      @Label("Nodes")
+      long nodes;
+      @Label("Nodes Per Second")
+      double nodesPerSecond;
+      @Label("Solutions")
+      long solutions;
+      @Label("Block Check Time")
+      @Description("Time in RegionTracker.update (the obvious block check), estimated from every 16th call")
+      @Timespan(Timespan.NANOSECONDS)
+      long blockCheckTime;
+      @Label("Symmetry Check Time")
+      @Description("Time in SymmetryGroup.isCanonical (the symmetry check)")
+      @Timespan(Timespan.NANOSECONDS)
+      long symmetryCheckTime;
+      @Label("Pruned")
+      long pruned;
+   }
+
+}
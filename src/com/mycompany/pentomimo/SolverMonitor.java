@@ -0,0 +1,146 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * MBean platformy dla jednego działającego PentominoSolver, pod nazwą
+ * com.mycompany.pentomimo:type=Solver,board=RxC,id=N, widoczny w jconsole, VisualVM i innych narzędziach JMX.
+ * Silnik trzyma liczniki w zmiennych lokalnych wątku wyszukiwania i publikuje je w polach volatile tylko w punktach
+ * próbkowania (co PentominoSolver.PROGRESS_TEST_NODES węzłów), więc odczyty z JMX nigdy nie spowalniają wyszukiwania;
+ * wartości mogą być spóźnione o kilkadziesiąt milisekund. Pauza też działa w punktach próbkowania.
+ */
+public class SolverMonitor implements SolverMonitorMBean {
+
+   private static final AtomicInteger nextId = new AtomicInteger(1);
+
+   private final PentominoSolver solver;
+   private final String board;
+   private final long startTime;   // System.nanoTime() przy rejestracji.
+   private ObjectName name;        // null, jeśli rejestracja się nie udała.
+   private long rateNodes, rateTime;  // Liczba węzłów i czas ostatniego pomiaru tempa.
+   private double rate;
+
+   private SolverMonitor(PentominoSolver solver, String board) {
+      this.solver = solver;
+      this.board = board;
+      startTime = System.nanoTime();
+      rateTime = startTime;
+   }
+
+   /**
+    * Tworzy monitor dla solvera i rejestruje go w platformowym serwerze MBean. Należy wywołać unregister(),
+    * gdy wyszukiwanie się skończy. Jeśli rejestracja się nie uda (np. brak uprawnień), monitor działa dalej,
+    * tylko nie jest widoczny przez JMX.
+    */
+   public static SolverMonitor register(PentominoSolver solver, String board) {
+      SolverMonitor monitor = new SolverMonitor(solver, board);
+      try {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = new ObjectName("com.mycompany.pentomimo:type=Solver,board=" + ObjectName.quote(board)
+                                          + ",id=" + nextId.getAndIncrement());
+         server.registerMBean(monitor, name);
+         monitor.name = name;
+      }
+      catch (JMException | SecurityException e) {
+      }
+      return monitor;
+   }
+
+   /**
+    * Usuwa monitor z serwera MBean.
+    */
+   public void unregister() {
+      if (name == null)
+         return;
+      try {
+         ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      }
+      catch (JMException | SecurityException e) {
+      }
+      name = null;
+   }
+
+   public ObjectName getObjectName() {
+      return name;
+   }
+
+   public String getBoard() {
+      return board;
+   }
+
+   public long getNodes() {
+      return solver.getNodeCount();
+   }
+
+   public long getSolutions() {
+      return solver.getSolutionCount();
+   }
+
+   public int getDepth() {
+      return solver.getDepth();
+   }
+
+   public synchronized double getNodesPerSecond() {
+      long now = System.nanoTime();
+      long nodes = solver.getNodeCount();
+      if (now - rateTime >= 1000000000L || rate == 0) {  // Nowy pomiar najwyżej raz na sekundę, aby częste odczyty nie dawały szumu.
+         if (now > rateTime && nodes >= rateNodes)
+            rate = (nodes - rateNodes) / ((now - rateTime) / 1e9);
+         rateNodes = nodes;
+         rateTime = now;
+      }
+      return rate;
+   }
+
+   public double getPruneRate() {
+      long pruned = solver.getPrunedCount();
+      long tried = pruned + solver.getNodeCount();
+      return (tried == 0)? 0 : (double)pruned / tried;
+   }
+
+   public long getElapsedMillis() {
+      return (System.nanoTime() - startTime) / 1000000;
+   }
+
+   public double getEstimatedRemainingNodes() {
+      return solver.getEstimatedRemainingNodes();
+   }
+
+   public long getEstimatedRemainingMillis() {
+      double remaining = solver.getEstimatedRemainingNodes();
+      double rate = getNodesPerSecond();
+      if (remaining < 0 || rate <= 0)
+         return -1;
+      return (long)(remaining / rate * 1000);
+   }
+
+   public boolean isPaused() {
+      return solver.isPaused();
+   }
+
+   public void pause() {
+      solver.pause();
+   }
+
+   public void resume() {
+      solver.resume();
+   }
+
+   public void abort() {
+      solver.abort();
+   }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Interfejs zarządzania JMX dla działającego PentominoSolver (patrz SolverMonitor).
+ * Atrybuty są tylko do odczytu; operacje pause, resume i abort sterują wyszukiwaniem.
+ */
+public interface SolverMonitorMBean {
+
+   String getBoard();                     // Opis łamigłówki, np. "6x10".
+   long getNodes();                       // Liczba położonych klocków (moveCount).
+   long getSolutions();                   // Liczba znalezionych rozwiązań (solutionCount).
+   int getDepth();                        // Liczba klocków na planszy (numused).
+   double getNodesPerSecond();            // Tempo wyszukiwania z ostatniej sekundy (lub dłużej, jeśli odczyty są rzadsze).
+   double getPruneRate();                 // Część pozycji odrzuconych przez sprawdzanie oczywistego blokowania.
+   long getElapsedMillis();               // Czas od rejestracji.
+   double getEstimatedRemainingNodes();   // -1, jeśli nieznana.
+   long getEstimatedRemainingMillis();    // -1, jeśli nieznany.
+   boolean isPaused();
+
+   void pause();
+   void resume();
+   void abort();
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.Arrays;
+
+/**
+ * Licznik rozwiązań dla długich, wąskich plansz (na przykład 3xN, 4xN, 5xN), oparty na programowaniu dynamicznym
+ * zamiast przeszukiwania z nawrotami. Plansza jest przeglądana kwadrat po kwadracie wzdłuż dłuższego boku;
+ * stan to profil (które z najbliższych 5*width kwadratów są już zajęte), liczba kwadratów zostawionych pustych
+ * i liczba użytych egzemplarzy każdego klocka. Wszystkie częściowe ułożenia o tym samym stanie mają takie same
+ * dokończenia, więc są liczone razem, a nie przeszukiwane osobno. Licznik obsługuje wiele egzemplarzy każdego klocka
+ * (setCopies) i plansze dowolnej długości, ale nie podaje samych rozwiązań i nie usuwa rozwiązań symetrycznych.
+ */
+public class StripCounter {
+
+   public static final int MAX_WIDTH = 8;   // Najszerszy obsługiwany krótszy bok planszy (profil ma 5*width bitów).
+   public static final int STRIP_WIDTH = 5;  // Do tej szerokości licznik jest szybszy niż PentominoSolver, więc używa go tryb "Count Solutions Only".
+   public static final int UNLIMITED = Integer.MAX_VALUE;  // Liczba egzemplarzy klocka, który może być użyty dowolnie wiele razy.
+   public static final int MAX_EMPTY = (1 << 24) - 1;      // Najwięcej pustych kwadratów (poza dziurami); tyle mieści się w kluczu stanu obok profilu.
+
+   private static final int EMPTY_BITS = 24;  // Młodsze bity pierwszego klucza stanu to liczba pustych kwadratów, starsze to profil (do 40 bitów).
+   private static final long EMPTY_MASK = (1L << EMPTY_BITS) - 1;
+
+   private final int rows, cols;      // Rozmiar planszy.
+   private final int length, width;   // Dłuższy i krótszy bok planszy; przeglądanie idzie wierszami o długości width.
+   private final boolean transposed;  // Prawda, jeśli cols > rows.
+   private final int pieceSize;       // Liczba kwadratów klocka; zawsze 5, bo licznik obsługuje tylko pentomina.
+   private final int window;          // Liczba bitów profilu: pieceSize*width, więcej niż zasięg każdej pozycji klocka.
+
+   private final int[][] placementPiece;  // Dla każdej kolumny (0 do width-1): numery klocków pozycji zaczepionych w tej kolumnie
+   private final long[][] placementMask;  // i maski tych pozycji względem kwadratu zaczepienia (bit 0).
+
+   private boolean[] holes;           // Kwadraty, które muszą pozostać puste, w kolejności przeglądania; może być null.
+   private int[] copies = new int[13];   // copies[p] to liczba egzemplarzy klocka numer p.
+   private int piecesNeeded;          // Liczba klocków w kompletnym rozwiązaniu.
+   private int emptySpaces;           // Ile kwadratów (poza holes) może pozostać pustych w rozwiązaniu.
+   private boolean piecesNeededSet;   // Prawda po setPiecesNeeded(); wtedy setHoles() i setCopies() nie zmieniają piecesNeeded i emptySpaces.
+
+   private volatile boolean abortRequested;  // Ustawiane przez abort(), z dowolnego wątku.
+   private long stateCount;           // Liczba przetworzonych stanów (odpowiednik liczby ruchów).
+   private int maxStates;             // Największa liczba stanów na jednym kroku.
+
+   /**
+    * Tworzy licznik dla planszy rows x cols, której krótszy bok ma co najwyżej MAX_WIDTH kwadratów.
+    * Tablica pieces ma ten sam format co PentominosPanel.piece_data i musi opisywać pentomina o numerach od 1 do 12
+    * (stan licznika jest dopasowany do klocków o 5 kwadratach); domyślnie każdy klocek ma jeden egzemplarz.
+    */
+   public StripCounter(int rows, int cols, int[][] pieces) {
+      for (int p = 0; p < pieces.length; p++)
+         if (pieces[p].length != 9 || pieces[p][0] < 1 || pieces[p][0] > 12)
+            throw new IllegalArgumentException("StripCounter supports only pentominoes numbered 1 to 12.");
+      if (!fits(rows, cols))
+         throw new IllegalArgumentException("The shorter side of the board must be between 1 and " + MAX_WIDTH + " squares.");
+      this.rows = rows;
+      this.cols = cols;
+      transposed = cols > rows;
+      length = Math.max(rows, cols);
+      width = Math.min(rows, cols);
+      pieceSize = 5;
+      window = pieceSize*width;
+      if (transposed)
+         pieces = PlacementTable.transpose(pieces);
+      placementPiece = new int[width][];
+      placementMask = new long[width][];
+      for (int col = 0; col < width; col++) {
+         int[] foundPiece = new int[pieces.length];
+         long[] foundMask = new long[pieces.length];
+         int ct = 0;
+         PIECES: for (int p = 0; p < pieces.length; p++) {
+            long mask = 1;
+            for (int i = 1; i < 9; i += 2) {
+               int r = pieces[p][i];
+               int c = col + pieces[p][i+1];
+               if (c < 0 || c >= width)
+                  continue PIECES;  // Ta pozycja nie mieści się w szerokości planszy.
+               mask |= 1L << (r*width + c - col);
+            }
+            foundPiece[ct] = pieces[p][0];
+            foundMask[ct] = mask;
+            ct++;
+         }
+         placementPiece[col] = Arrays.copyOf(foundPiece, ct);
+         placementMask[col] = Arrays.copyOf(foundMask, ct);
+      }
+      for (int p = 1; p <= 12; p++)
+         copies[p] = 1;
+      defaultPiecesNeeded();
+   }
+
+   private void defaultPiecesNeeded() { // Domyślnie: tyle klocków, ile zmieści się na kwadratach poza holes; reszta zostaje pusta.
+      int freeCells = rows*cols;
+      if (holes != null)
+         for (boolean hole : holes)
+            if (hole)
+               freeCells--;
+      long available = 0;
+      for (int p = 1; p <= 12; p++)
+         available += copies[p];
+      piecesNeeded = (int)Math.min(available, freeCells/pieceSize);
+      emptySpaces = Math.min(MAX_EMPTY, freeCells - pieceSize*piecesNeeded);
+   }
+
+   /**
+    * Czy licznik obsługuje planszę o podanym rozmiarze?
+    */
+   public static boolean fits(int rows, int cols) {
+      return rows > 0 && cols > 0 && Math.min(rows, cols) <= MAX_WIDTH;
+   }
+
+   /**
+    * Ustawia kwadraty, które muszą pozostać puste. holes[row*cols+col] odpowiada kwadratowi (row,col); może być null.
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa dla pozostałych kwadratów.
+    */
+   public void setHoles(boolean[] holes) {
+      if (holes == null)
+         this.holes = null;
+      else {
+         this.holes = new boolean[rows*cols];
+         for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+               this.holes[transposed? col*rows + row : row*cols + col] = holes[row*cols + col];
+      }
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   /**
+    * Ustawia liczbę klocków w kompletnym rozwiązaniu oraz liczbę dodatkowych kwadratów (poza holes), które mogą pozostać puste.
+    * @throws IllegalArgumentException jeśli emptySpaces jest ujemne albo większe niż MAX_EMPTY.
+    */
+   public void setPiecesNeeded(int piecesNeeded, int emptySpaces) {
+      if (emptySpaces < 0 || emptySpaces > MAX_EMPTY)
+         throw new IllegalArgumentException("The number of empty squares must be between 0 and " + MAX_EMPTY + ".");
+      this.piecesNeeded = piecesNeeded;
+      this.emptySpaces = emptySpaces;
+      piecesNeededSet = true;
+   }
+
+   /**
+    * Ustawia liczbę egzemplarzy każdego z 12 klocków. Licznik egzemplarzy jest częścią stanu tylko wtedy, gdy jest ich mniej,
+    * niż zmieści się na planszy, i wtedy może ich być co najwyżej 31; UNLIMITED oznacza brak ograniczenia.
+    * Jeśli nie wywołano setPiecesNeeded(), liczba klocków i pustych kwadratów jest obliczana od nowa.
+    */
+   public void setCopies(int copiesOfEachPiece) {
+      for (int p = 1; p <= 12; p++)
+         copies[p] = copiesOfEachPiece;
+      checkCopies();
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   /**
+    * Ustawia liczbę egzemplarzy każdego klocka osobno; copies[p] dotyczy klocka numer p (1 do 12), copies[0] jest pomijane.
+    */
+   public void setCopies(int[] copies) {
+      this.copies = new int[13];
+      for (int p = 1; p <= 12 && p < copies.length; p++)
+         this.copies[p] = copies[p];
+      checkCopies();
+      if (!piecesNeededSet)
+         defaultPiecesNeeded();
+   }
+
+   private void checkCopies() {
+      for (int p = 1; p <= 12; p++)
+         if (copies[p] < 0)
+            throw new IllegalArgumentException("Number of copies cannot be negative.");
+   }
+
+   public void abort() {
+      abortRequested = true;
+   }
+
+   public boolean wasAborted() {
+      return abortRequested;
+   }
+
+   /**
+    * Liczba stanów przetworzonych przez ostatnie wywołanie count().
+    */
+   public long getStateCount() {
+      return stateCount;
+   }
+
+   /**
+    * Największa liczba różnych stanów na jednym kroku ostatniego wywołania count(); miara potrzebnej pamięci.
+    */
+   public int getMaxStates() {
+      return maxStates;
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   /**
+    * Zwraca liczbę rozwiązań (wszystkich, łącznie z symetrycznymi). Jeśli liczenie zostało przerwane, zwraca -1.
+    * @throws ArithmeticException jeśli liczba rozwiązań nie mieści się w typie long.
+    */
+   public long count() {
+      abortRequested = false;
+      stateCount = 0;
+      maxStates = 0;
+      int cellCount = length*width;
+      int freeCells = 0;
+      for (int cell = 0; cell < cellCount; cell++)
+         if (!isBlocked(cell, cellCount))
+            freeCells++;
+      boolean[] limited = new boolean[13];  // Klocki, których egzemplarze trzeba liczyć; pozostałych jest więcej, niż zmieści się na planszy.
+      int bits = 1;  // Liczba bitów na licznik egzemplarzy jednego klocka.
+      for (int p = 1; p <= 12; p++) {
+         limited[p] = copies[p] < freeCells/pieceSize;
+         if (limited[p] && copies[p] > 31)
+            throw new IllegalArgumentException("At most 31 copies of a piece can be counted; use UNLIMITED for more.");
+         while (limited[p] && copies[p] >= (1 << bits))
+            bits++;
+      }
+      int emptyTarget = freeCells - pieceSize*piecesNeeded;  // Dokładnie tyle kwadratów musi zostać pustych w rozwiązaniu.
+      if (emptyTarget < 0 || emptyTarget > emptySpaces)
+         return 0;
+      long[] pieceStep = new long[13];   // Wartość dodawana do zakodowanego stanu klocków po użyciu klocka p.
+      for (int p = 1; p <= 12; p++)
+         pieceStep[p] = limited[p]? 1L << (bits*(p-1)) : 0;
+      long countMask = (1L << bits) - 1;
+      StateMap current = new StateMap();
+      StateMap next = new StateMap();
+      long profile = 0;
+      for (int j = 0; j < window; j++)
+         if (isBlocked(j, cellCount))
+            profile |= 1L << j;
+      current.add(profile << EMPTY_BITS, 0, 1);
+      int freeLeft = freeCells;  // Wolne kwadraty od bieżącego do końca planszy.
+      for (int cell = 0; cell < cellCount; cell++) {
+         if (abortRequested)
+            return -1;
+         int emptiesNeeded = emptyTarget - freeLeft;  // Stan z mniejszą liczbą pustych kwadratów nie zdąży zostawić ich dość.
+         if (!isBlocked(cell, cellCount))
+            freeLeft--;
+         int col = cell % width;
+         long entering = isBlocked(cell + window, cellCount)? 1L << (window-1) : 0;  // Kwadrat, który wchodzi do profilu po przesunięciu.
+         int[] piece = placementPiece[col];
+         long[] masks = placementMask[col];
+         next.clear();
+         for (int s = 0; s < current.capacity(); s++) {
+            if (!current.used(s))
+               continue;
+            long key = current.key1(s);
+            long pieceState = current.key2(s);
+            long ways = current.value(s);
+            stateCount++;
+            profile = key >>> EMPTY_BITS;
+            int empties = (int)(key & EMPTY_MASK);
+            if (empties < emptiesNeeded)
+               continue;
+            if ((profile & 1) != 0) {  // Kwadrat jest już zajęty.
+               next.add(((profile >>> 1) | entering) << EMPTY_BITS | empties, pieceState, ways);
+               continue;
+            }
+            for (int i = 0; i < piece.length; i++) {
+               long mask = masks[i];
+               int p = piece[i];
+               if ((mask & profile) != 0)
+                  continue;  // Pozycja nachodzi na zajęty kwadrat, dziurę albo wychodzi za koniec planszy.
+               if (limited[p] && ((pieceState >>> (bits*(p-1))) & countMask) >= copies[p])
+                  continue;  // Wszystkie egzemplarze tego klocka są już użyte.
+               next.add((((profile | mask) >>> 1) | entering) << EMPTY_BITS | empties, pieceState + pieceStep[p], ways);
+            }
+            if (empties < emptyTarget)  // Zostaw ten kwadrat pusty.
+               next.add(((profile >>> 1) | entering) << EMPTY_BITS | (empties + 1), pieceState, ways);
+         }
+         StateMap t = current;
+         current = next;
+         next = t;
+         maxStates = Math.max(maxStates, current.size());
+      }
+      long total = 0;
+      for (int s = 0; s < current.capacity(); s++)
+         if (current.used(s) && freeCells - (current.key1(s) & EMPTY_MASK) == pieceSize*piecesNeeded)  // Dokładnie piecesNeeded klocków.
+            total = Math.addExact(total, current.value(s));
+      return total;
+   }
+
+   private boolean isBlocked(int cell, int cellCount) { // Czy kwadrat jest dziurą albo leży za końcem planszy?
+      return cell >= cellCount || (holes != null && holes[cell]);
+   }
+
+   /**
+    * Tablica mieszająca z adresowaniem otwartym: klucz to dwie liczby long (profil z liczbą pustych kwadratów
+    * oraz zakodowane liczniki klocków), a wartość to liczba częściowych ułożeń w tym stanie.
+    */
+   private static final class StateMap {
+
+      private long[] keys1 = new long[1024];
+      private long[] keys2 = new long[1024];
+      private long[] values = new long[1024];
+      private boolean[] full = new boolean[1024];
+      private int size;
+
+      int capacity() {
+         return full.length;
+      }
+
+      int size() {
+         return size;
+      }
+
+      boolean used(int slot) {
+         return full[slot];
+      }
+
+      long key1(int slot) {
+         return keys1[slot];
+      }
+
+      long key2(int slot) {
+         return keys2[slot];
+      }
+
+      long value(int slot) {
+         return values[slot];
+      }
+
+      void clear() {
+         Arrays.fill(full, false);
+         size = 0;
+      }
+
+      void add(long key1, long key2, long ways) {
+         if (2*(size+1) > full.length)
+            grow();
+         int slot = find(key1, key2);
+         if (full[slot])
+            values[slot] = Math.addExact(values[slot], ways);
+         else {
+            full[slot] = true;
+            keys1[slot] = key1;
+            keys2[slot] = key2;
+            values[slot] = ways;
+            size++;
+         }
+      }
+
+      private int find(long key1, long key2) {
+         int mask = full.length - 1;
+         long h = key1 * 0x9E3779B97F4A7C15L + key2 * 0xC2B2AE3D27D4EB4FL;
+         int slot = (int)(h ^ (h >>> 29)) & mask;
+         while (full[slot] && (keys1[slot] != key1 || keys2[slot] != key2))
+            slot = (slot + 1) & mask;
+         return slot;
+      }
+
+      private void grow() {
+         long[] k1 = keys1, k2 = keys2, v = values;
+         boolean[] f = full;
+         keys1 = new long[2*f.length];
+         keys2 = new long[2*f.length];
+         values = new long[2*f.length];
+         full = new boolean[2*f.length];
+         for (int i = 0; i < f.length; i++)
+            if (f[i]) {
+               int slot = find(k1[i], k2[i]);
+               full[slot] = true;
+               keys1[slot] = k1[i];
+               keys2[slot] = k2[i];
+               values[slot] = v[i];
+            }
+      }
+   }
+
+}
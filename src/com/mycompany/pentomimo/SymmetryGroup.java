@@ -0,0 +1,192 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+/**
+ *
+ * @author Kacper
+ */
+
+import java.util.ArrayList;
+
+/**
+ * Grupa symetrii konkretnej planszy: te spośród 8 obrotów i odbić kwadratu, które przeprowadzają planszę
+ * (jej rozmiar i dziury) na nią samą. Każda symetria jest zapisana jako permutacja kwadratów, obliczona raz w konstruktorze.
+ * Rozwiązanie (tablica numerów klocków dla każdego kwadratu, 0 dla pustego kwadratu) jest w postaci kanonicznej,
+ * jeśli jest leksykograficznie najmniejsze wśród swoich obrazów. Każda klasa rozwiązań symetrycznych ma dokładnie jednego
+ * takiego przedstawiciela, więc silniki zliczające tylko rozwiązania kanoniczne podają liczbę różnych rozwiązań,
+ * bez usuwania pozycji klocków (jak remove_for_symmetry w PentominosPanel) i bez pamiętania znalezionych rozwiązań.
+ * Działa to dla dowolnej planszy, dowolnych dziur i dowolnego podzbioru klocków.
+ */
+public final class SymmetryGroup {
+
+   private static final String[] NAMES = { "identity", "rotate 90", "rotate 180", "rotate 270",
+                                           "flip vertical", "flip horizontal", "flip diagonal", "flip antidiagonal" };
+
+   private final int rows, cols;   // Rozmiar planszy.
+   private final int[][] source;   // source[g][cell] to kwadrat, który symetria g przenosi na kwadrat cell; bez identyczności.
+   private final String[] names;   // Nazwy symetrii z tablicy source, do wyświetlania.
+
+   /**
+    * Oblicza grupę symetrii planszy.
+    * @param holes holes[row*cols+col] jest true, jeśli kwadrat musi pozostać pusty. Może być null.
+    * @param allowFlip jeśli false, używane są tylko obroty (na przykład dla klocków jednostronnych, których odbicie nie jest dostępne).
+    */
+   public SymmetryGroup(int rows, int cols, boolean[] holes, boolean allowFlip) {
+      this.rows = rows;
+      this.cols = cols;
+      int cellCount = rows*cols;
+      ArrayList<int[]> found = new ArrayList<int[]>();
+      ArrayList<String> foundNames = new ArrayList<String>();
+      SYMMETRIES: for (int g = 1; g < 8; g++) {
+         if (!allowFlip && g >= 4)
+            break;
+         boolean swapsAxes = g == 1 || g == 3 || g == 6 || g == 7;
+         if (swapsAxes && rows != cols)
+            continue;  // Na prostokątnej planszy obrót o 90 stopni i odbicie względem przekątnej nie przeprowadzają planszy na nią samą.
+         int[] src = new int[cellCount];
+         for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++) {
+               int cell = row*cols + col;
+               int image = transform(g, row, col);
+               if (holes != null && holes[cell] != holes[image])
+                  continue SYMMETRIES;  // Symetria przenosi dziurę na kwadrat, który nie jest dziurą.
+               src[image] = cell;
+            }
+         found.add(src);
+         foundNames.add(NAMES[g]);
+      }
+      source = found.toArray(new int[found.size()][]);
+      names = foundNames.toArray(new String[foundNames.size()]);
+   }
+
+   /**
+    * Oblicza grupę symetrii planszy o co najwyżej 64 kwadratach, z dziurami podanymi jako maska bitowa (bit row*cols+col).
+    */
+   public SymmetryGroup(int rows, int cols, long holes, boolean allowFlip) {
+      this(rows, cols, toArray(rows*cols, holes), allowFlip);
+   }
+
+   private static boolean[] toArray(int cellCount, long holes) {
+      boolean[] array = new boolean[cellCount];
+      for (int cell = 0; cell < cellCount && cell < 64; cell++)
+         array[cell] = (holes & (1L << cell)) != 0;
+      return array;
+   }
+
+   private int transform(int g, int row, int col) { // Numer kwadratu, na który symetria g przenosi kwadrat (row,col).
+      int r, c;
+      switch (g) {
+         case 1:  r = col;          c = rows-1-row;  break;
+         case 2:  r = rows-1-row;   c = cols-1-col;  break;
+         case 3:  r = cols-1-col;   c = row;         break;
+         case 4:  r = row;          c = cols-1-col;  break;
+         case 5:  r = rows-1-row;   c = col;         break;
+         case 6:  r = col;          c = row;         break;
+         case 7:  r = cols-1-col;   c = rows-1-row;  break;
+         default: r = row;          c = col;
+      }
+      return r*cols + c;
+   }
+
+   /**
+    * Liczba elementów grupy, łącznie z identycznością (1 dla planszy bez symetrii, najwyżej 8).
+    */
+   public int size() {
+      return source.length + 1;
+   }
+
+   /**
+    * Nazwy symetrii planszy (bez identyczności), na przykład "rotate 180".
+    */
+   public String[] getNames() {
+      return names.clone();
+   }
+
+   public int getRows() {
+      return rows;
+   }
+
+   public int getColumns() {
+      return cols;
+   }
+
+   /**
+    * Sprawdza, czy rozwiązanie jest w postaci kanonicznej, czyli czy żaden jego obraz nie jest leksykograficznie mniejszy.
+    * Koszt nie zależy od liczby znalezionych rozwiązań: co najwyżej 7 porównań tablic, zwykle kończonych po kilku kwadratach.
+    */
+   public boolean isCanonical(int[] solution) {
+      for (int g = 0; g < source.length; g++) {
+         int[] src = source[g];
+         for (int cell = 0; cell < src.length; cell++) {
+            int image = solution[src[cell]];
+            if (image != solution[cell]) {
+               if (image < solution[cell])
+                  return false;
+               break;
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Jak isCanonical(int[]), ale dla zestawów z kilkoma egzemplarzami tego samego klocka, w których numery klocków
+    * nie wyznaczają ułożenia (dwa sąsiednie egzemplarze mogą się dzielić na kwadraty na różne sposoby).
+    * instance[cell] to numer egzemplarza klocka (od 1, 0 dla pustego kwadratu); kwadraty są porównywane według numeru
+    * klocka, a potem według kolejności pierwszego wystąpienia egzemplarza, więc ułożenia równe z dokładnością
+    * do zamiany egzemplarzy mają taką samą postać. work musi mieć co najmniej 2*(największy numer egzemplarza + 1) elementów.
+    */
+   public boolean isCanonical(int[] solution, int[] instance, int[] work) {
+      int half = work.length / 2;
+      for (int g = 0; g < source.length; g++) {
+         int[] src = source[g];
+         java.util.Arrays.fill(work, 0);
+         int seen = 0, seenImage = 0;  // Liczba egzemplarzy napotkanych dotąd w rozwiązaniu i w jego obrazie.
+         for (int cell = 0; cell < src.length; cell++) {
+            int image = solution[src[cell]];
+            if (image != solution[cell]) {
+               if (image < solution[cell])
+                  return false;
+               break;
+            }
+            int a = instance[cell], b = instance[src[cell]];
+            if (a != 0 && work[a] == 0)
+               work[a] = ++seen;
+            if (b != 0 && work[half + b] == 0)
+               work[half + b] = ++seenImage;
+            if (work[half + b] != work[a]) {
+               if (work[half + b] < work[a])
+                  return false;
+               break;
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Zwraca postać kanoniczną rozwiązania: jego najmniejszy leksykograficznie obraz. Tablica solution nie jest zmieniana.
+    */
+   public int[] canonical(int[] solution) {
+      int[] best = solution;
+      for (int g = 0; g < source.length; g++) {
+         int[] src = source[g];
+         for (int cell = 0; cell < src.length; cell++) {
+            int image = solution[src[cell]];
+            if (image != best[cell]) {
+               if (image < best[cell]) {
+                  best = new int[src.length];
+                  for (int i = 0; i < src.length; i++)
+                     best[i] = solution[src[i]];
+               }
+               break;
+            }
+         }
+      }
+      return best == solution? solution.clone() : best;
+   }
+
+}
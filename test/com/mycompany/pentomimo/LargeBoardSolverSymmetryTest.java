@@ -0,0 +1,46 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Sprawdza liczenie rozwiązań różnych z dokładnością do symetrii w LargeBoardSolver dla zestawów z kilkoma egzemplarzami
+ * klocka. Numery klocków nie wyznaczają wtedy ułożenia, więc porównywanie samych numerów liczyło odbite ułożenia podwójnie.
+ */
+public class LargeBoardSolverSymmetryTest {
+
+   @Test
+   public void mirroredTilingsOfTwoLPiecesCountOnce() {
+      ArrayList<int[]> rows = new ArrayList<int[]>();
+      for (int[] row : PolyominoSet.pentominoes().getPieceData())
+         if (row[0] == 8)  // Tylko pozycje klocka "L".
+            rows.add(row);
+      int[][] pieces = rows.toArray(new int[rows.size()][]);
+      LargeBoardSolver solver = new LargeBoardSolver(2, 5, pieces);
+      solver.setCopies(2);
+      solver.setPiecesNeeded(2, 0);
+      assertEquals(2, solver.solve());
+      solver.setSymmetry(new SymmetryGroup(2, 5, (boolean[])null, true));
+      assertEquals(1, solver.solve());
+   }
+
+   @Test
+   public void twoSetsOn4x5() {
+      LargeBoardSolver solver = new LargeBoardSolver(4, 5, PolyominoSet.pentominoes().getPieceData());
+      solver.setCopies(2);
+      assertEquals(474, solver.solve());
+      solver.setSymmetry(new SymmetryGroup(4, 5, (boolean[])null, true));
+      assertEquals(130, solver.solve());  // Liczba klas ułożeń policzona przez porównanie zbiorów kwadratów klocków.
+   }
+
+}
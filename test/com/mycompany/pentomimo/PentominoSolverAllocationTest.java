@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/UnitTests/JUnit4TestClass.java to edit this template
+ */
+package com.mycompany.pentomimo;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ *
+ * @author Kacper
+ */
+
+/**
+ * Sprawdza, że tryb "Count Solutions Only" (PentominoSolver bez obserwatora) nie alokuje pamięci w trakcie
+ * wyszukiwania. Alokacje są liczone przez com.sun.management.ThreadMXBean dla bieżącego wątku. Pierwsze wywołanie
+ * solve() przygotowuje tablice i rozgrzewa JIT; kolejne na tym samym silniku może zaalokować tylko stałą liczbę
+ * bajtów (zdarzenie JFR Search), niezależnie od liczby węzłów i rozwiązań.
+ */
+public class PentominoSolverAllocationTest {
+
+   private static final long MAX_BYTES_PER_RUN = 1024;  // Kilkadziesiąt bajtów na zdarzenie, z dużym zapasem.
+
+   private com.sun.management.ThreadMXBean threads;
+
+   @Before
+   public void setUp() {
+      java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+      threads = (com.sun.management.ThreadMXBean)bean;
+      assumeTrue(threads.isThreadAllocatedMemorySupported());
+      threads.setThreadAllocatedMemoryEnabled(true);
+   }
+
+   @Test
+   public void countOnly5x12AllocatesNothingAfterWarmUp() {
+      checkCountOnly(5, 12, 4040);
+   }
+
+   @Test
+   public void countOnly6x10AllocatesNothingAfterWarmUp() {
+      checkCountOnly(6, 10, 9356);
+   }
+
+   @Test
+   public void countOnlyWithHolesAllocatesNothingAfterWarmUp() {
+      PentominoSolver solver = new PentominoSolver(8, 8, PolyominoSet.pentominoes().getPieceData());
+      solver.setHoles(1L << 27 | 1L << 28 | 1L << 35 | 1L << 36);  // Dziura 2x2 na środku planszy.
+      solver.setCheckForBlocks(true);
+      solver.setEstimate(false);
+      solver.solve();
+      long bytes = allocatedDuring(solver);
+      assertEquals(520, solver.getSolutionCount());
+      assertTrue("8x8 allocated " + bytes + " bytes", bytes <= MAX_BYTES_PER_RUN);
+   }
+
+   private void checkCountOnly(int rows, int cols, long solutions) {
+      PentominoSolver solver = new PentominoSolver(rows, cols, PolyominoSet.pentominoes().getPieceData());
+      solver.setCheckForBlocks(true);
+      solver.setEstimate(false);
+      solver.solve();  // Rozgrzanie: tablica pozycji, stos ramek i kompilacja JIT.
+      long bytes = allocatedDuring(solver);
+      assertEquals(solutions, solver.getSolutionCount());
+      assertTrue(rows + "x" + cols + " allocated " + bytes + " bytes", bytes <= MAX_BYTES_PER_RUN);
+   }
+
+   private long allocatedDuring(PentominoSolver solver) {
+      long id = Thread.currentThread().getId();
+      long before = threads.getThreadAllocatedBytes(id);
+      solver.solve();
+      return threads.getThreadAllocatedBytes(id) - before;
+   }
+
+}